@@ -1,11 +1,18 @@
 package com.lessionprm.backend;
 
+import com.lessionprm.shared.config.SharedPersistence;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"com.lessionprm.backend", "com.lessionprm.shared"})
+@EntityScan(basePackages = {"com.lessionprm.backend.entity", SharedPersistence.ENTITY_PACKAGE})
+@EnableJpaRepositories(basePackages = {"com.lessionprm.backend.repository", SharedPersistence.REPOSITORY_PACKAGE})
 @EnableJpaAuditing
+@EnableScheduling
 public class LessionPrmBackendApplication {
 
 	public static void main(String[] args) {
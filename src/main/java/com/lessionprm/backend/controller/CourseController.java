@@ -1,18 +1,23 @@
 package com.lessionprm.backend.controller;
 
 import com.lessionprm.backend.dto.course.CourseResponse;
+import com.lessionprm.backend.dto.course.CourseSummaryResponse;
 import com.lessionprm.backend.dto.course.CreateCourseRequest;
 import com.lessionprm.backend.entity.User;
+import com.lessionprm.backend.service.CatalogVersionService;
 import com.lessionprm.backend.service.CourseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -25,21 +30,48 @@ public class CourseController {
     @Autowired
     private CourseService courseService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     @GetMapping
     @Operation(summary = "Get all published courses")
-    public ResponseEntity<Page<CourseResponse>> getAllCourses(
+    public ResponseEntity<?> getAllCourses(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String search) {
-        Page<CourseResponse> courses = courseService.getAllCourses(page, size, category, search);
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String after,
+            WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
+        
+        // Passing "after" (empty for the first slice) opts into keyset pagination; search keeps page mode
+        if (after != null && !StringUtils.hasText(search)) {
+            return ResponseEntity.ok(courseService.getCourseSlice(after, size, category));
+        }
+        Page<CourseSummaryResponse> courses = courseService.getAllCourses(page, size, category, search);
         return ResponseEntity.ok(courses);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get course by ID")
-    public ResponseEntity<CourseResponse> getCourseById(@PathVariable Long id) {
-        CourseResponse course = courseService.getCourseById(id);
+    public ResponseEntity<CourseResponse> getCourseById(@PathVariable Long id, WebRequest request) {
+        // Repeat polls inside the version TTL are answered from the version service without loading the course
+        CatalogVersionService.Version version = catalogVersionService.course(id);
+        CourseResponse course = null;
+        if (version == null) {
+            long changeCount = catalogVersionService.changeCount();
+            course = courseService.getCourseById(id);
+            version = catalogVersionService.record(course, changeCount);
+        }
+        if (version != null && request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return notModified();
+        }
+        
+        if (course == null) {
+            course = courseService.getCourseById(id);
+        }
         return ResponseEntity.ok(course);
     }
 
@@ -80,31 +112,55 @@ public class CourseController {
         return ResponseEntity.ok(Map.of("message", "Successfully enrolled in course"));
     }
 
+    @PostMapping("/{id}/reviews")
+    @Operation(summary = "Review an enrolled course")
+    public ResponseEntity<Map<String, String>> addReview(
+            @PathVariable Long id,
+            @RequestParam int rating,
+            @RequestParam(required = false) String comment,
+            @AuthenticationPrincipal User user) {
+        courseService.addReview(id, user, rating, comment);
+        return ResponseEntity.ok(Map.of("message", "Review submitted successfully"));
+    }
+
     @GetMapping("/my-courses")
     @Operation(summary = "Get user's enrolled courses")
-    public ResponseEntity<List<CourseResponse>> getUserCourses(@AuthenticationPrincipal User user) {
-        List<CourseResponse> courses = courseService.getUserCourses(user);
+    public ResponseEntity<List<CourseSummaryResponse>> getUserCourses(@AuthenticationPrincipal User user) {
+        List<CourseSummaryResponse> courses = courseService.getUserCourses(user);
         return ResponseEntity.ok(courses);
     }
 
     @GetMapping("/categories")
     @Operation(summary = "Get all course categories")
-    public ResponseEntity<List<String>> getCategories() {
+    public ResponseEntity<List<String>> getCategories(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
+        
         List<String> categories = courseService.getCategories();
         return ResponseEntity.ok(categories);
     }
 
     @GetMapping("/featured")
     @Operation(summary = "Get featured courses")
-    public ResponseEntity<List<CourseResponse>> getFeaturedCourses() {
-        List<CourseResponse> courses = courseService.getFeaturedCourses();
+    public ResponseEntity<List<CourseSummaryResponse>> getFeaturedCourses() {
+        List<CourseSummaryResponse> courses = courseService.getFeaturedCourses();
         return ResponseEntity.ok(courses);
     }
 
     @GetMapping("/popular")
     @Operation(summary = "Get popular courses")
-    public ResponseEntity<List<CourseResponse>> getPopularCourses() {
-        List<CourseResponse> courses = courseService.getPopularCourses();
+    public ResponseEntity<List<CourseSummaryResponse>> getPopularCourses(@RequestParam(required = false) String category) {
+        List<CourseSummaryResponse> courses = StringUtils.hasText(category)
+                ? courseService.getPopularCourses(category)
+                : courseService.getPopularCourses();
+        return ResponseEntity.ok(courses);
+    }
+
+    @GetMapping("/trending")
+    @Operation(summary = "Get trending courses")
+    public ResponseEntity<List<CourseSummaryResponse>> getTrendingCourses() {
+        List<CourseSummaryResponse> courses = courseService.getTrendingCourses();
         return ResponseEntity.ok(courses);
     }
 
@@ -123,4 +179,15 @@ public class CourseController {
         courseService.archiveCourse(id);
         return ResponseEntity.ok(Map.of("message", "Course archived successfully"));
     }
+
+    // Sets ETag and Last-Modified on the response and reports whether a 304 has already been written
+    private boolean isCatalogNotModified(WebRequest request) {
+        CatalogVersionService.Version version = catalogVersionService.catalog();
+        return request.checkNotModified(version.getETag(), version.getLastModified());
+    }
+
+    // The validators are already on the response; the 304 carries no body
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+    }
 }
\ No newline at end of file
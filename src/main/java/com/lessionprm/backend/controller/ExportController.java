@@ -0,0 +1,111 @@
+package com.lessionprm.backend.controller;
+
+import com.lessionprm.backend.config.AsyncWebConfig;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.Payment;
+import com.lessionprm.backend.exception.BadRequestException;
+import com.lessionprm.backend.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+@RestController
+@RequestMapping("/api/admin/exports")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Export", description = "Streaming finance exports (Admin only)")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // Large exports run for minutes; only these responses get the long async timeout
+    @Value("${app.exports.timeout-ms:1800000}")
+    private long exportTimeoutMs;
+
+    @GetMapping("/invoices")
+    @Operation(summary = "Stream invoices as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String status,
+            HttpServletRequest request) {
+
+        ExportService.Format exportFormat = parseFormat(format);
+        Invoice.InvoiceStatus invoiceStatus = parseEnum(Invoice.InvoiceStatus.class, "status", status);
+        return stream(request, "invoices", exportFormat,
+                out -> exportService.writeInvoices(out, exportFormat, from, to, invoiceStatus));
+    }
+
+    @GetMapping("/payments")
+    @Operation(summary = "Stream payments as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String status,
+            HttpServletRequest request) {
+
+        ExportService.Format exportFormat = parseFormat(format);
+        Payment.PaymentStatus paymentStatus = parseEnum(Payment.PaymentStatus.class, "status", status);
+        return stream(request, "payments", exportFormat,
+                out -> exportService.writePayments(out, exportFormat, from, to, paymentStatus));
+    }
+
+    @GetMapping("/expenses")
+    @Operation(summary = "Stream expenses as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String category,
+            HttpServletRequest request) {
+
+        ExportService.Format exportFormat = parseFormat(format);
+        String expenseCategory = category != null && !category.trim().isEmpty() ? category : null;
+        return stream(request, "expenses", exportFormat,
+                out -> exportService.writeExpenses(out, exportFormat, from, to, expenseCategory));
+    }
+
+    private ExportService.Format parseFormat(String format) {
+        ExportService.Format exportFormat = parseEnum(ExportService.Format.class, "format", format);
+        return exportFormat != null ? exportFormat : ExportService.Format.NDJSON;
+    }
+
+    // Blank means no filter; anything else must name a constant, otherwise the request is rejected with a 400
+    private <E extends Enum<E>> E parseEnum(Class<E> type, String param, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid " + param + " '" + value + "', expected one of "
+                    + Arrays.toString(type.getEnumConstants()).toLowerCase());
+        }
+    }
+
+    // The body is written on an MVC async thread after the headers are sent, one row at a time
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String name,
+                                                         ExportService.Format format, StreamingResponseBody body) {
+        request.setAttribute(AsyncWebConfig.ASYNC_TIMEOUT_ATTRIBUTE, exportTimeoutMs);
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
\ No newline at end of file
@@ -1,12 +1,17 @@
 package com.lessionprm.backend.controller;
 
+import com.lessionprm.backend.dto.CursorPage;
+import com.lessionprm.backend.dto.KeysetCursor;
 import com.lessionprm.backend.dto.invoice.InvoiceResponse;
 import com.lessionprm.backend.entity.Invoice;
 import com.lessionprm.backend.entity.User;
 import com.lessionprm.backend.repository.InvoiceRepository;
+import com.lessionprm.backend.service.CourseLeaderboardService;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,9 +19,11 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -27,14 +34,32 @@ public class InvoiceController {
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private CourseLeaderboardService courseLeaderboardService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @GetMapping
     @Operation(summary = "Get user's invoices")
-    public ResponseEntity<Page<InvoiceResponse>> getUserInvoices(
+    public ResponseEntity<?> getUserInvoices(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status,
+            @RequestParam(required = false) String after,
             @AuthenticationPrincipal User user) {
         
+        if (after != null) {
+            int limit = CursorPage.clampSize(size);
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            Invoice.InvoiceStatus invoiceStatus = parseStatus(status);
+            List<Invoice> invoices = cursor == null
+                    ? invoiceRepository.findFirstSliceByUser(user, invoiceStatus, PageRequest.of(0, limit + 1))
+                    : invoiceRepository.findSliceByUserAfter(user, invoiceStatus,
+                            cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+            return ResponseEntity.ok(toCursorPage(invoices, limit));
+        }
+        
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<Invoice> invoicePage;
         
@@ -69,10 +94,22 @@ public class InvoiceController {
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all invoices (Admin only)")
-    public ResponseEntity<Page<InvoiceResponse>> getAllInvoices(
+    public ResponseEntity<?> getAllInvoices(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String after) {
+        
+        if (after != null) {
+            int limit = CursorPage.clampSize(size);
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            Invoice.InvoiceStatus invoiceStatus = parseStatus(status);
+            List<Invoice> invoices = cursor == null
+                    ? invoiceRepository.findFirstSlice(invoiceStatus, PageRequest.of(0, limit + 1))
+                    : invoiceRepository.findSliceAfter(invoiceStatus,
+                            cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+            return ResponseEntity.ok(toCursorPage(invoices, limit));
+        }
         
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<Invoice> invoicePage;
@@ -91,6 +128,7 @@ public class InvoiceController {
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Update invoice status (Admin only)")
+    @Transactional
     public ResponseEntity<Map<String, String>> updateInvoiceStatus(
             @PathVariable Long id,
             @RequestBody Map<String, String> request) {
@@ -99,13 +137,21 @@ public class InvoiceController {
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
         
         String status = request.get("status");
-        invoice.setStatus(Invoice.InvoiceStatus.valueOf(status.toUpperCase()));
-        
-        if ("PAID".equals(status.toUpperCase()) && invoice.getPaidAt() == null) {
+        Invoice.InvoiceStatus newStatus = Invoice.InvoiceStatus.valueOf(status.toUpperCase());
+        // Refunds and manual payments adjust the daily metrics rollup in the same transaction
+        eventPublisher.publishEvent(new InvoiceStatusChangedEvent(invoice.getId(),
+                invoice.getCreatedAt(), invoice.getAmount(), invoice.getStatus(), newStatus));
+        invoice.setStatus(newStatus);
+        
+        boolean newlyPaid = "PAID".equals(status.toUpperCase()) && invoice.getPaidAt() == null;
+        if (newlyPaid) {
             invoice.setPaidAt(LocalDateTime.now());
         }
         
         invoiceRepository.save(invoice);
+        if (newlyPaid) {
+            courseLeaderboardService.recordPayment(invoice.getCourse().getId());
+        }
         
         return ResponseEntity.ok(Map.of("message", "Invoice status updated successfully"));
     }
@@ -147,4 +193,13 @@ public class InvoiceController {
         
         return ResponseEntity.ok(statistics);
     }
+
+    private Invoice.InvoiceStatus parseStatus(String status) {
+        return status != null && !status.trim().isEmpty() ? Invoice.InvoiceStatus.valueOf(status.toUpperCase()) : null;
+    }
+
+    private CursorPage<InvoiceResponse> toCursorPage(List<Invoice> invoices, int limit) {
+        return CursorPage.of(invoices, limit,
+                invoice -> new KeysetCursor(invoice.getCreatedAt(), invoice.getId()), InvoiceResponse::new);
+    }
 }
\ No newline at end of file
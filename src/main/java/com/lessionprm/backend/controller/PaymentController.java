@@ -6,15 +6,19 @@ import com.lessionprm.backend.dto.payment.MoMoPaymentResponse;
 import com.lessionprm.backend.dto.payment.PaymentStatusResponse;
 import com.lessionprm.backend.entity.User;
 import com.lessionprm.backend.service.MoMoPaymentService;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payment")
@@ -24,13 +28,15 @@ public class PaymentController {
     @Autowired
     private MoMoPaymentService moMoPaymentService;
 
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
+
     @PostMapping("/momo/create")
     @Operation(summary = "Create MoMo payment")
-    public ResponseEntity<MoMoPaymentResponse> createPayment(
+    public CompletableFuture<ResponseEntity<MoMoPaymentResponse>> createPayment(
             @Valid @RequestBody CreatePaymentRequest request,
             @AuthenticationPrincipal User user) {
-        MoMoPaymentResponse response = moMoPaymentService.createPayment(request, user);
-        return ResponseEntity.ok(response);
+        return moMoPaymentService.createPayment(request, user).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/momo/callback")
@@ -47,6 +53,12 @@ public class PaymentController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream payment, enrollment and refund updates for the current user")
+    public SseEmitter streamEvents(@AuthenticationPrincipal User user) {
+        return paymentEventBroadcaster.subscribe(user.getId());
+    }
+
     @PostMapping("/momo/refund")
     @Operation(summary = "Process MoMo refund")
     public ResponseEntity<Map<String, String>> processRefund(@RequestBody Map<String, String> request) {
@@ -0,0 +1,178 @@
+package com.lessionprm.backend.dto.course;
+
+import com.lessionprm.backend.entity.Course;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Card-level view of a course for list endpoints. Built straight from a JPQL constructor expression,
+// so description, requirements and whatYoullLearn are never read for lists; CourseResponse keeps them
+// for the detail endpoint.
+public class CourseSummaryResponse {
+
+    private Long id;
+    private String title;
+    private String shortDescription;
+    private String imageUrl;
+    private BigDecimal price;
+    private BigDecimal discountPrice;
+    private String category;
+    private String level;
+    private String duration;
+    private String status;
+    private boolean featured;
+    private int enrollmentCount;
+    private double averageRating;
+    private CourseResponse.InstructorInfo instructor;
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public CourseSummaryResponse() {}
+
+    public CourseSummaryResponse(Long id, String title, String shortDescription, String imageUrl,
+                                 BigDecimal price, BigDecimal discountPrice, String category, String level,
+                                 String duration, Course.CourseStatus status, boolean featured,
+                                 int enrollmentCount, long ratingSum, int ratingCount,
+                                 Long instructorId, String instructorName, String instructorEmail,
+                                 String instructorAvatar, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.shortDescription = shortDescription;
+        this.imageUrl = imageUrl;
+        this.price = price;
+        this.discountPrice = discountPrice;
+        this.category = category;
+        this.level = level;
+        this.duration = duration;
+        this.status = status.name();
+        this.featured = featured;
+        this.enrollmentCount = enrollmentCount;
+        this.averageRating = ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+        this.createdAt = createdAt;
+
+        if (instructorId != null) {
+            this.instructor = new CourseResponse.InstructorInfo(instructorId, instructorName, instructorEmail, instructorAvatar);
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getShortDescription() {
+        return shortDescription;
+    }
+
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getDiscountPrice() {
+        return discountPrice;
+    }
+
+    public void setDiscountPrice(BigDecimal discountPrice) {
+        this.discountPrice = discountPrice;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public void setLevel(String level) {
+        this.level = level;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    public void setDuration(String duration) {
+        this.duration = duration;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isFeatured() {
+        return featured;
+    }
+
+    public void setFeatured(boolean featured) {
+        this.featured = featured;
+    }
+
+    public int getEnrollmentCount() {
+        return enrollmentCount;
+    }
+
+    public void setEnrollmentCount(int enrollmentCount) {
+        this.enrollmentCount = enrollmentCount;
+    }
+
+    public double getAverageRating() {
+        return averageRating;
+    }
+
+    public void setAverageRating(double averageRating) {
+        this.averageRating = averageRating;
+    }
+
+    public CourseResponse.InstructorInfo getInstructor() {
+        return instructor;
+    }
+
+    public void setInstructor(CourseResponse.InstructorInfo instructor) {
+        this.instructor = instructor;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
\ No newline at end of file
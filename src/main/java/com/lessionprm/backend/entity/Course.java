@@ -11,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "courses")
+@NamedEntityGraph(name = "Course.instructor", attributeNodes = @NamedAttributeNode("instructor"))
 @EntityListeners(AuditingEntityListener.class)
 public class Course {
 
@@ -65,6 +66,16 @@ public class Course {
     @OneToMany(mappedBy = "course", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CourseReview> reviews;
 
+    // Denormalised aggregates so listings never load enrollments or reviews
+    @Column(name = "enrollment_count", columnDefinition = "int default 0 not null")
+    private int enrollmentCount = 0;
+
+    @Column(name = "rating_sum", columnDefinition = "bigint default 0 not null")
+    private long ratingSum = 0;
+
+    @Column(name = "rating_count", columnDefinition = "int default 0 not null")
+    private int ratingCount = 0;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
@@ -220,6 +231,30 @@ public class Course {
         this.reviews = reviews;
     }
 
+    public int getEnrollmentCount() {
+        return enrollmentCount;
+    }
+
+    public void setEnrollmentCount(int enrollmentCount) {
+        this.enrollmentCount = enrollmentCount;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    public void setRatingCount(int ratingCount) {
+        this.ratingCount = ratingCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -237,18 +272,8 @@ public class Course {
     }
 
     // Helper methods
-    public int getEnrollmentCount() {
-        return enrollments != null ? enrollments.size() : 0;
-    }
-
     public double getAverageRating() {
-        if (reviews == null || reviews.isEmpty()) {
-            return 0.0;
-        }
-        return reviews.stream()
-                .mapToInt(CourseReview::getRating)
-                .average()
-                .orElse(0.0);
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
     }
 
     public BigDecimal getEffectivePrice() {
@@ -8,6 +8,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "enrollments")
+@NamedEntityGraph(name = "Enrollment.courseAndInstructor",
+    attributeNodes = @NamedAttributeNode(value = "course", subgraph = "course"),
+    subgraphs = @NamedSubgraph(name = "course", attributeNodes = @NamedAttributeNode("instructor")))
 @EntityListeners(AuditingEntityListener.class)
 public class Enrollment {
 
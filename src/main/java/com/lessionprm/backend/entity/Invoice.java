@@ -10,6 +10,10 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "invoices")
+@NamedEntityGraph(name = "Invoice.userAndCourse", attributeNodes = {
+    @NamedAttributeNode("user"),
+    @NamedAttributeNode("course")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Invoice {
 
@@ -0,0 +1,8 @@
+package com.lessionprm.backend.exception;
+
+// Public so controllers and request parsing outside this package can reject input with a 400
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -34,10 +34,4 @@ class UnauthorizedException extends RuntimeException {
     public UnauthorizedException(String message) {
         super(message);
     }
-}
-
-class BadRequestException extends RuntimeException {
-    public BadRequestException(String message) {
-        super(message);
-    }
 }
\ No newline at end of file
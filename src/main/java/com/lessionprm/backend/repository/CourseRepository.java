@@ -1,20 +1,33 @@
 package com.lessionprm.backend.repository;
 
+import com.lessionprm.backend.dto.course.CourseSummaryResponse;
 import com.lessionprm.backend.entity.Course;
 import com.lessionprm.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
     
+    // Card columns for list endpoints; the long text columns are only read by the detail endpoint
+    String SUMMARY_FIELDS = "new com.lessionprm.backend.dto.course.CourseSummaryResponse(" +
+            "c.id, c.title, c.shortDescription, c.imageUrl, c.price, c.discountPrice, c.category, c.level, " +
+            "c.duration, c.status, c.featured, c.enrollmentCount, c.ratingSum, c.ratingCount, " +
+            "i.id, i.fullName, i.email, i.avatar, c.createdAt)";
+    
+    String SUMMARY_SELECT = "SELECT " + SUMMARY_FIELDS + " FROM Course c LEFT JOIN c.instructor i ";
+    
+    @EntityGraph("Course.instructor")
     Page<Course> findByStatus(Course.CourseStatus status, Pageable pageable);
     
     Page<Course> findByCategory(String category, Pageable pageable);
@@ -23,8 +36,10 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     
     Page<Course> findByInstructor(User instructor, Pageable pageable);
     
+    @EntityGraph("Course.instructor")
     Page<Course> findByFeatured(boolean featured, Pageable pageable);
     
+    @EntityGraph("Course.instructor")
     @Query("SELECT c FROM Course c WHERE c.status = :status AND " +
            "(LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(c.description) LIKE LOWER(CONCAT('%', :search, '%')))")
@@ -32,11 +47,13 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
                                           @Param("search") String search, 
                                           Pageable pageable);
     
+    @EntityGraph("Course.instructor")
     @Query("SELECT c FROM Course c WHERE c.status = :status AND c.category = :category")
     Page<Course> findByStatusAndCategory(@Param("status") Course.CourseStatus status, 
                                         @Param("category") String category, 
                                         Pageable pageable);
     
+    @EntityGraph("Course.instructor")
     @Query("SELECT c FROM Course c WHERE c.status = :status AND c.category = :category AND " +
            "(LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(c.description) LIKE LOWER(CONCAT('%', :search, '%')))")
@@ -45,12 +62,103 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
                                                       @Param("search") String search,
                                                       Pageable pageable);
     
+    @Query(value = SUMMARY_SELECT + "WHERE c.status = :status AND (:category IS NULL OR c.category = :category) AND " +
+                   "(:search IS NULL OR LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+                   "LOWER(c.description) LIKE LOWER(CONCAT('%', :search, '%')))",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.status = :status AND " +
+                        "(:category IS NULL OR c.category = :category) AND " +
+                        "(:search IS NULL OR LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+                        "LOWER(c.description) LIKE LOWER(CONCAT('%', :search, '%')))")
+    Page<CourseSummaryResponse> findSummaries(@Param("status") Course.CourseStatus status,
+                                              @Param("category") String category,
+                                              @Param("search") String search,
+                                              Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.status = :status AND (:category IS NULL OR c.category = :category) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CourseSummaryResponse> findFirstSummarySliceByStatus(@Param("status") Course.CourseStatus status,
+                                                              @Param("category") String category,
+                                                              Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.status = :status AND (:category IS NULL OR c.category = :category) AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CourseSummaryResponse> findSummarySliceByStatusAfter(@Param("status") Course.CourseStatus status,
+                                                              @Param("category") String category,
+                                                              @Param("createdAt") LocalDateTime createdAt,
+                                                              @Param("id") Long id,
+                                                              Pageable limit);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE c.featured = :featured",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.featured = :featured")
+    Page<CourseSummaryResponse> findSummariesByFeatured(@Param("featured") boolean featured, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.enrollmentCount > 0 ORDER BY c.enrollmentCount DESC")
+    List<CourseSummaryResponse> findMostPopularSummaries(Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id IN :ids")
+    List<CourseSummaryResponse> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph("Course.instructor")
+    @Query("SELECT c FROM Course c WHERE c.status = :status AND (:category IS NULL OR c.category = :category) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Course> findFirstSliceByStatus(@Param("status") Course.CourseStatus status,
+                                        @Param("category") String category,
+                                        Pageable limit);
+    
+    @EntityGraph("Course.instructor")
+    @Query("SELECT c FROM Course c WHERE c.status = :status AND (:category IS NULL OR c.category = :category) AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Course> findSliceByStatusAfter(@Param("status") Course.CourseStatus status,
+                                        @Param("category") String category,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable limit);
+    
     @Query("SELECT DISTINCT c.category FROM Course c WHERE c.status = 'PUBLISHED'")
     List<String> findDistinctCategories();
     
     @Query("SELECT COUNT(c) FROM Course c WHERE c.createdAt BETWEEN :startDate AND :endDate")
     Long countCoursesCreated(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT c FROM Course c JOIN c.enrollments e GROUP BY c ORDER BY COUNT(e) DESC")
+    @EntityGraph("Course.instructor")
+    @Query("SELECT c FROM Course c WHERE c.enrollmentCount > 0 ORDER BY c.enrollmentCount DESC")
     List<Course> findMostPopularCourses(Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.status = 'PUBLISHED' AND c.category = :category AND c.enrollmentCount > 0 " +
+           "ORDER BY c.enrollmentCount DESC")
+    List<CourseSummaryResponse> findMostPopularSummariesByCategory(@Param("category") String category, Pageable pageable);
+    
+    @Query("SELECT c.id, c.category, c.status, c.enrollmentCount FROM Course c")
+    List<Object[]> findLeaderboardRows();
+    
+    @Query("SELECT MAX(COALESCE(c.updatedAt, c.createdAt)), COUNT(c) FROM Course c")
+    List<Object[]> findCatalogStamp();
+    
+    List<Course> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+    
+    // Counter updates bypass auditing, so they bump updated_at themselves for the catalog ETags
+    @Modifying
+    @Query("UPDATE Course c SET c.enrollmentCount = c.enrollmentCount + :delta, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :id")
+    int adjustEnrollmentCount(@Param("id") Long id, @Param("delta") int delta);
+    
+    @Modifying
+    @Query("UPDATE Course c SET c.ratingSum = c.ratingSum + :sumDelta, c.ratingCount = c.ratingCount + :countDelta, " +
+           "c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id")
+    int adjustRating(@Param("id") Long id, @Param("sumDelta") long sumDelta, @Param("countDelta") int countDelta);
+    
+    // Only overwrites rows still holding the values the checker read, so concurrent increments are not lost
+    @Modifying
+    @Query("UPDATE Course c SET c.enrollmentCount = :enrollmentCount, c.ratingSum = :ratingSum, c.ratingCount = :ratingCount, " +
+           "c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id AND c.enrollmentCount = :expectedEnrollmentCount " +
+           "AND c.ratingSum = :expectedRatingSum AND c.ratingCount = :expectedRatingCount")
+    int repairAggregates(@Param("id") Long id,
+                         @Param("expectedEnrollmentCount") int expectedEnrollmentCount,
+                         @Param("expectedRatingSum") long expectedRatingSum,
+                         @Param("expectedRatingCount") int expectedRatingCount,
+                         @Param("enrollmentCount") int enrollmentCount,
+                         @Param("ratingSum") long ratingSum,
+                         @Param("ratingCount") int ratingCount);
 }
\ No newline at end of file
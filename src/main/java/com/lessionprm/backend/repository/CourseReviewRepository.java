@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -28,4 +29,8 @@ public interface CourseReviewRepository extends JpaRepository<CourseReview, Long
     
     @Query("SELECT COUNT(cr) FROM CourseReview cr WHERE cr.course = :course")
     Long countByCourse(@Param("course") Course course);
+    
+    @Query("SELECT cr.course.id, SUM(cr.rating), COUNT(cr) FROM CourseReview cr " +
+           "WHERE cr.course.id IN :courseIds GROUP BY cr.course.id")
+    List<Object[]> sumRatingsByCourseIds(@Param("courseIds") List<Long> courseIds);
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package com.lessionprm.backend.repository;
 
+import com.lessionprm.backend.dto.course.CourseSummaryResponse;
 import com.lessionprm.backend.entity.Course;
 import com.lessionprm.backend.entity.Enrollment;
 import com.lessionprm.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -29,9 +31,22 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     
     boolean existsByUserAndCourse(User user, Course course);
     
+    boolean existsByCourse(Course course);
+    
+    @Query("SELECT e.course.id, COUNT(e) FROM Enrollment e WHERE e.course.id IN :courseIds GROUP BY e.course.id")
+    List<Object[]> countByCourseIds(@Param("courseIds") List<Long> courseIds);
+    
+    @Query("SELECT e.course.id, e.enrolledAt FROM Enrollment e WHERE e.enrolledAt >= :since")
+    List<Object[]> findEnrollmentTimesSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT COUNT(e) FROM Enrollment e WHERE e.enrolledAt BETWEEN :startDate AND :endDate")
     Long countEnrollments(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
+    @EntityGraph("Enrollment.courseAndInstructor")
     @Query("SELECT e FROM Enrollment e WHERE e.user = :user AND e.status = 'ACTIVE' ORDER BY e.enrolledAt DESC")
     List<Enrollment> findActiveEnrollmentsByUser(@Param("user") User user);
+    
+    @Query("SELECT " + CourseRepository.SUMMARY_FIELDS + " FROM Enrollment e JOIN e.course c LEFT JOIN c.instructor i " +
+           "WHERE e.user = :user AND e.status = 'ACTIVE' ORDER BY e.enrolledAt DESC")
+    List<CourseSummaryResponse> findActiveCourseSummariesByUser(@Param("user") User user);
 }
\ No newline at end of file
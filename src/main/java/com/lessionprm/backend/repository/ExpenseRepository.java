@@ -2,16 +2,20 @@ package com.lessionprm.backend.repository;
 
 import com.lessionprm.backend.entity.Expense;
 import com.lessionprm.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
@@ -45,4 +49,15 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     
     @Query("SELECT e.category, SUM(e.amount) FROM Expense e WHERE e.expenseDate BETWEEN :startDate AND :endDate GROUP BY e.category")
     List<Object[]> getExpensesByCategory(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Forward-only cursor for exports; the caller must close the stream inside a transaction
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.createdBy " +
+           "WHERE (:category IS NULL OR e.category = :category) AND COALESCE(e.expenseDate, e.createdAt) >= :from " +
+           "AND COALESCE(e.expenseDate, e.createdAt) < :to " +
+           "ORDER BY e.id")
+    Stream<Expense> streamForExport(@Param("category") String category,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
 }
\ No newline at end of file
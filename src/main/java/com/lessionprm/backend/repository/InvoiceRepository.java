@@ -2,42 +2,94 @@ package com.lessionprm.backend.repository;
 
 import com.lessionprm.backend.entity.Invoice;
 import com.lessionprm.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
     
+    @Override
+    @EntityGraph("Invoice.userAndCourse")
+    Page<Invoice> findAll(Pageable pageable);
+    
+    @EntityGraph("Invoice.userAndCourse")
     Page<Invoice> findByUser(User user, Pageable pageable);
     
+    @EntityGraph("Invoice.userAndCourse")
     Page<Invoice> findByStatus(Invoice.InvoiceStatus status, Pageable pageable);
     
+    @EntityGraph("Invoice.userAndCourse")
     Page<Invoice> findByUserAndStatus(User user, Invoice.InvoiceStatus status, Pageable pageable);
     
+    @EntityGraph("Invoice.userAndCourse")
+    @Query("SELECT i FROM Invoice i WHERE (:status IS NULL OR i.status = :status) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Invoice> findFirstSlice(@Param("status") Invoice.InvoiceStatus status, Pageable limit);
+    
+    @EntityGraph("Invoice.userAndCourse")
+    @Query("SELECT i FROM Invoice i WHERE (:status IS NULL OR i.status = :status) AND " +
+           "(i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Invoice> findSliceAfter(@Param("status") Invoice.InvoiceStatus status,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Pageable limit);
+    
+    @EntityGraph("Invoice.userAndCourse")
+    @Query("SELECT i FROM Invoice i WHERE i.user = :user AND (:status IS NULL OR i.status = :status) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Invoice> findFirstSliceByUser(@Param("user") User user,
+                                       @Param("status") Invoice.InvoiceStatus status,
+                                       Pageable limit);
+    
+    @EntityGraph("Invoice.userAndCourse")
+    @Query("SELECT i FROM Invoice i WHERE i.user = :user AND (:status IS NULL OR i.status = :status) AND " +
+           "(i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Invoice> findSliceByUserAfter(@Param("user") User user,
+                                       @Param("status") Invoice.InvoiceStatus status,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable limit);
+    
+    @EntityGraph("Invoice.userAndCourse")
     @Query("SELECT i FROM Invoice i WHERE i.createdAt BETWEEN :startDate AND :endDate")
     Page<Invoice> findByDateRange(@Param("startDate") LocalDateTime startDate, 
                                  @Param("endDate") LocalDateTime endDate, 
                                  Pageable pageable);
     
+    @Query("SELECT i.course.id, i.paidAt FROM Invoice i WHERE i.status = 'PAID' AND i.paidAt >= :since")
+    List<Object[]> findPaymentTimesSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.status = 'PAID' AND i.paidAt BETWEEN :startDate AND :endDate")
     BigDecimal getTotalRevenue(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status = 'PAID' AND i.paidAt BETWEEN :startDate AND :endDate")
     Long countPaidInvoices(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.status = 'PAID' AND YEAR(i.paidAt) = :year AND MONTH(i.paidAt) = :month")
-    BigDecimal getMonthlyRevenue(@Param("year") int year, @Param("month") int month);
-    
-    @Query("SELECT SUM(i.totalAmount) FROM Invoice i WHERE i.status = 'PAID' AND YEAR(i.paidAt) = :year")
-    BigDecimal getYearlyRevenue(@Param("year") int year);
+    // Forward-only cursor for exports; the caller must close the stream inside a transaction
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT i FROM Invoice i JOIN FETCH i.user JOIN FETCH i.course " +
+           "WHERE (:status IS NULL OR i.status = :status) AND i.createdAt >= :from AND i.createdAt < :to " +
+           "ORDER BY i.id")
+    Stream<Invoice> streamForExport(@Param("status") Invoice.InvoiceStatus status,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
 }
\ No newline at end of file
@@ -2,15 +2,21 @@ package com.lessionprm.backend.repository;
 
 import com.lessionprm.backend.entity.Invoice;
 import com.lessionprm.backend.entity.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -34,4 +40,17 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Long countSuccessfulPayments(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
     Optional<Payment> findByMomoTransId(String momoTransId);
+    
+    @Query("SELECT p FROM Payment p JOIN FETCH p.invoice i JOIN FETCH i.user JOIN FETCH i.course WHERE p.orderId IN :orderIds")
+    List<Payment> findWithInvoiceByOrderIdIn(@Param("orderIds") Collection<String> orderIds);
+    
+    // Forward-only cursor for exports; the caller must close the stream inside a transaction
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.invoice " +
+           "WHERE (:status IS NULL OR p.status = :status) AND p.createdAt >= :from AND p.createdAt < :to " +
+           "ORDER BY p.id")
+    Stream<Payment> streamForExport(@Param("status") Payment.PaymentStatus status,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
 }
\ No newline at end of file
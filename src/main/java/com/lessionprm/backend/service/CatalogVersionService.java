@@ -0,0 +1,121 @@
+package com.lessionprm.backend.service;
+
+import com.lessionprm.backend.dto.course.CourseResponse;
+import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// ETag / Last-Modified validators for the backend catalog endpoints. Versions come from updated_at, so all
+// instances agree on them; each is cached for ttlMillis and dropped on local writes so unchanged polls get
+// a 304 without touching the database.
+@Service
+public class CatalogVersionService {
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Value("${app.catalog.version-ttl-ms:30000}")
+    private long ttlMillis;
+
+    private final Map<Long, Version> courses = new ConcurrentHashMap<>();
+    private final AtomicReference<Version> catalog = new AtomicReference<>();
+
+    // Bumped by every committed change, so a version computed from data read before it is never cached
+    private final AtomicLong changes = new AtomicLong();
+
+    // Null when this instance has no fresh version for the course; the caller then loads it and calls record
+    public Version course(Long id) {
+        Version version = courses.get(id);
+        return version != null && !version.isExpired(ttlMillis) ? version : null;
+    }
+
+    // Read before loading a course and pass the result to record
+    public long changeCount() {
+        return changes.get();
+    }
+
+    public Version record(CourseResponse course, long changeCount) {
+        Long id = course.getId();
+        LocalDateTime modifiedAt = course.getUpdatedAt() != null ? course.getUpdatedAt() : course.getCreatedAt();
+        if (id == null || modifiedAt == null) {
+            return null;
+        }
+        long lastModified = toEpochMillis(modifiedAt);
+        Version version = new Version("W/\"course-" + id + "-" + lastModified + "\"", lastModified);
+        // Still right for the data the caller loaded, but not cached if the course changed since
+        if (changes.get() == changeCount) {
+            courses.put(id, version);
+            if (changes.get() != changeCount) {
+                courses.remove(id, version);
+            }
+        }
+        return version;
+    }
+
+    // Newest change plus row count, so deleting a course also moves the stamp
+    public Version catalog() {
+        Version current = catalog.get();
+        if (current == null || current.isExpired(ttlMillis)) {
+            long changeCount = changes.get();
+            List<Object[]> rows = courseRepository.findCatalogStamp();
+            Object[] row = rows.isEmpty() ? null : rows.get(0);
+            LocalDateTime modifiedAt = row != null ? (LocalDateTime) row[0] : null;
+            long count = row != null && row[1] != null ? ((Number) row[1]).longValue() : 0;
+            long lastModified = modifiedAt != null ? toEpochMillis(modifiedAt) : -1;
+            current = new Version("W/\"catalog-" + count + "-" + lastModified + "\"", lastModified);
+            catalog.set(current);
+            if (changes.get() != changeCount) {
+                catalog.compareAndSet(current, null);
+            }
+        }
+        return current;
+    }
+
+    public void courseChanged(Long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            changes.incrementAndGet();
+            if (id != null) {
+                courses.remove(id);
+            }
+            catalog.set(null);
+        });
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static final class Version {
+
+        private final String eTag;
+        private final long lastModified;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Version(String eTag, long lastModified) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        private boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.lessionprm.backend.service;
+
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.backend.repository.CourseReviewRepository;
+import com.lessionprm.backend.repository.EnrollmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class CourseAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseAggregateService.class);
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseReviewRepository courseReviewRepository;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // A full pass reads every course, so it runs at startup only when asked, e.g. once after the columns are added
+    @Value("${app.course-aggregates.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    // Existing rows start at zero when the columns are added; without the startup pass the nightly check fills them
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        int repaired = reconcile();
+        logger.info("Course aggregate backfill finished, {} courses updated", repaired);
+    }
+
+    @Scheduled(cron = "${app.course-aggregates.verify-cron:0 30 3 * * *}")
+    public void verify() {
+        int repaired = reconcile();
+        if (repaired > 0) {
+            logger.warn("Course aggregate check repaired {} courses with drifted counters", repaired);
+        }
+    }
+
+    public int reconcile() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int repaired = 0;
+        long lastId = 0;
+
+        // One transaction per chunk of 500 courses keeps locks short on large catalogs
+        while (true) {
+            List<Course> courses = courseRepository.findTop500ByIdGreaterThanOrderByIdAsc(lastId);
+            if (courses.isEmpty()) {
+                break;
+            }
+            Integer chunkRepaired = transactionTemplate.execute(status -> reconcileChunk(courses));
+            repaired += chunkRepaired != null ? chunkRepaired : 0;
+            lastId = courses.get(courses.size() - 1).getId();
+        }
+
+        return repaired;
+    }
+
+    private int reconcileChunk(List<Course> courses) {
+        List<Long> courseIds = courses.stream().map(Course::getId).collect(Collectors.toList());
+
+        Map<Long, Long> enrollmentCounts = new HashMap<>();
+        for (Object[] row : enrollmentRepository.countByCourseIds(courseIds)) {
+            enrollmentCounts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        Map<Long, long[]> ratings = new HashMap<>();
+        for (Object[] row : courseReviewRepository.sumRatingsByCourseIds(courseIds)) {
+            ratings.put((Long) row[0], new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+
+        int repaired = 0;
+        for (Course course : courses) {
+            int enrollmentCount = enrollmentCounts.getOrDefault(course.getId(), 0L).intValue();
+            long[] rating = ratings.getOrDefault(course.getId(), new long[] {0, 0});
+            long ratingSum = rating[0];
+            int ratingCount = (int) rating[1];
+
+            if (course.getEnrollmentCount() == enrollmentCount
+                    && course.getRatingSum() == ratingSum
+                    && course.getRatingCount() == ratingCount) {
+                continue;
+            }
+
+            logger.debug("Course {} aggregates drifted: enrollments {} -> {}, rating {}/{} -> {}/{}",
+                    course.getId(), course.getEnrollmentCount(), enrollmentCount,
+                    course.getRatingSum(), course.getRatingCount(), ratingSum, ratingCount);
+            if (courseRepository.repairAggregates(course.getId(),
+                    course.getEnrollmentCount(), course.getRatingSum(), course.getRatingCount(),
+                    enrollmentCount, ratingSum, ratingCount) > 0) {
+                catalogVersionService.courseChanged(course.getId());
+                repaired++;
+            }
+        }
+
+        return repaired;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,277 @@
+package com.lessionprm.backend.service;
+
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.backend.repository.EnrollmentRepository;
+import com.lessionprm.backend.repository.InvoiceRepository;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// In-memory leaderboards for the home page: all-time popular, trending and popular per category.
+// Each board is a sorted set, so reading the top k is a walk over the first k entries and every
+// enrollment or payment repositions a single course. A periodic reconcile rebuilds the boards from
+// the database to pick up anything missed, including events committed on other instances.
+@Service
+public class CourseLeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseLeaderboardService.class);
+
+    private static final double ENROLLMENT_WEIGHT = 1.0;
+    private static final double PAYMENT_WEIGHT = 2.0;
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingLong((Entry entry) -> entry.enrollments).reversed()
+            .thenComparing(entry -> entry.courseId, Comparator.reverseOrder());
+
+    private static final Comparator<Entry> BY_TRENDING_SCORE = Comparator
+            .comparingDouble((Entry entry) -> entry.trendingScore).reversed()
+            .thenComparing(entry -> entry.courseId, Comparator.reverseOrder());
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Value("${app.leaderboards.trending-half-life-hours:72}")
+    private double trendingHalfLifeHours;
+
+    @Value("${app.leaderboards.trending-window-days:14}")
+    private int trendingWindowDays;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Boards boards = new Boards(LocalDateTime.now());
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.leaderboards.reconcile-cron:0 */15 * * * *}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        LocalDateTime since = LocalDateTime.now().minusDays(trendingWindowDays);
+        Boards rebuilt = new Boards(since);
+
+        for (Object[] row : courseRepository.findLeaderboardRows()) {
+            rebuilt.entries.put((Long) row[0], new Entry((Long) row[0], (String) row[1],
+                    row[2] == Course.CourseStatus.PUBLISHED, ((Number) row[3]).longValue()));
+        }
+        for (Object[] row : enrollmentRepository.findEnrollmentTimesSince(since)) {
+            rebuilt.addTrendingScore((Long) row[0], ENROLLMENT_WEIGHT, (LocalDateTime) row[1]);
+        }
+        for (Object[] row : invoiceRepository.findPaymentTimesSince(since)) {
+            rebuilt.addTrendingScore((Long) row[0], PAYMENT_WEIGHT, (LocalDateTime) row[1]);
+        }
+        rebuilt.entries.values().forEach(rebuilt::link);
+
+        // Events committed between the reads above and this swap are picked up by the next run
+        lock.writeLock().lock();
+        try {
+            boards = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Course leaderboards rebuilt with {} courses", rebuilt.entries.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Long> topPopular(int limit) {
+        return top(currentBoards -> currentBoards.popular, limit);
+    }
+
+    public List<Long> topTrending(int limit) {
+        return top(currentBoards -> currentBoards.trending, limit);
+    }
+
+    public List<Long> topPopularInCategory(String category, int limit) {
+        return top(currentBoards -> currentBoards.popularByCategory.get(category), limit);
+    }
+
+    public void recordEnrollment(Long courseId) {
+        LocalDateTime enrolledAt = LocalDateTime.now();
+        update(courseId, entry -> {
+            entry.enrollments++;
+            entry.trendingScore += boards.decayedWeight(ENROLLMENT_WEIGHT, enrolledAt);
+        });
+    }
+
+    public void recordPayment(Long courseId) {
+        LocalDateTime paidAt = LocalDateTime.now();
+        update(courseId, entry -> entry.trendingScore += boards.decayedWeight(PAYMENT_WEIGHT, paidAt));
+    }
+
+    // Picks up category and status changes; counters are left as they are
+    public void track(Course course) {
+        Long courseId = course.getId();
+        String category = course.getCategory();
+        boolean published = course.getStatus() == Course.CourseStatus.PUBLISHED;
+
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Entry entry = boards.entries.get(courseId);
+                if (entry == null) {
+                    entry = new Entry(courseId, category, published, 0);
+                    boards.entries.put(courseId, entry);
+                } else {
+                    boards.unlink(entry);
+                    entry.category = category;
+                    entry.published = published;
+                }
+                boards.link(entry);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Entry entry = boards.entries.remove(courseId);
+                if (entry != null) {
+                    boards.unlink(entry);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private List<Long> top(Function<Boards, NavigableSet<Entry>> board, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> entries = board.apply(boards);
+            if (entries == null) {
+                return Collections.emptyList();
+            }
+            List<Long> courseIds = new ArrayList<>(limit);
+            for (Entry entry : entries) {
+                if (courseIds.size() == limit) {
+                    break;
+                }
+                courseIds.add(entry.courseId);
+            }
+            return courseIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Entries must leave the sorted sets before their scores change, or the sets lose track of them
+    private void update(Long courseId, Consumer<Entry> change) {
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Entry entry = boards.entries.get(courseId);
+                if (entry == null) {
+                    return;
+                }
+                boards.unlink(entry);
+                change.accept(entry);
+                boards.link(entry);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private final class Boards {
+
+        // Trending weights grow exponentially from this instant instead of decaying old scores in place,
+        // so ordering stays correct without touching every entry as time passes
+        private final LocalDateTime landmark;
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final NavigableSet<Entry> popular = new TreeSet<>(BY_POPULARITY);
+        private final NavigableSet<Entry> trending = new TreeSet<>(BY_TRENDING_SCORE);
+        private final Map<String, NavigableSet<Entry>> popularByCategory = new HashMap<>();
+
+        private Boards(LocalDateTime landmark) {
+            this.landmark = landmark;
+        }
+
+        private double decayedWeight(double weight, LocalDateTime at) {
+            double hours = Duration.between(landmark, at).toMillis() / 3_600_000.0;
+            return weight * Math.pow(2, hours / trendingHalfLifeHours);
+        }
+
+        private void addTrendingScore(Long courseId, double weight, LocalDateTime at) {
+            Entry entry = entries.get(courseId);
+            if (entry != null && at != null) {
+                entry.trendingScore += decayedWeight(weight, at);
+            }
+        }
+
+        private void link(Entry entry) {
+            if (!entry.published) {
+                return;
+            }
+            if (entry.enrollments > 0) {
+                popular.add(entry);
+                if (entry.category != null) {
+                    popularByCategory.computeIfAbsent(entry.category, key -> new TreeSet<>(BY_POPULARITY)).add(entry);
+                }
+            }
+            if (entry.trendingScore > 0) {
+                trending.add(entry);
+            }
+        }
+
+        private void unlink(Entry entry) {
+            popular.remove(entry);
+            trending.remove(entry);
+            NavigableSet<Entry> category = entry.category != null ? popularByCategory.get(entry.category) : null;
+            if (category != null) {
+                category.remove(entry);
+                if (category.isEmpty()) {
+                    popularByCategory.remove(entry.category);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final Long courseId;
+        private String category;
+        private boolean published;
+        private long enrollments;
+        private double trendingScore;
+
+        private Entry(Long courseId, String category, boolean published, long enrollments) {
+            this.courseId = courseId;
+            this.category = category;
+            this.published = published;
+            this.enrollments = enrollments;
+        }
+    }
+}
\ No newline at end of file
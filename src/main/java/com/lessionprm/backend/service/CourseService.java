@@ -1,11 +1,16 @@
 package com.lessionprm.backend.service;
 
+import com.lessionprm.backend.dto.CursorPage;
+import com.lessionprm.backend.dto.KeysetCursor;
 import com.lessionprm.backend.dto.course.CourseResponse;
+import com.lessionprm.backend.dto.course.CourseSummaryResponse;
 import com.lessionprm.backend.dto.course.CreateCourseRequest;
 import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.entity.CourseReview;
 import com.lessionprm.backend.entity.Enrollment;
 import com.lessionprm.backend.entity.User;
 import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.backend.repository.CourseReviewRepository;
 import com.lessionprm.backend.repository.EnrollmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -17,6 +22,9 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,24 +37,36 @@ public class CourseService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
-    public Page<CourseResponse> getAllCourses(int page, int size, String category, String search) {
+    @Autowired
+    private CourseReviewRepository courseReviewRepository;
+
+    @Autowired
+    private CourseLeaderboardService courseLeaderboardService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    public Page<CourseSummaryResponse> getAllCourses(int page, int size, String category, String search) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Course> coursePage;
-
-        if (StringUtils.hasText(category) && StringUtils.hasText(search)) {
-            coursePage = courseRepository.findByStatusAndCategoryAndSearchTerm(
-                Course.CourseStatus.PUBLISHED, category, search, pageable);
-        } else if (StringUtils.hasText(category)) {
-            coursePage = courseRepository.findByStatusAndCategory(
-                Course.CourseStatus.PUBLISHED, category, pageable);
-        } else if (StringUtils.hasText(search)) {
-            coursePage = courseRepository.findByStatusAndSearchTerm(
-                Course.CourseStatus.PUBLISHED, search, pageable);
-        } else {
-            coursePage = courseRepository.findByStatus(Course.CourseStatus.PUBLISHED, pageable);
-        }
+        return courseRepository.findSummaries(Course.CourseStatus.PUBLISHED,
+                StringUtils.hasText(category) ? category : null,
+                StringUtils.hasText(search) ? search : null,
+                pageable);
+    }
+
+    public CursorPage<CourseSummaryResponse> getCourseSlice(String after, int size, String category) {
+        int limit = CursorPage.clampSize(size);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        String categoryFilter = StringUtils.hasText(category) ? category : null;
 
-        return coursePage.map(CourseResponse::new);
+        List<CourseSummaryResponse> courses = cursor == null
+                ? courseRepository.findFirstSummarySliceByStatus(Course.CourseStatus.PUBLISHED, categoryFilter,
+                        PageRequest.of(0, limit + 1))
+                : courseRepository.findSummarySliceByStatusAfter(Course.CourseStatus.PUBLISHED, categoryFilter,
+                        cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+
+        return CursorPage.of(courses, limit,
+                course -> new KeysetCursor(course.getCreatedAt(), course.getId()), Function.identity());
     }
 
     public CourseResponse getCourseById(Long id) {
@@ -73,6 +93,8 @@ public class CourseService {
         course.setStatus(Course.CourseStatus.DRAFT);
 
         course = courseRepository.save(course);
+        courseLeaderboardService.track(course);
+        catalogVersionService.courseChanged(course.getId());
         return new CourseResponse(course);
     }
 
@@ -94,6 +116,8 @@ public class CourseService {
         course.setFeatured(request.isFeatured());
 
         course = courseRepository.save(course);
+        courseLeaderboardService.track(course);
+        catalogVersionService.courseChanged(course.getId());
         return new CourseResponse(course);
     }
 
@@ -102,11 +126,13 @@ public class CourseService {
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         
         // Check if course has enrollments
-        if (!course.getEnrollments().isEmpty()) {
+        if (enrollmentRepository.existsByCourse(course)) {
             throw new RuntimeException("Cannot delete course with enrollments");
         }
         
         courseRepository.delete(course);
+        courseLeaderboardService.remove(id);
+        catalogVersionService.courseChanged(id);
     }
 
     public void enrollInCourse(Long courseId, User user) {
@@ -124,46 +150,99 @@ public class CourseService {
 
         Enrollment enrollment = new Enrollment(user, course);
         enrollmentRepository.save(enrollment);
+        courseRepository.adjustEnrollmentCount(courseId, 1);
+        courseLeaderboardService.recordEnrollment(courseId);
+        catalogVersionService.courseChanged(courseId);
     }
 
-    public List<CourseResponse> getUserCourses(User user) {
-        List<Enrollment> enrollments = enrollmentRepository.findActiveEnrollmentsByUser(user);
-        return enrollments.stream()
-                .map(enrollment -> new CourseResponse(enrollment.getCourse()))
-                .collect(Collectors.toList());
+    public void addReview(Long courseId, User user, int rating, String comment) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        if (rating < 1 || rating > 5) {
+            throw new RuntimeException("Rating must be between 1 and 5");
+        }
+
+        if (!enrollmentRepository.existsByUserAndCourse(user, course)) {
+            throw new RuntimeException("You must enroll in the course before reviewing it");
+        }
+
+        // One review per user; a second submission replaces the first rating
+        CourseReview review = courseReviewRepository.findByUserAndCourse(user, course).orElse(null);
+        if (review == null) {
+            courseReviewRepository.save(new CourseReview(user, course, rating, comment));
+            courseRepository.adjustRating(courseId, rating, 1);
+        } else {
+            int previousRating = review.getRating();
+            review.setRating(rating);
+            review.setComment(comment);
+            courseReviewRepository.save(review);
+            courseRepository.adjustRating(courseId, rating - previousRating, 0);
+        }
+        catalogVersionService.courseChanged(courseId);
+    }
+
+    public List<CourseSummaryResponse> getUserCourses(User user) {
+        return enrollmentRepository.findActiveCourseSummariesByUser(user);
     }
 
     public List<String> getCategories() {
         return courseRepository.findDistinctCategories();
     }
 
-    public List<CourseResponse> getFeaturedCourses() {
+    public List<CourseSummaryResponse> getFeaturedCourses() {
         Pageable topFive = PageRequest.of(0, 5);
-        Page<Course> featuredCourses = courseRepository.findByFeatured(true, topFive);
-        return featuredCourses.stream()
-                .map(CourseResponse::new)
-                .collect(Collectors.toList());
+        return courseRepository.findSummariesByFeatured(true, topFive).getContent();
     }
 
-    public List<CourseResponse> getPopularCourses() {
-        Pageable topFive = PageRequest.of(0, 5);
-        List<Course> popularCourses = courseRepository.findMostPopularCourses(topFive);
-        return popularCourses.stream()
-                .map(CourseResponse::new)
-                .collect(Collectors.toList());
+    public List<CourseSummaryResponse> getPopularCourses() {
+        if (!courseLeaderboardService.isReady()) {
+            Pageable topFive = PageRequest.of(0, 5);
+            return courseRepository.findMostPopularSummaries(topFive);
+        }
+        return findAllInOrder(courseLeaderboardService.topPopular(5));
+    }
+
+    public List<CourseSummaryResponse> getPopularCourses(String category) {
+        if (!courseLeaderboardService.isReady()) {
+            Pageable topFive = PageRequest.of(0, 5);
+            return courseRepository.findMostPopularSummariesByCategory(category, topFive);
+        }
+        return findAllInOrder(courseLeaderboardService.topPopularInCategory(category, 5));
+    }
+
+    public List<CourseSummaryResponse> getTrendingCourses() {
+        if (!courseLeaderboardService.isReady()) {
+            return getPopularCourses();
+        }
+        return findAllInOrder(courseLeaderboardService.topTrending(5));
     }
 
     public void publishCourse(Long id) {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setStatus(Course.CourseStatus.PUBLISHED);
-        courseRepository.save(course);
+        courseLeaderboardService.track(courseRepository.save(course));
+        catalogVersionService.courseChanged(id);
     }
 
     public void archiveCourse(Long id) {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         course.setStatus(Course.CourseStatus.ARCHIVED);
-        courseRepository.save(course);
+        courseLeaderboardService.track(courseRepository.save(course));
+        catalogVersionService.courseChanged(id);
+    }
+
+    private List<CourseSummaryResponse> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CourseSummaryResponse> coursesById = courseRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(CourseSummaryResponse::getId, Function.identity()));
+        return ids.stream()
+                .map(coursesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.lessionprm.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.backend.entity.Expense;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.Payment;
+import com.lessionprm.backend.repository.ExpenseRepository;
+import com.lessionprm.backend.repository.InvoiceRepository;
+import com.lessionprm.backend.repository.PaymentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Writes invoices, payments and expenses to an output stream one row at a time. Rows come from a forward-only
+// cursor fetched in small batches and the persistence context is cleared every clearEvery rows, so memory use
+// does not depend on how many rows match.
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    // Open bounds stand in for a missing date filter so the queries need no null checks on dates
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final List<Column<Invoice>> INVOICE_COLUMNS = List.of(
+            new Column<>("id", Invoice::getId),
+            new Column<>("invoice_number", Invoice::getInvoiceNumber),
+            new Column<>("user_email", invoice -> invoice.getUser().getEmail()),
+            new Column<>("course_title", invoice -> invoice.getCourse().getTitle()),
+            new Column<>("amount", Invoice::getAmount),
+            new Column<>("discount_amount", Invoice::getDiscountAmount),
+            new Column<>("total_amount", Invoice::getTotalAmount),
+            new Column<>("status", Invoice::getStatus),
+            new Column<>("payment_method", Invoice::getPaymentMethod),
+            new Column<>("payment_transaction_id", Invoice::getPaymentTransactionId),
+            new Column<>("paid_at", Invoice::getPaidAt),
+            new Column<>("created_at", Invoice::getCreatedAt));
+
+    private static final List<Column<Payment>> PAYMENT_COLUMNS = List.of(
+            new Column<>("id", Payment::getId),
+            new Column<>("order_id", Payment::getOrderId),
+            new Column<>("invoice_number", payment -> payment.getInvoice() != null
+                    ? payment.getInvoice().getInvoiceNumber() : null),
+            new Column<>("amount", Payment::getAmount),
+            new Column<>("status", Payment::getStatus),
+            new Column<>("provider", Payment::getProvider),
+            new Column<>("momo_trans_id", Payment::getMomoTransId),
+            new Column<>("momo_message", Payment::getMomoMessage),
+            new Column<>("refund_amount", Payment::getRefundAmount),
+            new Column<>("refunded_at", Payment::getRefundedAt),
+            new Column<>("created_at", Payment::getCreatedAt),
+            new Column<>("updated_at", Payment::getUpdatedAt));
+
+    private static final List<Column<Expense>> EXPENSE_COLUMNS = List.of(
+            new Column<>("id", Expense::getId),
+            new Column<>("title", Expense::getTitle),
+            new Column<>("description", Expense::getDescription),
+            new Column<>("amount", Expense::getAmount),
+            new Column<>("category", Expense::getCategory),
+            new Column<>("expense_date", Expense::getExpenseDate),
+            new Column<>("created_by", expense -> expense.getCreatedBy() != null
+                    ? expense.getCreatedBy().getEmail() : null),
+            new Column<>("created_at", Expense::getCreatedAt));
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.exports.clear-every:1000}")
+    private int clearEvery;
+
+    public long writeInvoices(OutputStream out, Format format, LocalDateTime from, LocalDateTime to,
+                              Invoice.InvoiceStatus status) throws IOException {
+        try (Stream<Invoice> rows = invoiceRepository.streamForExport(status, lower(from), upper(to))) {
+            return write(out, format, INVOICE_COLUMNS, rows, "invoices");
+        }
+    }
+
+    public long writePayments(OutputStream out, Format format, LocalDateTime from, LocalDateTime to,
+                              Payment.PaymentStatus status) throws IOException {
+        try (Stream<Payment> rows = paymentRepository.streamForExport(status, lower(from), upper(to))) {
+            return write(out, format, PAYMENT_COLUMNS, rows, "payments");
+        }
+    }
+
+    public long writeExpenses(OutputStream out, Format format, LocalDateTime from, LocalDateTime to,
+                              String category) throws IOException {
+        try (Stream<Expense> rows = expenseRepository.streamForExport(category, lower(from), upper(to))) {
+            return write(out, format, EXPENSE_COLUMNS, rows, "expenses");
+        }
+    }
+
+    private <T> long write(OutputStream out, Format format, List<Column<T>> columns, Stream<T> rows, String what)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        long count = 0;
+        try (RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(objectMapper, out)) {
+            writer.header(columns);
+            Object[] values = new Object[columns.size()];
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T row = iterator.next();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = columns.get(i).value.apply(row);
+                }
+                writer.row(columns, values);
+
+                // Detaches what has been written so the persistence context never holds more than one batch
+                if (++count % clearEvery == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        logger.info("Exported {} {} as {} in {} ms", count, what, format, System.currentTimeMillis() - started);
+        return count;
+    }
+
+    private static LocalDateTime lower(LocalDateTime from) {
+        return from != null ? from : EARLIEST;
+    }
+
+    private static LocalDateTime upper(LocalDateTime to) {
+        return to != null ? to : LATEST;
+    }
+
+    static final class Column<T> {
+
+        private final String name;
+        private final Function<T, Object> value;
+
+        private Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    // Closing a writer flushes it but leaves the response stream open for the container
+    private interface RowWriter extends AutoCloseable {
+
+        void header(List<? extends Column<?>> columns) throws IOException;
+
+        void row(List<? extends Column<?>> columns, Object[] values) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void header(List<? extends Column<?>> columns) {
+        }
+
+        @Override
+        public void row(List<? extends Column<?>> columns, Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                generator.writeFieldName(columns.get(i).getName());
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Long number) {
+                    generator.writeNumber(number);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        }
+
+        @Override
+        public void header(List<? extends Column<?>> columns) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(columns.get(i).getName());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(List<? extends Column<?>> columns, Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writeField(values[i] instanceof BigDecimal decimal ? decimal.toPlainString() : values[i].toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: fields holding a separator, quote or line break are quoted and inner quotes doubled
+        private void writeField(String field) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < field.length() && !quote; i++) {
+                char c = field.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.lessionprm.backend.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lessionprm.backend.dto.payment.CreatePaymentRequest;
 import com.lessionprm.backend.dto.payment.MoMoCallbackRequest;
 import com.lessionprm.backend.dto.payment.MoMoPaymentResponse;
@@ -9,27 +8,33 @@ import com.lessionprm.backend.entity.*;
 import com.lessionprm.backend.repository.CourseRepository;
 import com.lessionprm.backend.repository.InvoiceRepository;
 import com.lessionprm.backend.repository.PaymentRepository;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
+import com.lessionprm.shared.dto.PaymentEvent;
+import com.lessionprm.shared.entity.PaymentCallback;
+import com.lessionprm.shared.exception.GatewayUnavailableException;
+import com.lessionprm.shared.service.IdGenerator;
+import com.lessionprm.shared.service.MoMoCallbackGuard;
+import com.lessionprm.shared.service.MoMoGatewayClient;
+import com.lessionprm.shared.service.MoMoSigner;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Transactional
@@ -65,47 +70,77 @@ public class MoMoPaymentService {
     private PaymentRepository paymentRepository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private MoMoGatewayClient moMoGatewayClient;
 
-    public MoMoPaymentResponse createPayment(CreatePaymentRequest request, User user) {
-        try {
-            // Find course
-            Course course = courseRepository.findById(request.getCourseId())
-                    .orElseThrow(() -> new RuntimeException("Course not found"));
-
-            // Create invoice
-            String invoiceNumber = generateInvoiceNumber();
-            Invoice invoice = new Invoice(invoiceNumber, user, course, request.getAmount(), request.getAmount());
-            invoice.setPaymentMethod(Invoice.PaymentMethod.MOMO);
-            invoice = invoiceRepository.save(invoice);
+    @Autowired
+    private MoMoSigner moMoSigner;
 
-            // Generate order ID and request ID
-            String orderId = generateOrderId();
-            String requestId = UUID.randomUUID().toString();
+    @Autowired
+    private MoMoCallbackGuard moMoCallbackGuard;
 
-            // Create payment record
-            Payment payment = new Payment(orderId, requestId, invoice, request.getAmount());
-            payment = paymentRepository.save(payment);
+    @Autowired
+    private PaymentCallbackPipeline paymentCallbackPipeline;
 
-            // Build MoMo request
-            Map<String, Object> momoRequest = buildMoMoRequest(orderId, requestId, request.getAmount(), request.getOrderInfo());
+    @Autowired
+    private IdGenerator idGenerator;
 
-            // Send request to MoMo
-            MoMoPaymentResponse response = sendMoMoRequest(momoRequest);
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
 
-            // Update payment with response details
-            payment.setSignature(response.getSignature());
-            paymentRepository.save(payment);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-            logger.info("Created MoMo payment request for order ID: {}", orderId);
-            return response;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Opts out of the class-level transaction: the invoice and payment are written in one short
+    // transaction, MoMo is called with no connection held, and the result is recorded in a second one
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<MoMoPaymentResponse> createPayment(CreatePaymentRequest request, User user) {
+        // Fails fast with a 503 instead of writing an order the gateway cannot take
+        moMoGatewayClient.checkAvailable();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Payment payment;
+        Map<String, Object> momoRequest;
+        try {
+            payment = transactionTemplate.execute(status -> createPendingPayment(request, user));
 
+            // Build MoMo request
+            momoRequest = buildMoMoRequest(payment.getOrderId(), payment.getRequestId(), request.getAmount(), request.getOrderInfo());
         } catch (Exception e) {
             logger.error("Error creating MoMo payment: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to create payment: " + e.getMessage());
         }
+
+        Long paymentId = payment.getId();
+        String orderId = payment.getOrderId();
+
+        // Send request to MoMo; the response is handled on the gateway client's callback pool
+        return moMoGatewayClient.post(endpoint, momoRequest, MoMoPaymentResponse.class)
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        logger.error("Error creating MoMo payment for order ID {}: {}", orderId, cause.getMessage(), cause);
+
+                        // Compensate so a timed-out order does not stay PENDING; a late IPN still wins in handleCallback
+                        transactionTemplate.executeWithoutResult(status ->
+                                markPaymentFailed(paymentId, "MoMo request failed: " + cause.getMessage()));
+                        if (cause instanceof GatewayUnavailableException unavailable) {
+                            throw unavailable;
+                        }
+                        throw new RuntimeException("Failed to create payment: " + cause.getMessage());
+                    }
+
+                    transactionTemplate.executeWithoutResult(status -> recordGatewayResult(paymentId, response));
+                    logger.info("Created MoMo payment request for order ID: {}", orderId);
+                    return response;
+                });
     }
 
+    // Only verifies and durably queues the IPN so MoMo is acknowledged at once; PaymentCallbackPipeline applies
+    // it in a batch. Retried notifications are dropped by MoMoCallbackGuard before they reach the queue.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void handleCallback(MoMoCallbackRequest callback) {
         try {
             // Verify signature
@@ -114,41 +149,12 @@ public class MoMoPaymentService {
                 throw new RuntimeException("Invalid signature");
             }
 
-            // Find payment
-            Payment payment = paymentRepository.findByOrderId(callback.getOrderId())
-                    .orElseThrow(() -> new RuntimeException("Payment not found"));
-
-            // Update payment status
-            if ("0".equals(callback.getResultCode())) {
-                // Success
-                payment.setStatus(Payment.PaymentStatus.SUCCESS);
-                payment.setMomoTransId(callback.getTransId());
-                
-                // Update invoice
-                Invoice invoice = payment.getInvoice();
-                invoice.setStatus(Invoice.InvoiceStatus.PAID);
-                invoice.setPaymentTransactionId(callback.getTransId());
-                invoice.setPaidAt(LocalDateTime.now());
-                invoiceRepository.save(invoice);
-
-                // Enroll user in course
-                enrollUserInCourse(invoice.getUser(), invoice.getCourse());
-
-                logger.info("Payment successful for order ID: {}", callback.getOrderId());
-            } else {
-                // Failed
-                payment.setStatus(Payment.PaymentStatus.FAILED);
-                payment.getInvoice().setStatus(Invoice.InvoiceStatus.FAILED);
-                invoiceRepository.save(payment.getInvoice());
-
-                logger.warn("Payment failed for order ID: {}, result code: {}", 
-                           callback.getOrderId(), callback.getResultCode());
+            PaymentCallback queued = moMoCallbackGuard.enqueue(
+                    callback.getOrderId(), callback.getTransId(), callback.getResultCode(), callback);
+            if (queued != null) {
+                paymentCallbackPipeline.submit(queued);
             }
 
-            payment.setMomoMessage(callback.getMessage());
-            payment.setMomoResponseTime(callback.getResponseTime());
-            paymentRepository.save(payment);
-
         } catch (Exception e) {
             logger.error("Error handling MoMo callback: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to handle callback: " + e.getMessage());
@@ -176,6 +182,68 @@ public class MoMoPaymentService {
         return response;
     }
 
+    private Payment createPendingPayment(CreatePaymentRequest request, User user) {
+        // Find course
+        Course course = courseRepository.findById(request.getCourseId())
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        // Create invoice
+        String invoiceNumber = generateInvoiceNumber();
+        Invoice invoice = new Invoice(invoiceNumber, user, course, request.getAmount(), request.getAmount());
+        invoice.setPaymentMethod(Invoice.PaymentMethod.MOMO);
+        invoice = invoiceRepository.save(invoice);
+
+        // Generate order ID and request ID
+        String orderId = generateOrderId();
+        String requestId = UUID.randomUUID().toString();
+
+        // Create payment record
+        return paymentRepository.save(new Payment(orderId, requestId, invoice, request.getAmount()));
+    }
+
+    private void recordGatewayResult(Long paymentId, MoMoPaymentResponse response) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found"));
+
+        if (!"0".equals(response.getResultCode())) {
+            logger.warn("MoMo rejected order ID: {}, result code: {}", payment.getOrderId(), response.getResultCode());
+            markPaymentFailed(payment, response.getMessage());
+            return;
+        }
+
+        // Update payment with response details
+        payment.setSignature(response.getSignature());
+        payment.setMomoMessage(response.getMessage());
+        payment.setMomoResponseTime(response.getResponseTime());
+        paymentRepository.save(payment);
+    }
+
+    private void markPaymentFailed(Long paymentId, String message) {
+        paymentRepository.findById(paymentId).ifPresent(payment -> markPaymentFailed(payment, message));
+    }
+
+    private void markPaymentFailed(Payment payment, String message) {
+        // The IPN may already have settled the payment while the gateway call was in flight
+        if (payment.getStatus() != Payment.PaymentStatus.PENDING) {
+            return;
+        }
+
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        payment.setMomoMessage(message);
+        paymentRepository.save(payment);
+
+        Invoice invoice = payment.getInvoice();
+        if (invoice.getStatus() == Invoice.InvoiceStatus.PENDING) {
+            eventPublisher.publishEvent(new InvoiceStatusChangedEvent(invoice.getId(),
+                    invoice.getCreatedAt(), invoice.getAmount(), invoice.getStatus(), Invoice.InvoiceStatus.FAILED));
+            invoice.setStatus(Invoice.InvoiceStatus.FAILED);
+            invoiceRepository.save(invoice);
+        }
+
+        paymentEventBroadcaster.publish(invoice.getUser().getId(), new PaymentEvent(PaymentEvent.Type.PAYMENT,
+                payment.getOrderId(), invoice.getCourse().getId(), payment.getStatus().name(), message));
+    }
+
     private Map<String, Object> buildMoMoRequest(String orderId, String requestId, BigDecimal amount, String orderInfo) {
         Map<String, Object> request = new HashMap<>();
         request.put("partnerCode", partnerCode);
@@ -197,98 +265,43 @@ public class MoMoPaymentService {
     }
 
     private String generateSignature(Map<String, Object> params) {
-        try {
-            String rawData = String.format(
-                "accessKey=%s&amount=%s&extraData=%s&ipnUrl=%s&orderId=%s&orderInfo=%s&partnerCode=%s&redirectUrl=%s&requestId=%s&requestType=%s",
-                accessKey,
-                params.get("amount"),
-                params.get("extraData"),
-                params.get("ipnUrl"),
-                params.get("orderId"),
-                params.get("orderInfo"),
-                params.get("partnerCode"),
-                params.get("redirectUrl"),
-                params.get("requestId"),
-                params.get("requestType")
-            );
-
-            return hmacSHA256(rawData, secretKey);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate signature", e);
-        }
+        return moMoSigner.builder()
+                .field("accessKey", accessKey)
+                .field("amount", params.get("amount"))
+                .field("extraData", params.get("extraData"))
+                .field("ipnUrl", params.get("ipnUrl"))
+                .field("orderId", params.get("orderId"))
+                .field("orderInfo", params.get("orderInfo"))
+                .field("partnerCode", params.get("partnerCode"))
+                .field("redirectUrl", params.get("redirectUrl"))
+                .field("requestId", params.get("requestId"))
+                .field("requestType", params.get("requestType"))
+                .sign(secretKey);
     }
 
     private boolean verifySignature(MoMoCallbackRequest callback) {
-        try {
-            String rawData = String.format(
-                "accessKey=%s&amount=%s&extraData=%s&message=%s&orderId=%s&orderInfo=%s&orderType=%s&partnerCode=%s&payType=%s&requestId=%s&responseTime=%s&resultCode=%s&transId=%s",
-                accessKey,
-                callback.getAmount(),
-                callback.getExtraData(),
-                callback.getMessage(),
-                callback.getOrderId(),
-                callback.getOrderInfo(),
-                callback.getOrderType(),
-                callback.getPartnerCode(),
-                callback.getPayType(),
-                callback.getRequestId(),
-                callback.getResponseTime(),
-                callback.getResultCode(),
-                callback.getTransId()
-            );
-
-            String expectedSignature = hmacSHA256(rawData, secretKey);
-            return expectedSignature.equals(callback.getSignature());
-        } catch (Exception e) {
-            logger.error("Error verifying signature: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    private MoMoPaymentResponse sendMoMoRequest(Map<String, Object> request) throws Exception {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost httpPost = new HttpPost(endpoint);
-            
-            String jsonRequest = objectMapper.writeValueAsString(request);
-            StringEntity entity = new StringEntity(jsonRequest, ContentType.APPLICATION_JSON);
-            httpPost.setEntity(entity);
-
-            String responseBody = httpClient.execute(httpPost, response -> {
-                return new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-            });
-
-            return objectMapper.readValue(responseBody, MoMoPaymentResponse.class);
-        }
-    }
-
-    private String hmacSHA256(String data, String key) throws Exception {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        mac.init(secretKeySpec);
-        byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
+        return moMoSigner.builder()
+                .field("accessKey", accessKey)
+                .field("amount", callback.getAmount())
+                .field("extraData", callback.getExtraData())
+                .field("message", callback.getMessage())
+                .field("orderId", callback.getOrderId())
+                .field("orderInfo", callback.getOrderInfo())
+                .field("orderType", callback.getOrderType())
+                .field("partnerCode", callback.getPartnerCode())
+                .field("payType", callback.getPayType())
+                .field("requestId", callback.getRequestId())
+                .field("responseTime", callback.getResponseTime())
+                .field("resultCode", callback.getResultCode())
+                .field("transId", callback.getTransId())
+                .verify(secretKey, callback.getSignature());
     }
 
     private String generateInvoiceNumber() {
-        return "INV" + System.currentTimeMillis();
+        return idGenerator.nextId("INV");
     }
 
     private String generateOrderId() {
-        return "ORDER" + System.currentTimeMillis();
-    }
-
-    private void enrollUserInCourse(User user, Course course) {
-        // This would be handled by the enrollment service
-        // For now, we'll just log it
-        logger.info("User {} enrolled in course {}", user.getEmail(), course.getTitle());
+        return idGenerator.nextId("ORDER");
     }
 }
\ No newline at end of file
@@ -0,0 +1,383 @@
+package com.lessionprm.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.backend.dto.payment.MoMoCallbackRequest;
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.Payment;
+import com.lessionprm.backend.entity.User;
+import com.lessionprm.backend.repository.PaymentRepository;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
+import com.lessionprm.shared.dto.PaymentEvent;
+import com.lessionprm.shared.entity.PaymentCallback;
+import com.lessionprm.shared.repository.PaymentCallbackRepository;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Applies queued MoMo IPNs in micro-batches. Ingestion only verifies and stores the callback, so MoMo gets its
+// acknowledgement without waiting on these lookups. Each worker owns a queue and callbacks are routed by orderId,
+// so notifications for one order are applied in arrival order. The payment_callbacks rows are the durable queue:
+// anything not yet PROCESSED is picked up again at startup and by the periodic recovery sweep.
+@Service
+public class PaymentCallbackPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCallbackPipeline.class);
+
+    @Autowired
+    private PaymentCallbackRepository paymentCallbackRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private CourseLeaderboardService courseLeaderboardService;
+
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.payments.callback-workers:2}")
+    private int workerCount;
+
+    @Value("${app.payments.callback-batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.payments.callback-queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.payments.callback-max-attempts:5}")
+    private int maxAttempts;
+
+    private final List<BlockingQueue<Long>> queues = new ArrayList<>();
+
+    // Ids currently sitting in a worker queue, so the recovery sweep does not queue them twice
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService workers;
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+
+    private Timer processingLag;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("payments.callbacks.queue.depth", queued, Set::size)
+                .description("MoMo callbacks waiting in the worker queues")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("payments.callbacks.batch.size")
+                .description("Callbacks applied per batch")
+                .register(registry);
+        processingLag = Timer.builder("payments.callbacks.lag")
+                .description("Time from receiving a callback to applying it")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "payment-callback-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (BlockingQueue<Long> queue : queues) {
+            workers.execute(() -> drain(queue));
+        }
+        recover();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    public void submit(PaymentCallback callback) {
+        offer(callback.getId(), callback.getOrderId());
+    }
+
+    // Rows left RECEIVED by a full queue, a failed attempt or a restart are queued again
+    @Scheduled(fixedDelayString = "${app.payments.callback-recovery-ms:30000}")
+    public void recover() {
+        if (!running) {
+            return;
+        }
+        List<PaymentCallback> pending = paymentCallbackRepository.findTop1000ByStatusOrderByIdAsc(PaymentCallback.Status.RECEIVED);
+        for (PaymentCallback callback : pending) {
+            offer(callback.getId(), callback.getOrderId());
+        }
+    }
+
+    private void offer(Long id, String orderId) {
+        if (!queued.add(id)) {
+            return;
+        }
+        BlockingQueue<Long> queue = queues.get(Math.floorMod(orderId.hashCode(), queues.size()));
+        if (!queue.offer(id)) {
+            queued.remove(id);
+            logger.warn("Payment callback queue is full, callback {} left for the recovery sweep", id);
+        }
+    }
+
+    private void drain(BlockingQueue<Long> queue) {
+        while (running) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // The rows stay RECEIVED and are retried by the recovery sweep
+                logger.error("Failed to apply a batch of {} payment callbacks: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.forEach(queued::remove);
+            }
+        }
+    }
+
+    // The batch is applied in one transaction. If it fails, each callback is retried in its own transaction so
+    // one bad row cannot roll back the others, and a row that keeps failing is marked FAILED after maxAttempts.
+    void process(List<Long> ids) {
+        int applied;
+        try {
+            applied = applyBatch(ids);
+        } catch (Exception e) {
+            logger.warn("Batch of {} payment callbacks failed, applying them one at a time: {}", ids.size(), e.getMessage());
+            applied = 0;
+            for (Long id : ids) {
+                try {
+                    applied += applyBatch(List.of(id));
+                } catch (Exception single) {
+                    recordFailedAttempt(id, single);
+                }
+            }
+        }
+
+        batchSizes.record(applied);
+    }
+
+    private int applyBatch(List<Long> ids) {
+        // Leaderboard and event stream updates run only once the transaction has committed
+        List<Runnable> afterCommit = new ArrayList<>();
+        Integer applied = new TransactionTemplate(transactionManager).execute(status -> {
+            List<PaymentCallback> callbacks = paymentCallbackRepository
+                    .findByIdInAndStatusOrderByIdAsc(ids, PaymentCallback.Status.RECEIVED);
+            if (callbacks.isEmpty()) {
+                return 0;
+            }
+
+            Set<String> orderIds = callbacks.stream().map(PaymentCallback::getOrderId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            Map<String, Payment> payments = paymentRepository.findWithInvoiceByOrderIdIn(orderIds).stream()
+                    .collect(Collectors.toMap(Payment::getOrderId, Function.identity()));
+
+            LocalDateTime now = LocalDateTime.now();
+            for (PaymentCallback callback : callbacks) {
+                Payment payment = payments.get(callback.getOrderId());
+                if (payment == null) {
+                    logger.warn("Payment not found for callback order ID: {}", callback.getOrderId());
+                    callback.setStatus(PaymentCallback.Status.FAILED);
+                } else {
+                    MoMoCallbackRequest request = read(callback);
+                    if (request != null) {
+                        apply(payment, request, afterCommit);
+                        callback.setStatus(PaymentCallback.Status.PROCESSED);
+                    } else {
+                        callback.setStatus(PaymentCallback.Status.FAILED);
+                    }
+                }
+                callback.setProcessedAt(now);
+                if (callback.getReceivedAt() != null) {
+                    processingLag.record(Duration.between(callback.getReceivedAt(), now));
+                }
+            }
+
+            // Dirty payments, invoices and callback rows are flushed together at commit; a concurrent
+            // sweep on another instance loses on the callback row version and rolls back
+            return callbacks.size();
+        });
+
+        for (Runnable sideEffect : afterCommit) {
+            try {
+                sideEffect.run();
+            } catch (Exception e) {
+                // The payments are already committed; a lost notification must not send them back for a retry
+                logger.error("Failed to run a payment side effect: {}", e.getMessage(), e);
+            }
+        }
+        return applied != null ? applied : 0;
+    }
+
+    private void recordFailedAttempt(Long id, Exception cause) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    paymentCallbackRepository.findById(id)
+                            .filter(callback -> callback.getStatus() == PaymentCallback.Status.RECEIVED)
+                            .ifPresent(callback -> {
+                                callback.setAttempts(callback.getAttempts() + 1);
+                                if (callback.getAttempts() >= maxAttempts) {
+                                    callback.setStatus(PaymentCallback.Status.FAILED);
+                                    callback.setProcessedAt(LocalDateTime.now());
+                                    logger.error("Giving up on payment callback {} for order ID {} after {} attempts: {}",
+                                            id, callback.getOrderId(), callback.getAttempts(), cause.getMessage(), cause);
+                                } else {
+                                    logger.warn("Payment callback {} failed on attempt {} of {}: {}",
+                                            id, callback.getAttempts(), maxAttempts, cause.getMessage());
+                                }
+                            }));
+        } catch (Exception e) {
+            // The row stays RECEIVED and is retried by the recovery sweep
+            logger.error("Failed to record an attempt for payment callback {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void apply(Payment payment, MoMoCallbackRequest callback, List<Runnable> afterCommit) {
+        boolean success = "0".equals(callback.getResultCode());
+        if (!canApply(payment, success)) {
+            // Each distinct (orderId, transId, resultCode) passes the guard, so a late failure or a second
+            // success for a settled payment lands here; it is recorded as processed without changing anything
+            logger.warn("Ignoring callback for order ID {} with result code {}: payment is {}, invoice is {}",
+                    callback.getOrderId(), callback.getResultCode(), payment.getStatus(), payment.getInvoice().getStatus());
+            return;
+        }
+
+        // Update payment status
+        if (success) {
+            // Success
+            payment.setStatus(Payment.PaymentStatus.SUCCESS);
+            payment.setMomoTransId(callback.getTransId());
+
+            // Update invoice
+            Invoice invoice = payment.getInvoice();
+            eventPublisher.publishEvent(new InvoiceStatusChangedEvent(invoice.getId(),
+                    invoice.getCreatedAt(), invoice.getAmount(), invoice.getStatus(), Invoice.InvoiceStatus.PAID));
+            invoice.setStatus(Invoice.InvoiceStatus.PAID);
+            invoice.setPaymentTransactionId(callback.getTransId());
+            invoice.setPaidAt(LocalDateTime.now());
+
+            // Enroll user in course
+            enrollUserInCourse(invoice.getUser(), invoice.getCourse());
+
+            // Sent to the buyer's open event streams once the batch commits
+            Long userId = invoice.getUser().getId();
+            Long courseId = invoice.getCourse().getId();
+            PaymentEvent paid = new PaymentEvent(PaymentEvent.Type.PAYMENT,
+                    callback.getOrderId(), courseId, payment.getStatus().name(), callback.getMessage());
+            PaymentEvent enrolled = new PaymentEvent(PaymentEvent.Type.ENROLLMENT,
+                    callback.getOrderId(), courseId, "ENROLLED", "Enrolled in course");
+            afterCommit.add(() -> courseLeaderboardService.recordPayment(courseId));
+            afterCommit.add(() -> paymentEventBroadcaster.publish(userId, paid));
+            afterCommit.add(() -> paymentEventBroadcaster.publish(userId, enrolled));
+
+            logger.info("Payment successful for order ID: {}", callback.getOrderId());
+        } else {
+            // Failed
+            payment.setStatus(Payment.PaymentStatus.FAILED);
+            Invoice invoice = payment.getInvoice();
+            eventPublisher.publishEvent(new InvoiceStatusChangedEvent(invoice.getId(),
+                    invoice.getCreatedAt(), invoice.getAmount(), invoice.getStatus(), Invoice.InvoiceStatus.FAILED));
+            invoice.setStatus(Invoice.InvoiceStatus.FAILED);
+            Long userId = invoice.getUser().getId();
+            PaymentEvent failed = new PaymentEvent(PaymentEvent.Type.PAYMENT,
+                    callback.getOrderId(), invoice.getCourse().getId(), payment.getStatus().name(), callback.getMessage());
+            afterCommit.add(() -> paymentEventBroadcaster.publish(userId, failed));
+
+            logger.warn("Payment failed for order ID: {}, result code: {}",
+                       callback.getOrderId(), callback.getResultCode());
+        }
+
+        payment.setMomoMessage(callback.getMessage());
+        payment.setMomoResponseTime(callback.getResponseTime());
+    }
+
+    // PENDING settles either way; a success may still follow a failure (e.g. after a gateway timeout was
+    // recorded as FAILED); anything already paid, refunded or cancelled is final
+    private static boolean canApply(Payment payment, boolean success) {
+        Payment.PaymentStatus paymentStatus = payment.getStatus();
+        Invoice.InvoiceStatus invoiceStatus = payment.getInvoice().getStatus();
+        if (success) {
+            return (paymentStatus == Payment.PaymentStatus.PENDING || paymentStatus == Payment.PaymentStatus.FAILED)
+                    && (invoiceStatus == Invoice.InvoiceStatus.PENDING || invoiceStatus == Invoice.InvoiceStatus.FAILED);
+        }
+        return paymentStatus == Payment.PaymentStatus.PENDING && invoiceStatus == Invoice.InvoiceStatus.PENDING;
+    }
+
+    // An unreadable row is marked FAILED instead of failing the whole batch on every retry
+    private MoMoCallbackRequest read(PaymentCallback callback) {
+        try {
+            return objectMapper.readValue(callback.getPayload(), MoMoCallbackRequest.class);
+        } catch (Exception e) {
+            logger.error("Unreadable queued callback {} for order ID {}: {}", callback.getId(), callback.getOrderId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void enrollUserInCourse(User user, Course course) {
+        // This would be handled by the enrollment service
+        // For now, we'll just log it
+        logger.info("User {} enrolled in course {}", user.getEmail(), course.getTitle());
+    }
+}
\ No newline at end of file
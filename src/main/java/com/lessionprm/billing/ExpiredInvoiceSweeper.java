@@ -0,0 +1,158 @@
+package com.lessionprm.billing;
+
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.service.interfaces.SeatReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cancels PENDING and FAILED invoices past their expiry with bulk updates over id ranges, one short
+// transaction per chunk, so a large backlog never sits in memory or holds locks for the whole sweep.
+// Seats are released per course with the exact number of PENDING rows each chunk cancelled.
+@Component
+public class ExpiredInvoiceSweeper {
+    
+    public static final String EXPIRY_NOTE = "Automatically cancelled due to expiry";
+    
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    
+    @Autowired
+    private SeatReservationService seatReservationService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Value("${app.invoices.expiry-hours:24}")
+    private long expiryHours;
+    
+    @Value("${app.invoices.sweep-chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.invoices.sweep-throttle-ms:50}")
+    private long throttleMillis;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    // Last id handled by the sweep in progress, or by the last one to finish
+    private final AtomicLong progress = new AtomicLong();
+    
+    private Counter cancelledInvoices;
+    
+    private Counter releasedSeats;
+    
+    private Counter chunks;
+    
+    private Timer sweeps;
+    
+    @PostConstruct
+    public void init() {
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        cancelledInvoices = Counter.builder("invoices.expiry.cancelled")
+                .description("Expired invoices cancelled by the sweeper")
+                .register(registry);
+        releasedSeats = Counter.builder("invoices.expiry.seats.released")
+                .description("Seats released by cancelling expired PENDING invoices")
+                .register(registry);
+        chunks = Counter.builder("invoices.expiry.chunks")
+                .description("Id ranges processed by the sweeper")
+                .register(registry);
+        sweeps = Timer.builder("invoices.expiry.sweep")
+                .description("Duration of a full expired invoice sweep")
+                .register(registry);
+        Gauge.builder("invoices.expiry.progress", progress, AtomicLong::get)
+                .description("Last invoice id reached by the expired invoice sweep")
+                .register(registry);
+    }
+    
+    @Scheduled(cron = "${app.invoices.sweep-cron:0 */10 * * * *}")
+    public void scheduledSweep() {
+        sweep();
+    }
+    
+    // Returns the number of invoices cancelled, or -1 when a sweep is already running on this instance.
+    // Sweeps on other instances are harmless: every update re-checks status, so a row is only cancelled once.
+    public int sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        
+        Timer.Sample sample = Timer.start();
+        try {
+            LocalDateTime expiryDate = LocalDateTime.now().minusHours(expiryHours);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            int total = 0;
+            
+            // Jump straight to the next expired id so gaps between old invoices cost one index seek
+            Long fromId = invoiceRepository.findNextExpiredInvoiceId(0L, expiryDate);
+            while (fromId != null) {
+                long toId = fromId + chunkSize - 1;
+                Long chunkStart = fromId;
+                Integer cancelled = transactionTemplate.execute(status -> cancelChunk(chunkStart, toId, expiryDate));
+                total += cancelled != null ? cancelled : 0;
+                progress.set(toId);
+                chunks.increment();
+                
+                fromId = invoiceRepository.findNextExpiredInvoiceId(toId, expiryDate);
+                if (fromId != null && !throttle()) {
+                    break;
+                }
+            }
+            return total;
+        } finally {
+            sample.stop(sweeps);
+            running.set(false);
+        }
+    }
+    
+    private int cancelChunk(Long fromId, Long toId, LocalDateTime expiryDate) {
+        int cancelled = 0;
+        
+        // One update per course keeps the count of PENDING rows that actually flipped exact,
+        // even if a payment lands between the lookup and the update
+        for (Long courseId : invoiceRepository.findExpiredPendingCourseIds(fromId, toId, expiryDate)) {
+            int released = invoiceRepository.cancelExpiredPendingInvoices(
+                    fromId, toId, expiryDate, courseId, Invoice.Status.CANCELLED, EXPIRY_NOTE);
+            seatReservationService.releaseSeats(courseId, released);
+            releasedSeats.increment(released);
+            cancelled += released;
+        }
+        
+        cancelled += invoiceRepository.cancelExpiredFailedInvoices(
+                fromId, toId, expiryDate, Invoice.Status.CANCELLED, EXPIRY_NOTE);
+        cancelledInvoices.increment(cancelled);
+        return cancelled;
+    }
+    
+    // Leaves room between chunks for regular traffic on the invoices table
+    private boolean throttle() {
+        if (throttleMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(throttleMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
\ No newline at end of file
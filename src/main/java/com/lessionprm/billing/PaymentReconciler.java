@@ -0,0 +1,214 @@
+package com.lessionprm.billing;
+
+import com.lessionprm.config.MoMoConfig;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.service.interfaces.PaymentService;
+import com.lessionprm.shared.service.MoMoGatewayClient;
+import com.lessionprm.shared.service.MoMoSigner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Settles MoMo invoices whose IPN never arrived. PENDING invoices older than reconcileAfterMinutes are read in
+// keyset pages and checked against MoMo's transaction-status API, with at most `concurrency` queries in flight
+// and no more than ratePerSecond started per second. Success and terminal failure answers are applied through
+// PaymentService.handleMoMoCallback, so they get the same dedup and state changes as a real notification.
+@Component
+public class PaymentReconciler {
+    
+    // MoMo result codes for a transaction that can still complete
+    private static final Set<String> IN_PROGRESS = Set.of("1000", "7000", "7002", "9000");
+    
+    // MoMo result codes for a transaction that ended without payment. Anything else (system or signature errors,
+    // an error body without a resultCode, a 5xx answer) says nothing about the payment and counts as ERROR.
+    private static final Set<String> FAILED = Set.of("1001", "1002", "1003", "1004", "1005", "1006", "1007",
+            "1017", "1026", "4001", "4002", "4100");
+    
+    public enum Outcome {
+        FIXED, PENDING, MISMATCHED, ERROR
+    }
+    
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    
+    @Autowired
+    private PaymentService paymentService;
+    
+    @Autowired
+    private MoMoGatewayClient moMoGatewayClient;
+    
+    @Autowired
+    private MoMoSigner moMoSigner;
+    
+    @Autowired
+    private MoMoConfig moMoConfig;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Value("${app.payments.reconcile-after-minutes:15}")
+    private long reconcileAfterMinutes;
+    
+    @Value("${app.payments.reconcile-page-size:200}")
+    private int pageSize;
+    
+    @Value("${app.payments.reconcile-concurrency:8}")
+    private int concurrency;
+    
+    @Value("${app.payments.reconcile-rate-per-second:20}")
+    private int ratePerSecond;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final Map<Outcome, Counter> outcomes = new HashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("payments.reconciliation.invoices")
+                    .description("Pending MoMo invoices checked against the gateway, by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+    
+    @Scheduled(cron = "${app.payments.reconcile-cron:0 */5 * * * *}")
+    public void scheduledRun() {
+        run();
+    }
+    
+    // Counts per outcome for this run, or null when a run is already in progress on this instance
+    public Map<Outcome, Integer> run() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        
+        Map<Outcome, AtomicInteger> counts = new HashMap<>();
+        for (Outcome outcome : Outcome.values()) {
+            counts.put(outcome, new AtomicInteger());
+        }
+        
+        Semaphore inFlight = new Semaphore(concurrency);
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(ratePerSecond, 1);
+        long nextStart = System.nanoTime();
+        try {
+            LocalDateTime createdBefore = LocalDateTime.now().minusMinutes(reconcileAfterMinutes);
+            Long afterId = 0L;
+            List<Invoice> page;
+            do {
+                page = invoiceRepository.findPendingMoMoInvoices(afterId, createdBefore, PageRequest.of(0, pageSize));
+                for (Invoice invoice : page) {
+                    afterId = invoice.getId();
+                    inFlight.acquire();
+                    nextStart = pace(nextStart, interval);
+                    CompletableFuture<Outcome> checked;
+                    try {
+                        checked = query(invoice);
+                    } catch (RuntimeException e) {
+                        checked = CompletableFuture.failedFuture(e);
+                    }
+                    checked.whenComplete((outcome, ex) -> {
+                        Outcome result = ex != null ? Outcome.ERROR : outcome;
+                        counts.get(result).incrementAndGet();
+                        outcomes.get(result).increment();
+                        inFlight.release();
+                    });
+                }
+            } while (page.size() == pageSize);
+            
+            // Wait for the last queries before reporting
+            inFlight.acquire(concurrency);
+            inFlight.release(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+        
+        Map<Outcome, Integer> result = new HashMap<>();
+        counts.forEach((outcome, count) -> result.put(outcome, count.get()));
+        return result;
+    }
+    
+    private CompletableFuture<Outcome> query(Invoice invoice) {
+        String orderId = invoice.getOrderId();
+        String requestId = "query_" + orderId + "_" + System.currentTimeMillis();
+        
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("partnerCode", moMoConfig.getPartnerCode());
+        requestBody.put("requestId", requestId);
+        requestBody.put("orderId", orderId);
+        requestBody.put("lang", "en");
+        requestBody.put("signature", moMoSigner.builder()
+                .field("accessKey", moMoConfig.getAccessKey())
+                .field("orderId", orderId)
+                .field("partnerCode", moMoConfig.getPartnerCode())
+                .field("requestId", requestId)
+                .sign(moMoConfig.getSecretKey()));
+        
+        String queryEndpoint = moMoConfig.getEndpoint().replace("/create", "/query");
+        return moMoGatewayClient.post(queryEndpoint, requestBody).thenApply(response -> reconcile(invoice, response));
+    }
+    
+    private Outcome reconcile(Invoice invoice, Map<String, Object> response) {
+        String resultCode = String.valueOf(response.get("resultCode"));
+        if (IN_PROGRESS.contains(resultCode)) {
+            return Outcome.PENDING;
+        }
+        if (!"0".equals(resultCode) && !FAILED.contains(resultCode)) {
+            return Outcome.ERROR;
+        }
+        
+        // A success for a different amount is left for a person to look at rather than marked paid
+        if ("0".equals(resultCode)) {
+            Object amount = response.get("amount");
+            if (!(amount instanceof Number) || ((Number) amount).longValue() != invoice.getAmount().longValue()) {
+                return Outcome.MISMATCHED;
+            }
+        }
+        
+        Map<String, String> params = new HashMap<>();
+        params.put("orderId", invoice.getOrderId());
+        params.put("resultCode", resultCode);
+        if (response.get("transId") != null) {
+            params.put("transId", String.valueOf(response.get("transId")));
+        }
+        params.put("message", String.valueOf(response.get("message")));
+        paymentService.handleMoMoCallback(params);
+        return Outcome.FIXED;
+    }
+    
+    // Spaces query starts at least `interval` apart
+    private static long pace(long nextStart, long interval) throws InterruptedException {
+        long now = System.nanoTime();
+        while (now < nextStart) {
+            LockSupport.parkNanos(nextStart - now);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            now = System.nanoTime();
+        }
+        return Math.max(nextStart, now) + interval;
+    }
+}
\ No newline at end of file
@@ -1,21 +1,30 @@
 package com.lessionprm.config;
 
+import com.lessionprm.shared.config.SharedPersistence;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
 import java.util.Properties;
 
 @Configuration
-@EnableJpaRepositories(basePackages = "com.lessionprm.repository")
+@EnableJpaRepositories(basePackages = {"com.lessionprm.repository", SharedPersistence.REPOSITORY_PACKAGE})
 @EnableTransactionManagement
 public class DatabaseConfig {
     
@@ -31,21 +40,54 @@ public class DatabaseConfig {
     @Value("${spring.datasource.driver-class-name}")
     private String databaseDriver;
     
+    // Optional read replica; when blank every transaction uses the primary pool
+    @Value("${spring.datasource.replica.url:}")
+    private String replicaUrl;
+    
+    @Value("${spring.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+    
+    @Value("${spring.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariConfig primaryPoolConfig() {
+        return new HikariConfig();
+    }
+    
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariConfig replicaPoolConfig() {
+        return new HikariConfig();
+    }
+    
     @Bean
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(databaseDriver);
-        dataSource.setUrl(databaseUrl);
-        dataSource.setUsername(databaseUsername);
-        dataSource.setPassword(databasePassword);
-        return dataSource;
+        HikariDataSource primary = createPool(primaryPoolConfig(), "primary",
+                databaseUrl, databaseUsername, databasePassword);
+        
+        if (!StringUtils.hasText(replicaUrl)) {
+            return primary;
+        }
+        
+        HikariConfig replicaConfig = replicaPoolConfig();
+        replicaConfig.setReadOnly(true);
+        HikariDataSource replica = createPool(replicaConfig, "replica",
+                replicaUrl, replicaUsername, replicaPassword);
+        
+        return new ReadWriteRoutingDataSource(primary, replica);
     }
     
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
-        em.setPackagesToScan("com.lessionprm.entity");
+        // Defer connection checkout to the first statement so the read-only flag is known when routing
+        em.setDataSource(new LazyConnectionDataSourceProxy(dataSource()));
+        em.setPackagesToScan("com.lessionprm.entity", SharedPersistence.ENTITY_PACKAGE);
         
         HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         em.setJpaVendorAdapter(vendorAdapter);
@@ -61,6 +103,21 @@ public class DatabaseConfig {
         return transactionManager;
     }
     
+    private HikariDataSource createPool(HikariConfig config, String name, String url, String username, String password) {
+        config.setPoolName("lessionprm-" + name);
+        config.setDriverClassName(databaseDriver);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        
+        return new HikariDataSource(config);
+    }
+    
     private Properties hibernateProperties() {
         Properties properties = new Properties();
         properties.put("hibernate.dialect", "org.hibernate.dialect.SQLServerDialect");
@@ -70,7 +127,6 @@ public class DatabaseConfig {
         properties.put("hibernate.use_sql_comments", "true");
         properties.put("hibernate.jdbc.batch_size", "20");
         properties.put("hibernate.jdbc.fetch_size", "50");
-        properties.put("hibernate.connection.pool_size", "10");
         return properties;
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.lessionprm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.Map;
+
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        // Only @Transactional(readOnly = true) work goes to the replica, everything else stays on the primary
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+    
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+    
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+}
\ No newline at end of file
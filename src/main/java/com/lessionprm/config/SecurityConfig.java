@@ -3,6 +3,7 @@ package com.lessionprm.config;
 import com.lessionprm.security.CustomUserDetailsService;
 import com.lessionprm.security.JwtAuthenticationEntryPoint;
 import com.lessionprm.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -86,12 +87,14 @@ public class SecurityConfig {
             .sessionManagement(session -> 
                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
+                // Async payment responses are re-dispatched after the original request was authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // Public endpoints
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/courses", "/courses/{id}").permitAll()
                 .requestMatchers("/courses/search", "/courses/category/**", "/courses/instructor/**").permitAll()
                 .requestMatchers("/courses/level/**", "/courses/price-range", "/courses/categories").permitAll()
-                .requestMatchers("/courses/instructors", "/courses/available").permitAll()
+                .requestMatchers("/courses/instructors", "/courses/available", "/courses/facets").permitAll()
                 .requestMatchers("/payment/momo/callback").permitAll()
                 
                 // Swagger/OpenAPI endpoints
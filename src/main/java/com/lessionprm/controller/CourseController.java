@@ -1,5 +1,8 @@
 package com.lessionprm.controller;
 
+import com.lessionprm.catalog.CatalogVersionRegistry;
+import com.lessionprm.dto.response.CourseFacetsResponse;
+import com.lessionprm.dto.response.CourseSummaryResponse;
 import com.lessionprm.entity.Course;
 import com.lessionprm.exception.ResourceNotFoundException;
 import com.lessionprm.service.interfaces.CourseService;
@@ -8,9 +11,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -24,18 +29,46 @@ public class CourseController {
     @Autowired
     private CourseService courseService;
     
+    @Autowired
+    private CatalogVersionRegistry catalogVersionRegistry;
+    
     @GetMapping
-    @Operation(summary = "Get all active courses", description = "Get all active courses with pagination")
-    public ResponseEntity<Page<Course>> getAllActiveCourses(Pageable pageable) {
-        Page<Course> courses = courseService.getActiveCourses(pageable);
+    @Operation(summary = "Get all active courses", description = "Get all active courses with pagination, or keyset slices when \"after\" is given")
+    public ResponseEntity<?> getAllActiveCourses(
+            Pageable pageable,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
+        // Any "after" parameter (empty for the first slice) switches to cursor mode without a total count
+        if (after != null) {
+            return ResponseEntity.ok(courseService.getActiveCourses(after, size));
+        }
+        Page<CourseSummaryResponse> courses = courseService.getActiveCourses(pageable);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/{id}")
     @Operation(summary = "Get course by ID", description = "Get course details by ID")
-    public ResponseEntity<Course> getCourseById(@PathVariable Long id) {
-        Course course = courseService.getCourseById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + id));
+    public ResponseEntity<Course> getCourseById(@PathVariable Long id, WebRequest request) {
+        // A fresh cached version answers repeat polls without loading the course
+        CatalogVersionRegistry.Version version = catalogVersionRegistry.course(id);
+        Course course = null;
+        if (version == null) {
+            long changeCount = catalogVersionRegistry.changeCount();
+            course = courseService.getCourseById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + id));
+            version = catalogVersionRegistry.record(course, changeCount);
+        }
+        if (version != null && request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return notModified();
+        }
+        if (course == null) {
+            course = courseService.getCourseById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + id));
+        }
         return ResponseEntity.ok(course);
     }
     
@@ -80,65 +113,82 @@ public class CourseController {
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Search courses", description = "Search courses by keyword")
-    public ResponseEntity<Page<Course>> searchCourses(
+    @Operation(summary = "Search courses",
+               description = "Search courses by keyword, most relevant first unless a sort is given")
+    public ResponseEntity<Page<CourseSummaryResponse>> searchCourses(
             @RequestParam String keyword, 
             Pageable pageable) {
-        Page<Course> courses = courseService.searchCourses(keyword, pageable);
+        Page<CourseSummaryResponse> courses = courseService.searchCourses(keyword, pageable);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/category/{category}")
     @Operation(summary = "Get courses by category", description = "Get courses by category")
-    public ResponseEntity<Page<Course>> getCoursesByCategory(
+    public ResponseEntity<Page<CourseSummaryResponse>> getCoursesByCategory(
             @PathVariable String category, 
             Pageable pageable) {
-        Page<Course> courses = courseService.getCoursesByCategory(category, pageable);
+        Page<CourseSummaryResponse> courses = courseService.getCoursesByCategory(category, pageable);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/instructor/{instructor}")
     @Operation(summary = "Get courses by instructor", description = "Get courses by instructor")
-    public ResponseEntity<List<Course>> getCoursesByInstructor(@PathVariable String instructor) {
-        List<Course> courses = courseService.getCoursesByInstructor(instructor);
+    public ResponseEntity<List<CourseSummaryResponse>> getCoursesByInstructor(@PathVariable String instructor) {
+        List<CourseSummaryResponse> courses = courseService.getCoursesByInstructor(instructor);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/level/{level}")
     @Operation(summary = "Get courses by level", description = "Get courses by level")
-    public ResponseEntity<List<Course>> getCoursesByLevel(@PathVariable Course.Level level) {
-        List<Course> courses = courseService.getCoursesByLevel(level);
+    public ResponseEntity<List<CourseSummaryResponse>> getCoursesByLevel(@PathVariable Course.Level level) {
+        List<CourseSummaryResponse> courses = courseService.getCoursesByLevel(level);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/price-range")
     @Operation(summary = "Get courses by price range", description = "Get courses by price range")
-    public ResponseEntity<Page<Course>> getCoursesByPriceRange(
+    public ResponseEntity<Page<CourseSummaryResponse>> getCoursesByPriceRange(
             @RequestParam BigDecimal minPrice,
             @RequestParam BigDecimal maxPrice,
             Pageable pageable) {
-        Page<Course> courses = courseService.getCoursesByPriceRange(minPrice, maxPrice, pageable);
+        Page<CourseSummaryResponse> courses = courseService.getCoursesByPriceRange(minPrice, maxPrice, pageable);
         return ResponseEntity.ok(courses);
     }
     
     @GetMapping("/categories")
     @Operation(summary = "Get all categories", description = "Get all available course categories")
-    public ResponseEntity<List<String>> getAllCategories() {
+    public ResponseEntity<List<String>> getAllCategories(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
         List<String> categories = courseService.getAllCategories();
         return ResponseEntity.ok(categories);
     }
     
     @GetMapping("/instructors")
     @Operation(summary = "Get all instructors", description = "Get all course instructors")
-    public ResponseEntity<List<String>> getAllInstructors() {
+    public ResponseEntity<List<String>> getAllInstructors(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
         List<String> instructors = courseService.getAllInstructors();
         return ResponseEntity.ok(instructors);
     }
     
+    @GetMapping("/facets")
+    @Operation(summary = "Get catalog facets", description = "Get course counts per category, instructor, level and price range")
+    public ResponseEntity<CourseFacetsResponse> getCourseFacets(WebRequest request) {
+        if (isCatalogNotModified(request)) {
+            return notModified();
+        }
+        CourseFacetsResponse facets = courseService.getCourseFacets();
+        return ResponseEntity.ok(facets);
+    }
+    
     @GetMapping("/available")
     @Operation(summary = "Get available courses", description = "Get courses with available spots")
-    public ResponseEntity<List<Course>> getAvailableCourses() {
-        List<Course> courses = courseService.getAvailableCourses();
+    public ResponseEntity<List<CourseSummaryResponse>> getAvailableCourses() {
+        List<CourseSummaryResponse> courses = courseService.getAvailableCourses();
         return ResponseEntity.ok(courses);
     }
     
@@ -166,4 +216,15 @@ public class CourseController {
         courseService.addCourseReview(id, rating, comment);
         return ResponseEntity.ok(Map.of("message", "Review added successfully"));
     }
+    
+    // Sets ETag and Last-Modified on the response and reports whether a 304 has already been written
+    private boolean isCatalogNotModified(WebRequest request) {
+        CatalogVersionRegistry.Version version = catalogVersionRegistry.catalog();
+        return request.checkNotModified(version.getETag(), version.getLastModified());
+    }
+    
+    // The validators are already on the response; the 304 carries no body
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+    }
 }
\ No newline at end of file
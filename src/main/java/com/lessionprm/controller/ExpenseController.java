@@ -30,8 +30,14 @@ public class ExpenseController {
     private ExpenseService expenseService;
     
     @GetMapping
-    @Operation(summary = "List expenses", description = "Get all expenses with pagination (Admin only)")
-    public ResponseEntity<Page<Expense>> getAllExpenses(Pageable pageable) {
+    @Operation(summary = "List expenses", description = "Get all expenses with pagination, or keyset slices when \"after\" is given (Admin only)")
+    public ResponseEntity<?> getAllExpenses(
+            Pageable pageable,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        if (after != null) {
+            return ResponseEntity.ok(expenseService.getAllExpenses(after, size));
+        }
         Page<Expense> expenses = expenseService.getAllExpenses(pageable);
         return ResponseEntity.ok(expenses);
     }
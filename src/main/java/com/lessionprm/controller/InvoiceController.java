@@ -110,8 +110,14 @@ public class InvoiceController {
     
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all invoices", description = "Get all invoices with pagination (Admin only)")
-    public ResponseEntity<Page<Invoice>> getAllInvoices(Pageable pageable) {
+    @Operation(summary = "Get all invoices", description = "Get all invoices with pagination, or keyset slices when \"after\" is given (Admin only)")
+    public ResponseEntity<?> getAllInvoices(
+            Pageable pageable,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        if (after != null) {
+            return ResponseEntity.ok(invoiceService.getAllInvoices(after, size));
+        }
         Page<Invoice> invoices = invoiceService.getAllInvoices(pageable);
         return ResponseEntity.ok(invoices);
     }
@@ -171,7 +177,8 @@ public class InvoiceController {
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Process expired invoices", description = "Process and cancel expired invoices (Admin only)")
     public ResponseEntity<Map<String, String>> processExpiredInvoices() {
-        invoiceService.processExpiredInvoices();
-        return ResponseEntity.ok(Map.of("message", "Expired invoices processed successfully"));
+        int cancelled = invoiceService.processExpiredInvoices();
+        return ResponseEntity.ok(Map.of("message", "Expired invoices processed successfully",
+                                        "cancelled", String.valueOf(cancelled)));
     }
 }
\ No newline at end of file
@@ -1,16 +1,25 @@
 package com.lessionprm.controller;
 
+import com.lessionprm.billing.PaymentReconciler;
 import com.lessionprm.dto.request.PaymentRequest;
 import com.lessionprm.dto.response.PaymentResponse;
+import com.lessionprm.entity.User;
+import com.lessionprm.exception.BadRequestException;
 import com.lessionprm.service.interfaces.PaymentService;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -20,11 +29,16 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
     
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
+    
+    @Autowired
+    private PaymentReconciler paymentReconciler;
+    
     @PostMapping("/create")
     @Operation(summary = "Create MoMo payment", description = "Create MoMo payment for course purchase")
-    public ResponseEntity<PaymentResponse> createMoMoPayment(@Valid @RequestBody PaymentRequest request) {
-        PaymentResponse response = paymentService.createMoMoPayment(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<PaymentResponse>> createMoMoPayment(@Valid @RequestBody PaymentRequest request) {
+        return paymentService.createMoMoPayment(request).thenApply(ResponseEntity::ok);
     }
     
     @PostMapping("/callback")
@@ -41,10 +55,28 @@ public class PaymentController {
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream payment events", description = "Push payment, enrollment and refund updates for the current user")
+    public SseEmitter streamEvents(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return paymentEventBroadcaster.subscribe(user.getId());
+    }
+    
     @PostMapping("/{orderId}/refund")
     @Operation(summary = "Process refund", description = "Process refund for a payment")
     public ResponseEntity<PaymentResponse> processRefund(@PathVariable String orderId) {
         PaymentResponse response = paymentService.processRefund(orderId);
         return ResponseEntity.ok(response);
     }
+    
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reconcile pending payments", description = "Check stale pending MoMo invoices against the gateway (Admin only)")
+    public ResponseEntity<Map<PaymentReconciler.Outcome, Integer>> reconcilePayments() {
+        Map<PaymentReconciler.Outcome, Integer> outcomes = paymentReconciler.run();
+        if (outcomes == null) {
+            throw new BadRequestException("A payment reconciliation is already running");
+        }
+        return ResponseEntity.ok(outcomes);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,8 @@
 package com.lessionprm.controller;
 
-import com.lessionprm.entity.Course;
-import com.lessionprm.entity.Invoice;
 import com.lessionprm.entity.User;
 import com.lessionprm.service.interfaces.CourseService;
+import com.lessionprm.service.interfaces.DashboardService;
 import com.lessionprm.service.interfaces.ExpenseService;
 import com.lessionprm.service.interfaces.InvoiceService;
 import com.lessionprm.service.interfaces.UserService;
@@ -39,6 +38,9 @@ public class StatisticsController {
     @Autowired
     private ExpenseService expenseService;
     
+    @Autowired
+    private DashboardService dashboardService;
+    
     @GetMapping("/dashboard")
     @Operation(summary = "Get dashboard data", description = "Get dashboard statistics (Admin only)")
     public ResponseEntity<Map<String, Object>> getDashboardData(
@@ -52,54 +54,7 @@ public class StatisticsController {
             endDate = LocalDateTime.now();
         }
         
-        // Revenue data
-        BigDecimal totalRevenue = invoiceService.getTotalRevenueByDateRange(startDate, endDate);
-        long paidInvoices = invoiceService.countPaidInvoicesByDateRange(startDate, endDate);
-        
-        // Course data
-        long totalCourses = courseService.countActiveCourses();
-        List<Course> availableCourses = courseService.getAvailableCourses();
-        
-        // User data
-        long totalUsers = userService.countUsersByRole(User.Role.USER);
-        long adminUsers = userService.countUsersByRole(User.Role.ADMIN);
-        long newUsers = userService.countNewUsersBetween(startDate, endDate);
-        
-        // Invoice data
-        long pendingInvoices = invoiceService.countByStatus(Invoice.Status.PENDING);
-        long failedInvoices = invoiceService.countByStatus(Invoice.Status.FAILED);
-        
-        // Expense data
-        LocalDate expenseStartDate = startDate.toLocalDate();
-        LocalDate expenseEndDate = endDate.toLocalDate();
-        BigDecimal totalExpenses = expenseService.getTotalApprovedExpensesByDateRange(expenseStartDate, expenseEndDate);
-        long pendingExpenses = expenseService.countByApprovalStatus(false);
-        
-        Map<String, Object> dashboard = Map.of(
-                "revenue", Map.of(
-                    "total", totalRevenue,
-                    "paidInvoices", paidInvoices,
-                    "pendingInvoices", pendingInvoices,
-                    "failedInvoices", failedInvoices
-                ),
-                "courses", Map.of(
-                    "total", totalCourses,
-                    "available", availableCourses.size()
-                ),
-                "users", Map.of(
-                    "total", totalUsers,
-                    "admins", adminUsers,
-                    "newUsers", newUsers
-                ),
-                "expenses", Map.of(
-                    "total", totalExpenses,
-                    "pending", pendingExpenses
-                ),
-                "dateRange", Map.of(
-                    "start", startDate,
-                    "end", endDate
-                )
-        );
+        Map<String, Object> dashboard = dashboardService.getDashboard(startDate, endDate);
         
         return ResponseEntity.ok(dashboard);
     }
@@ -143,7 +98,7 @@ public class StatisticsController {
         long activeCourses = courseService.countActiveCourses();
         List<String> categories = courseService.getAllCategories();
         List<String> instructors = courseService.getAllInstructors();
-        List<Course> availableCourses = courseService.getAvailableCourses();
+        long availableCourses = courseService.countAvailableCourses();
         
         Map<String, Object> courseStats = Map.of(
                 "totalCourses", totalCourses,
@@ -151,7 +106,7 @@ public class StatisticsController {
                 "inactiveCourses", totalCourses - activeCourses,
                 "totalCategories", categories.size(),
                 "totalInstructors", instructors.size(),
-                "availableCourses", availableCourses.size(),
+                "availableCourses", availableCourses,
                 "categories", categories,
                 "instructors", instructors
         );
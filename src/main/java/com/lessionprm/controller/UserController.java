@@ -1,5 +1,6 @@
 package com.lessionprm.controller;
 
+import com.lessionprm.dto.response.UserSummaryResponse;
 import com.lessionprm.entity.User;
 import com.lessionprm.exception.ResourceNotFoundException;
 import com.lessionprm.service.interfaces.AuthService;
@@ -68,9 +69,15 @@ public class UserController {
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all users", description = "Get all users with pagination (Admin only)")
-    public ResponseEntity<Page<User>> getAllUsers(Pageable pageable) {
-        Page<User> users = userService.getAllUsers(pageable);
+    @Operation(summary = "Get all users", description = "Get all users with pagination, or keyset slices when \"after\" is given (Admin only)")
+    public ResponseEntity<?> getAllUsers(
+            Pageable pageable,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        if (after != null) {
+            return ResponseEntity.ok(userService.getAllUsers(after, size));
+        }
+        Page<UserSummaryResponse> users = userService.getAllUsers(pageable);
         return ResponseEntity.ok(users);
     }
     
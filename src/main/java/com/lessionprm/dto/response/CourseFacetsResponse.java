@@ -0,0 +1,107 @@
+package com.lessionprm.dto.response;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public class CourseFacetsResponse {
+    
+    private Map<String, Integer> categories;
+    private Map<String, Integer> instructors;
+    private Map<String, Integer> levels;
+    private List<PriceRange> priceRanges;
+    private int totalCourses;
+    
+    // Constructors
+    public CourseFacetsResponse() {}
+    
+    public CourseFacetsResponse(Map<String, Integer> categories, Map<String, Integer> instructors,
+                                Map<String, Integer> levels, List<PriceRange> priceRanges, int totalCourses) {
+        this.categories = categories;
+        this.instructors = instructors;
+        this.levels = levels;
+        this.priceRanges = priceRanges;
+        this.totalCourses = totalCourses;
+    }
+    
+    // Getters and Setters
+    public Map<String, Integer> getCategories() {
+        return categories;
+    }
+    
+    public void setCategories(Map<String, Integer> categories) {
+        this.categories = categories;
+    }
+    
+    public Map<String, Integer> getInstructors() {
+        return instructors;
+    }
+    
+    public void setInstructors(Map<String, Integer> instructors) {
+        this.instructors = instructors;
+    }
+    
+    public Map<String, Integer> getLevels() {
+        return levels;
+    }
+    
+    public void setLevels(Map<String, Integer> levels) {
+        this.levels = levels;
+    }
+    
+    public List<PriceRange> getPriceRanges() {
+        return priceRanges;
+    }
+    
+    public void setPriceRanges(List<PriceRange> priceRanges) {
+        this.priceRanges = priceRanges;
+    }
+    
+    public int getTotalCourses() {
+        return totalCourses;
+    }
+    
+    public void setTotalCourses(int totalCourses) {
+        this.totalCourses = totalCourses;
+    }
+    
+    // Half-open range [minPrice, maxPrice); maxPrice is null for the top bucket
+    public static class PriceRange {
+        
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private int count;
+        
+        public PriceRange() {}
+        
+        public PriceRange(BigDecimal minPrice, BigDecimal maxPrice, int count) {
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.count = count;
+        }
+        
+        public BigDecimal getMinPrice() {
+            return minPrice;
+        }
+        
+        public void setMinPrice(BigDecimal minPrice) {
+            this.minPrice = minPrice;
+        }
+        
+        public BigDecimal getMaxPrice() {
+            return maxPrice;
+        }
+        
+        public void setMaxPrice(BigDecimal maxPrice) {
+            this.maxPrice = maxPrice;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
\ No newline at end of file
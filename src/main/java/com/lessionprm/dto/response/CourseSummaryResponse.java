@@ -0,0 +1,128 @@
+package com.lessionprm.dto.response;
+
+import com.lessionprm.entity.Course;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Card-level view of a course for list endpoints; the description is only served by GET /courses/{id}
+public class CourseSummaryResponse {
+    
+    private Long id;
+    private String title;
+    private BigDecimal price;
+    private Integer durationHours;
+    private String instructor;
+    private String category;
+    private String imageUrl;
+    private Course.Level level;
+    private Integer maxStudents;
+    private Integer enrolledStudents;
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public CourseSummaryResponse() {}
+    
+    public CourseSummaryResponse(Long id, String title, BigDecimal price, Integer durationHours, String instructor, String category, String imageUrl, Course.Level level, Integer maxStudents, Integer enrolledStudents, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.price = price;
+        this.durationHours = durationHours;
+        this.instructor = instructor;
+        this.category = category;
+        this.imageUrl = imageUrl;
+        this.level = level;
+        this.maxStudents = maxStudents;
+        this.enrolledStudents = enrolledStudents;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+    
+    public Integer getDurationHours() {
+        return durationHours;
+    }
+    
+    public void setDurationHours(Integer durationHours) {
+        this.durationHours = durationHours;
+    }
+    
+    public String getInstructor() {
+        return instructor;
+    }
+    
+    public void setInstructor(String instructor) {
+        this.instructor = instructor;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getImageUrl() {
+        return imageUrl;
+    }
+    
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+    
+    public Course.Level getLevel() {
+        return level;
+    }
+    
+    public void setLevel(Course.Level level) {
+        this.level = level;
+    }
+    
+    public Integer getMaxStudents() {
+        return maxStudents;
+    }
+    
+    public void setMaxStudents(Integer maxStudents) {
+        this.maxStudents = maxStudents;
+    }
+    
+    public Integer getEnrolledStudents() {
+        return enrolledStudents;
+    }
+    
+    public void setEnrolledStudents(Integer enrolledStudents) {
+        this.enrolledStudents = enrolledStudents;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
\ No newline at end of file
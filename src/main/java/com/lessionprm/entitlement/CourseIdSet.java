@@ -0,0 +1,109 @@
+package com.lessionprm.entitlement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Immutable open-addressing set of course ids backed by a single long[]; 0 marks a free slot, which is
+// safe because identity columns start at 1. Users own a handful of courses, so copying on add is cheap
+// and lets readers use a set without locking.
+public final class CourseIdSet {
+    
+    public static final CourseIdSet EMPTY = new CourseIdSet(new long[0], 0);
+    
+    private final long[] table;
+    private final int size;
+    
+    private CourseIdSet(long[] table, int size) {
+        this.table = table;
+        this.size = size;
+    }
+    
+    public static CourseIdSet of(Collection<Long> courseIds) {
+        if (courseIds.isEmpty()) {
+            return EMPTY;
+        }
+        
+        long[] table = new long[capacityFor(courseIds.size())];
+        int size = 0;
+        for (Long courseId : courseIds) {
+            if (courseId != null && insert(table, courseId)) {
+                size++;
+            }
+        }
+        return new CourseIdSet(table, size);
+    }
+    
+    public boolean contains(long courseId) {
+        if (size == 0 || courseId == 0) {
+            return false;
+        }
+        
+        int mask = table.length - 1;
+        for (int slot = slot(courseId, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == courseId) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public CourseIdSet with(long courseId) {
+        if (courseId == 0 || contains(courseId)) {
+            return this;
+        }
+        
+        long[] grown = new long[capacityFor(size + 1)];
+        for (long id : table) {
+            if (id != 0) {
+                insert(grown, id);
+            }
+        }
+        insert(grown, courseId);
+        return new CourseIdSet(grown, size + 1);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public List<Long> toList() {
+        long[] ids = new long[size];
+        int i = 0;
+        for (long id : table) {
+            if (id != 0) {
+                ids[i++] = id;
+            }
+        }
+        Arrays.sort(ids);
+        
+        List<Long> result = new ArrayList<>(size);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+    
+    // Keeps the table at most half full so probes stay short
+    private static int capacityFor(int size) {
+        return Math.max(2, Integer.highestOneBit(size * 2 - 1) << 1);
+    }
+    
+    private static boolean insert(long[] table, long courseId) {
+        int mask = table.length - 1;
+        int slot = slot(courseId, mask);
+        while (table[slot] != 0) {
+            if (table[slot] == courseId) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = courseId;
+        return true;
+    }
+    
+    private static int slot(long courseId, int mask) {
+        return Long.hashCode(courseId * 0x9E3779B97F4A7C15L) & mask;
+    }
+}
\ No newline at end of file
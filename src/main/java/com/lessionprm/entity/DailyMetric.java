@@ -0,0 +1,178 @@
+package com.lessionprm.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// One row per day holds the invoice and user figures under NO_CATEGORY; approved expenses are
+// kept on one row per day and expense category so they can be broken down without touching expenses.
+@Entity
+@Table(name = "daily_metrics")
+@IdClass(DailyMetric.Key.class)
+public class DailyMetric {
+    
+    public static final String NO_CATEGORY = "";
+    
+    @Id
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+    
+    @Id
+    @Column(nullable = false, length = 100)
+    private String category;
+    
+    @Column(name = "paid_revenue", nullable = false, precision = 15, scale = 2)
+    private BigDecimal paidRevenue = BigDecimal.ZERO;
+    
+    @Column(name = "paid_count", nullable = false)
+    private Long paidCount = 0L;
+    
+    @Column(name = "refunded_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+    
+    @Column(name = "refund_count", nullable = false)
+    private Long refundCount = 0L;
+    
+    @Column(name = "new_users", nullable = false)
+    private Long newUsers = 0L;
+    
+    @Column(name = "approved_expenses", nullable = false, precision = 15, scale = 2)
+    private BigDecimal approvedExpenses = BigDecimal.ZERO;
+    
+    // Bumped by every incremental update too, so a repair never overwrites one it did not see
+    @Version
+    private Long version;
+    
+    // Constructors
+    public DailyMetric() {}
+    
+    public DailyMetric(LocalDate metricDate, String category) {
+        this.metricDate = metricDate;
+        this.category = category;
+    }
+    
+    public boolean hasSameFigures(DailyMetric other) {
+        return paidRevenue.compareTo(other.paidRevenue) == 0
+                && paidCount.equals(other.paidCount)
+                && refundedAmount.compareTo(other.refundedAmount) == 0
+                && refundCount.equals(other.refundCount)
+                && newUsers.equals(other.newUsers)
+                && approvedExpenses.compareTo(other.approvedExpenses) == 0;
+    }
+    
+    public void copyFiguresFrom(DailyMetric other) {
+        this.paidRevenue = other.paidRevenue;
+        this.paidCount = other.paidCount;
+        this.refundedAmount = other.refundedAmount;
+        this.refundCount = other.refundCount;
+        this.newUsers = other.newUsers;
+        this.approvedExpenses = other.approvedExpenses;
+    }
+    
+    // Getters and Setters
+    public LocalDate getMetricDate() {
+        return metricDate;
+    }
+    
+    public void setMetricDate(LocalDate metricDate) {
+        this.metricDate = metricDate;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public BigDecimal getPaidRevenue() {
+        return paidRevenue;
+    }
+    
+    public void setPaidRevenue(BigDecimal paidRevenue) {
+        this.paidRevenue = paidRevenue;
+    }
+    
+    public Long getPaidCount() {
+        return paidCount;
+    }
+    
+    public void setPaidCount(Long paidCount) {
+        this.paidCount = paidCount;
+    }
+    
+    public BigDecimal getRefundedAmount() {
+        return refundedAmount;
+    }
+    
+    public void setRefundedAmount(BigDecimal refundedAmount) {
+        this.refundedAmount = refundedAmount;
+    }
+    
+    public Long getRefundCount() {
+        return refundCount;
+    }
+    
+    public void setRefundCount(Long refundCount) {
+        this.refundCount = refundCount;
+    }
+    
+    public Long getNewUsers() {
+        return newUsers;
+    }
+    
+    public void setNewUsers(Long newUsers) {
+        this.newUsers = newUsers;
+    }
+    
+    public BigDecimal getApprovedExpenses() {
+        return approvedExpenses;
+    }
+    
+    public void setApprovedExpenses(BigDecimal approvedExpenses) {
+        this.approvedExpenses = approvedExpenses;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
+    public static class Key implements Serializable {
+        
+        private LocalDate metricDate;
+        
+        private String category;
+        
+        public Key() {}
+        
+        public Key(LocalDate metricDate, String category) {
+            this.metricDate = metricDate;
+            this.category = category;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(metricDate, key.metricDate) && Objects.equals(category, key.category);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(metricDate, category);
+        }
+    }
+}
\ No newline at end of file
@@ -40,6 +40,10 @@ public class Revenue {
     @Column(name = "new_users_count")
     private Integer newUsersCount = 0;
     
+    // Change marker of the month's daily_metrics rows these figures were computed from
+    @Column(name = "source_version", nullable = false)
+    private Long sourceVersion = -1L;
+    
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -131,6 +135,14 @@ public class Revenue {
         this.newUsersCount = newUsersCount;
     }
     
+    public Long getSourceVersion() {
+        return sourceVersion;
+    }
+    
+    public void setSourceVersion(Long sourceVersion) {
+        this.sourceVersion = sourceVersion;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
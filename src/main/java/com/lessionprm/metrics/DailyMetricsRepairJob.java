@@ -0,0 +1,183 @@
+package com.lessionprm.metrics;
+
+import com.lessionprm.entity.DailyMetric;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.ExpenseRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Recomputes recent days of daily_metrics from the fact tables and rewrites the rows that drifted, for
+// example after writes that bypass the services or a bug in the incremental path. Each day is one short
+// transaction; a day that an incremental update touches mid-repair fails its version check and is retried.
+@Component
+public class DailyMetricsRepairJob {
+    
+    private static final int ATTEMPTS_PER_DAY = 3;
+    
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+    
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    // Late refunds and approvals of back-dated expenses land on old days, so a month is checked every night
+    @Value("${app.metrics.repair-days:35}")
+    private int repairDays;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private Counter correctedRows;
+    
+    private Counter failedDays;
+    
+    private Timer repairs;
+    
+    @PostConstruct
+    public void init() {
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        correctedRows = Counter.builder("metrics.rollup.corrected")
+                .description("Daily metric rows the repair found out of step with the fact tables")
+                .register(registry);
+        failedDays = Counter.builder("metrics.rollup.repair.failed")
+                .description("Days the repair gave up on after repeated concurrent updates")
+                .register(registry);
+        repairs = Timer.builder("metrics.rollup.repair")
+                .description("Duration of a daily metrics repair run")
+                .register(registry);
+    }
+    
+    @Scheduled(cron = "${app.metrics.repair-cron:0 30 0 * * *}")
+    public void scheduledRepair() {
+        // Runs just after midnight so yesterday is recomputed before anyone reads it as a whole day
+        LocalDate today = LocalDate.now();
+        repair(today.minusDays(repairDays), today);
+    }
+    
+    // Returns the number of rows rewritten between fromDate and toDate inclusive, or -1 when a repair
+    // is already running on this instance
+    public int repair(LocalDate fromDate, LocalDate toDate) {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        
+        Timer.Sample sample = Timer.start();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            int total = 0;
+            for (LocalDate day = fromDate; !day.isAfter(toDate); day = day.plusDays(1)) {
+                total += repairDay(transactionTemplate, day);
+            }
+            return total;
+        } finally {
+            sample.stop(repairs);
+            running.set(false);
+        }
+    }
+    
+    private int repairDay(TransactionTemplate transactionTemplate, LocalDate day) {
+        for (int attempt = 1; attempt <= ATTEMPTS_PER_DAY; attempt++) {
+            try {
+                Integer corrected = transactionTemplate.execute(status -> rewriteDay(day));
+                int rows = corrected != null ? corrected : 0;
+                correctedRows.increment(rows);
+                return rows;
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                // An incremental update changed the day after it was read; start over from fresh figures
+            }
+        }
+        failedDays.increment();
+        return 0;
+    }
+    
+    private int rewriteDay(LocalDate day) {
+        // The rollup is read before the facts, so any update that commits in between bumps a version we hold
+        Map<String, DailyMetric> stored = new HashMap<>();
+        for (DailyMetric metric : dailyMetricRepository.findByMetricDate(day)) {
+            stored.put(metric.getCategory(), metric);
+        }
+        
+        int corrected = 0;
+        for (DailyMetric expected : recompute(day)) {
+            DailyMetric current = stored.remove(expected.getCategory());
+            if (current == null) {
+                if (!expected.hasSameFigures(new DailyMetric())) {
+                    dailyMetricRepository.save(expected);
+                    corrected++;
+                }
+            } else if (!current.hasSameFigures(expected)) {
+                current.copyFiguresFrom(expected);
+                corrected++;
+            }
+        }
+        
+        // Whatever is left has no facts behind it any more
+        DailyMetric empty = new DailyMetric();
+        for (DailyMetric leftover : stored.values()) {
+            if (!leftover.hasSameFigures(empty)) {
+                leftover.copyFiguresFrom(empty);
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+    
+    private List<DailyMetric> recompute(LocalDate day) {
+        LocalDateTime startOfDay = day.atStartOfDay();
+        LocalDateTime endOfDay = DailyMetricsRollup.lastInstantBefore(day.plusDays(1));
+        Map<String, DailyMetric> expected = new HashMap<>();
+        
+        DailyMetric totals = new DailyMetric(day, DailyMetric.NO_CATEGORY);
+        totals.setPaidRevenue(orZero(invoiceRepository.getTotalRevenueByDateRange(startOfDay, endOfDay)));
+        totals.setPaidCount(invoiceRepository.countPaidInvoicesByDateRange(startOfDay, endOfDay));
+        totals.setRefundedAmount(orZero(invoiceRepository.getTotalRefundsByDateRange(startOfDay, endOfDay)));
+        totals.setRefundCount(invoiceRepository.countRefundedInvoicesByDateRange(startOfDay, endOfDay));
+        totals.setNewUsers(userRepository.countNewUsersBetween(startOfDay, endOfDay));
+        expected.put(DailyMetric.NO_CATEGORY, totals);
+        
+        for (Object[] row : expenseRepository.getApprovedExpensesByCategoryOn(day)) {
+            String category = (String) row[0];
+            // An expense without a category shares the row that holds the invoice and user figures
+            DailyMetric metric = expected.computeIfAbsent(category, c -> new DailyMetric(day, c));
+            metric.setApprovedExpenses(orZero((BigDecimal) row[1]));
+        }
+        return List.copyOf(expected.values());
+    }
+    
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
\ No newline at end of file
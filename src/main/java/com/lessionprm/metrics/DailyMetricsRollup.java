@@ -0,0 +1,200 @@
+package com.lessionprm.metrics;
+
+import com.lessionprm.entity.DailyMetric;
+import com.lessionprm.entity.Expense;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.UserRepository;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+// Keeps daily_metrics in step with invoices, users and expenses. Changes are applied as deltas inside the
+// caller's transaction, so a rollback undoes them too. Range totals read whole days from the rollup and
+// only the partial first and last day from the fact tables, so a year costs a few hundred rollup rows.
+// Days are bucketed the way the existing range queries filter: invoices and users by created_at, expenses by date.
+@Component
+public class DailyMetricsRollup {
+    
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+    
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate newTransaction;
+    
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    // Call before the new status is set on the invoice
+    public void invoiceStatusChanged(Invoice invoice, Invoice.Status newStatus) {
+        statusChanged(invoice.getCreatedAt(), invoice.getAmount(), invoice.getStatus(), newStatus);
+    }
+    
+    // Backend payments, refunds and manual status changes; runs synchronously in the publisher's transaction
+    @EventListener
+    public void invoiceStatusChanged(InvoiceStatusChangedEvent event) {
+        statusChanged(event.getCreatedAt(), event.getAmount(),
+                statusNamed(event.getPreviousStatus()), statusNamed(event.getNewStatus()));
+    }
+    
+    public void invoiceDeleted(Invoice invoice) {
+        invoiceStatusChanged(invoice, null);
+    }
+    
+    private void statusChanged(LocalDateTime createdAt, BigDecimal amount, Invoice.Status oldStatus, Invoice.Status newStatus) {
+        LocalDate day = dayOf(createdAt);
+        BigDecimal paidRevenue = BigDecimal.ZERO;
+        long paidCount = 0;
+        BigDecimal refundedAmount = BigDecimal.ZERO;
+        long refundCount = 0;
+        
+        if (oldStatus == Invoice.Status.PAID) {
+            paidRevenue = paidRevenue.subtract(amount);
+            paidCount--;
+        } else if (oldStatus == Invoice.Status.REFUNDED) {
+            refundedAmount = refundedAmount.subtract(amount);
+            refundCount--;
+        }
+        if (newStatus == Invoice.Status.PAID) {
+            paidRevenue = paidRevenue.add(amount);
+            paidCount++;
+        } else if (newStatus == Invoice.Status.REFUNDED) {
+            refundedAmount = refundedAmount.add(amount);
+            refundCount++;
+        }
+        
+        if (paidCount != 0 || refundCount != 0) {
+            add(day, DailyMetric.NO_CATEGORY, paidRevenue, paidCount, refundedAmount, refundCount, 0, BigDecimal.ZERO);
+        }
+    }
+    
+    public void userCreated(User user) {
+        add(dayOf(user.getCreatedAt()), DailyMetric.NO_CATEGORY, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, 1, BigDecimal.ZERO);
+    }
+    
+    public void userDeleted(User user) {
+        add(dayOf(user.getCreatedAt()), DailyMetric.NO_CATEGORY, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, -1, BigDecimal.ZERO);
+    }
+    
+    // An expense counts once it is approved; edits to an approved expense are a removal followed by an addition
+    public void expenseAdded(Expense expense) {
+        if (Boolean.TRUE.equals(expense.getIsApproved())) {
+            add(expense.getDate(), expense.getCategory(), BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, 0, expense.getAmount());
+        }
+    }
+    
+    public void expenseRemoved(Expense expense) {
+        if (Boolean.TRUE.equals(expense.getIsApproved())) {
+            add(expense.getDate(), expense.getCategory(), BigDecimal.ZERO, 0, BigDecimal.ZERO, 0, 0,
+                    expense.getAmount().negate());
+        }
+    }
+    
+    public BigDecimal paidRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        return overRange(startDate, endDate,
+                (from, to) -> orZero(invoiceRepository.getTotalRevenueByDateRange(from, to)),
+                dailyMetricRepository::sumPaidRevenue, BigDecimal::add);
+    }
+    
+    public long paidCount(LocalDateTime startDate, LocalDateTime endDate) {
+        return overRange(startDate, endDate,
+                invoiceRepository::countPaidInvoicesByDateRange,
+                dailyMetricRepository::sumPaidCount, Long::sum);
+    }
+    
+    public long newUsers(LocalDateTime startDate, LocalDateTime endDate) {
+        return overRange(startDate, endDate,
+                userRepository::countNewUsersBetween,
+                dailyMetricRepository::sumNewUsers, Long::sum);
+    }
+    
+    // Expenses are dated by day, so the whole range comes from the rollup
+    public BigDecimal approvedExpenses(LocalDate startDate, LocalDate endDate) {
+        return dailyMetricRepository.sumApprovedExpenses(startDate, endDate.plusDays(1));
+    }
+    
+    // The fact queries take inclusive bounds, like the BETWEEN they replace. Timestamps are stored to the
+    // microsecond, so the last microsecond before midnight is the inclusive end of a day.
+    static LocalDateTime lastInstantBefore(LocalDate day) {
+        return day.atStartOfDay().minusNanos(1_000);
+    }
+    
+    private <T> T overRange(LocalDateTime startDate, LocalDateTime endDate,
+                            BiFunction<LocalDateTime, LocalDateTime, T> facts,
+                            BiFunction<LocalDate, LocalDate, T> rollup,
+                            BinaryOperator<T> plus) {
+        LocalDate firstWholeDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        // Every day before the end date's own day is inside the range in full
+        LocalDate lastDay = endDate.toLocalDate();
+        if (!firstWholeDay.isBefore(lastDay)) {
+            return facts.apply(startDate, endDate);
+        }
+        
+        T total = rollup.apply(firstWholeDay, lastDay);
+        if (startDate.isBefore(firstWholeDay.atStartOfDay())) {
+            total = plus.apply(total, facts.apply(startDate, lastInstantBefore(firstWholeDay)));
+        }
+        return plus.apply(total, facts.apply(lastDay.atStartOfDay(), endDate));
+    }
+    
+    private void add(LocalDate day, String category, BigDecimal paidRevenue, long paidCount,
+                     BigDecimal refundedAmount, long refundCount, long newUsers, BigDecimal approvedExpenses) {
+        if (dailyMetricRepository.addToDay(day, category, paidRevenue, paidCount,
+                refundedAmount, refundCount, newUsers, approvedExpenses) > 0) {
+            return;
+        }
+        
+        createDay(day, category);
+        dailyMetricRepository.addToDay(day, category, paidRevenue, paidCount,
+                refundedAmount, refundCount, newUsers, approvedExpenses);
+    }
+    
+    // The empty row commits on its own, so losing the race to create it cannot roll back the caller's transaction
+    private void createDay(LocalDate day, String category) {
+        try {
+            newTransaction.executeWithoutResult(status -> dailyMetricRepository.insertEmptyDay(day, category));
+        } catch (DataIntegrityViolationException e) {
+            // Another transaction created the row first; the caller's update will find it
+        }
+    }
+    
+    private static LocalDate dayOf(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toLocalDate() : LocalDate.now();
+    }
+    
+    // The backend shares the invoices table and its status names
+    private static Invoice.Status statusNamed(String name) {
+        return name != null ? Invoice.Status.valueOf(name) : null;
+    }
+    
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
\ No newline at end of file
@@ -1,23 +1,79 @@
 package com.lessionprm.repository;
 
+import com.lessionprm.dto.response.CourseSummaryResponse;
 import com.lessionprm.entity.Course;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
     
+    // List endpoints select card columns only; the TEXT description stays on the detail endpoint
+    String SUMMARY_SELECT = "SELECT new com.lessionprm.dto.response.CourseSummaryResponse(" +
+            "c.id, c.title, c.price, c.durationHours, c.instructor, c.category, c.imageUrl, c.level, " +
+            "c.maxStudents, c.enrolledStudents, c.createdAt) FROM Course c ";
+    
     List<Course> findByIsActiveTrue();
     
     Page<Course> findByIsActiveTrue(Pageable pageable);
     
+    @Query(value = SUMMARY_SELECT + "WHERE c.isActive = true",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.isActive = true")
+    Page<CourseSummaryResponse> findActiveSummaries(Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.isActive = true ORDER BY c.createdAt DESC, c.id DESC")
+    List<CourseSummaryResponse> findFirstActiveSummarySlice(Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.isActive = true AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CourseSummaryResponse> findActiveSummariesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                         @Param("id") Long id,
+                                                         Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id IN :ids")
+    List<CourseSummaryResponse> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE c.category = :category",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.category = :category")
+    Page<CourseSummaryResponse> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.instructor = :instructor")
+    List<CourseSummaryResponse> findSummariesByInstructor(@Param("instructor") String instructor);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.level = :level")
+    List<CourseSummaryResponse> findSummariesByLevel(@Param("level") Course.Level level);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE c.isActive = true AND c.price BETWEEN :minPrice AND :maxPrice",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.isActive = true AND c.price BETWEEN :minPrice AND :maxPrice")
+    Page<CourseSummaryResponse> findSummariesByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                                                          @Param("maxPrice") BigDecimal maxPrice,
+                                                          Pageable pageable);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE c.isActive = true AND " +
+                   "(LOWER(c.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                   "LOWER(c.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                   "LOWER(c.instructor) LIKE LOWER(CONCAT('%', :keyword, '%')))",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.isActive = true AND " +
+                        "(LOWER(c.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                        "LOWER(c.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+                        "LOWER(c.instructor) LIKE LOWER(CONCAT('%', :keyword, '%')))")
+    Page<CourseSummaryResponse> searchSummaries(@Param("keyword") String keyword, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.enrolledStudents < c.maxStudents AND c.isActive = true")
+    List<CourseSummaryResponse> findAvailableSummaries();
+    
     List<Course> findByCategory(String category);
     
     Page<Course> findByCategory(String category, Pageable pageable);
@@ -60,6 +116,40 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     @Query("SELECT COUNT(c) FROM Course c WHERE c.isActive = true")
     long countActiveCourses();
     
+    @Query("SELECT MAX(COALESCE(c.updatedAt, c.createdAt)), COUNT(c) FROM Course c")
+    List<Object[]> findCatalogStamp();
+    
     @Query("SELECT c FROM Course c WHERE c.enrolledStudents < c.maxStudents AND c.isActive = true")
     List<Course> findAvailableCourses();
+    
+    @Query("SELECT COUNT(c) FROM Course c WHERE c.enrolledStudents < c.maxStudents AND c.isActive = true")
+    long countAvailableCourses();
+    
+    // -1 means the course has no capacity limit
+    @Query("SELECT CASE WHEN c.maxStudents IS NULL THEN -1 " +
+           "ELSE c.maxStudents - COALESCE(c.enrolledStudents, 0) END FROM Course c WHERE c.id = :id")
+    Optional<Integer> findRemainingSeats(@Param("id") Long id);
+    
+    // Seat updates bypass auditing, so they bump updated_at themselves to keep catalog ETags honest
+    @Modifying
+    @Query("UPDATE Course c SET c.enrolledStudents = c.enrolledStudents + 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :id AND (c.maxStudents IS NULL OR c.enrolledStudents < c.maxStudents)")
+    int reserveSeat(@Param("id") Long id);
+    
+    // Unconditional: a confirmed payment keeps its seat even if that takes the course past max_students
+    @Modifying
+    @Query("UPDATE Course c SET c.enrolledStudents = c.enrolledStudents + 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :id")
+    int claimSeat(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Course c SET c.enrolledStudents = c.enrolledStudents - 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :id AND c.enrolledStudents > 0")
+    int releaseSeat(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Course c SET c.enrolledStudents = CASE WHEN c.enrolledStudents > :seats " +
+           "THEN c.enrolledStudents - :seats ELSE 0 END, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :id AND c.enrolledStudents > 0")
+    int releaseSeats(@Param("id") Long id, @Param("seats") int seats);
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.lessionprm.repository;
+
+import com.lessionprm.entity.DailyMetric;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyMetricRepository extends JpaRepository<DailyMetric, DailyMetric.Key> {
+    
+    String MONTHLY_TOTALS_SELECT = "SELECT YEAR(m.metricDate), MONTH(m.metricDate), SUM(m.paidRevenue), SUM(m.paidCount), " +
+            "SUM(m.newUsers), SUM(m.approvedExpenses), SUM(m.version + 1) FROM DailyMetric m ";
+    
+    List<DailyMetric> findByMetricDate(LocalDate metricDate);
+    
+    // Applied in the database so concurrent updates to the same day add up instead of overwriting each other
+    @Modifying
+    @Query("UPDATE DailyMetric m SET m.paidRevenue = m.paidRevenue + :paidRevenue, m.paidCount = m.paidCount + :paidCount, " +
+           "m.refundedAmount = m.refundedAmount + :refundedAmount, m.refundCount = m.refundCount + :refundCount, " +
+           "m.newUsers = m.newUsers + :newUsers, m.approvedExpenses = m.approvedExpenses + :approvedExpenses, " +
+           "m.version = m.version + 1 WHERE m.metricDate = :metricDate AND m.category = :category")
+    int addToDay(@Param("metricDate") LocalDate metricDate,
+                 @Param("category") String category,
+                 @Param("paidRevenue") BigDecimal paidRevenue,
+                 @Param("paidCount") long paidCount,
+                 @Param("refundedAmount") BigDecimal refundedAmount,
+                 @Param("refundCount") long refundCount,
+                 @Param("newUsers") long newUsers,
+                 @Param("approvedExpenses") BigDecimal approvedExpenses);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_metrics (metric_date, category, paid_revenue, paid_count, refunded_amount, " +
+                   "refund_count, new_users, approved_expenses, version) VALUES (:metricDate, :category, 0, 0, 0, 0, 0, 0, 0)",
+           nativeQuery = true)
+    int insertEmptyDay(@Param("metricDate") LocalDate metricDate, @Param("category") String category);
+    
+    // The last column only ever grows when a month's rows change: every update bumps a row's version
+    // and rows are never deleted, so it serves as the month's change marker
+    @Query(MONTHLY_TOTALS_SELECT + "GROUP BY YEAR(m.metricDate), MONTH(m.metricDate)")
+    List<Object[]> getMonthlyTotals();
+    
+    @Query(MONTHLY_TOTALS_SELECT + "WHERE m.metricDate >= :fromDate AND m.metricDate < :toDate " +
+           "GROUP BY YEAR(m.metricDate), MONTH(m.metricDate)")
+    List<Object[]> getMonthlyTotalsBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    @Query("SELECT COALESCE(SUM(m.paidRevenue), 0) FROM DailyMetric m WHERE m.metricDate >= :fromDate AND m.metricDate < :toDate")
+    BigDecimal sumPaidRevenue(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    @Query("SELECT COALESCE(SUM(m.paidCount), 0) FROM DailyMetric m WHERE m.metricDate >= :fromDate AND m.metricDate < :toDate")
+    long sumPaidCount(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    @Query("SELECT COALESCE(SUM(m.newUsers), 0) FROM DailyMetric m WHERE m.metricDate >= :fromDate AND m.metricDate < :toDate")
+    long sumNewUsers(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    
+    @Query("SELECT COALESCE(SUM(m.approvedExpenses), 0) FROM DailyMetric m " +
+           "WHERE m.metricDate >= :fromDate AND m.metricDate < :toDate")
+    BigDecimal sumApprovedExpenses(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+}
\ No newline at end of file
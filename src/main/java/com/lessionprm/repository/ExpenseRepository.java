@@ -10,11 +10,20 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     
+    List<Expense> findAllByOrderByCreatedAtDescIdDesc(Pageable limit);
+    
+    @Query("SELECT e FROM Expense e WHERE e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Expense> findExpensesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable limit);
+    
     List<Expense> findByCategory(String category);
     
     Page<Expense> findByCategory(String category, Pageable pageable);
@@ -48,6 +57,9 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e.category, SUM(e.amount) FROM Expense e WHERE e.isApproved = true GROUP BY e.category")
     List<Object[]> getExpensesByCategory();
     
+    @Query("SELECT e.category, SUM(e.amount) FROM Expense e WHERE e.isApproved = true AND e.date = :date GROUP BY e.category")
+    List<Object[]> getApprovedExpensesByCategoryOn(@Param("date") LocalDate date);
+    
     @Query("SELECT e FROM Expense e WHERE e.amount > :amount AND e.isApproved = false")
     List<Expense> findPendingExpensesAboveAmount(@Param("amount") BigDecimal amount);
     
@@ -5,6 +5,7 @@ import com.lessionprm.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,6 +18,14 @@ import java.util.Optional;
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     
+    List<Invoice> findAllByOrderByCreatedAtDescIdDesc(Pageable limit);
+    
+    @Query("SELECT i FROM Invoice i WHERE i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<Invoice> findInvoicesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable limit);
+    
     List<Invoice> findByUser(User user);
     
     Page<Invoice> findByUser(User user, Pageable pageable);
@@ -56,6 +65,14 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     long countPaidInvoicesByDateRange(@Param("startDate") LocalDateTime startDate, 
                                      @Param("endDate") LocalDateTime endDate);
     
+    @Query("SELECT SUM(i.amount) FROM Invoice i WHERE i.status = 'REFUNDED' AND i.createdAt BETWEEN :startDate AND :endDate")
+    BigDecimal getTotalRefundsByDateRange(@Param("startDate") LocalDateTime startDate, 
+                                          @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status = 'REFUNDED' AND i.createdAt BETWEEN :startDate AND :endDate")
+    long countRefundedInvoicesByDateRange(@Param("startDate") LocalDateTime startDate, 
+                                          @Param("endDate") LocalDateTime endDate);
+    
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId AND i.course.id = :courseId AND i.status = 'PAID'")
     long countPaidInvoicesByUserAndCourse(@Param("userId") Long userId, 
                                          @Param("courseId") Long courseId);
@@ -63,8 +80,41 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     @Query("SELECT DISTINCT i.course.id FROM Invoice i WHERE i.user.id = :userId AND i.status = 'PAID'")
     List<Long> findPaidCourseIdsByUser(@Param("userId") Long userId);
     
-    @Query("SELECT i FROM Invoice i WHERE i.status IN ('PENDING', 'FAILED') AND i.createdAt < :expiryDate")
-    List<Invoice> findExpiredInvoices(@Param("expiryDate") LocalDateTime expiryDate);
+    @Query("SELECT MIN(i.id) FROM Invoice i WHERE i.id > :afterId AND i.status IN ('PENDING', 'FAILED') " +
+           "AND i.createdAt < :expiryDate")
+    Long findNextExpiredInvoiceId(@Param("afterId") Long afterId,
+                                  @Param("expiryDate") LocalDateTime expiryDate);
+    
+    @Query("SELECT DISTINCT i.course.id FROM Invoice i WHERE i.id BETWEEN :fromId AND :toId " +
+           "AND i.status = 'PENDING' AND i.createdAt < :expiryDate")
+    List<Long> findExpiredPendingCourseIds(@Param("fromId") Long fromId,
+                                           @Param("toId") Long toId,
+                                           @Param("expiryDate") LocalDateTime expiryDate);
+    
+    @Modifying
+    @Query("UPDATE Invoice i SET i.status = :cancelled, i.notes = :notes WHERE i.id BETWEEN :fromId AND :toId " +
+           "AND i.status = 'PENDING' AND i.createdAt < :expiryDate AND i.course.id = :courseId")
+    int cancelExpiredPendingInvoices(@Param("fromId") Long fromId,
+                                     @Param("toId") Long toId,
+                                     @Param("expiryDate") LocalDateTime expiryDate,
+                                     @Param("courseId") Long courseId,
+                                     @Param("cancelled") Invoice.Status cancelled,
+                                     @Param("notes") String notes);
+    
+    @Modifying
+    @Query("UPDATE Invoice i SET i.status = :cancelled, i.notes = :notes WHERE i.id BETWEEN :fromId AND :toId " +
+           "AND i.status = 'FAILED' AND i.createdAt < :expiryDate")
+    int cancelExpiredFailedInvoices(@Param("fromId") Long fromId,
+                                    @Param("toId") Long toId,
+                                    @Param("expiryDate") LocalDateTime expiryDate,
+                                    @Param("cancelled") Invoice.Status cancelled,
+                                    @Param("notes") String notes);
+    
+    @Query("SELECT i FROM Invoice i WHERE i.id > :afterId AND i.status = 'PENDING' AND i.paymentMethod = 'MOMO' " +
+           "AND i.orderId IS NOT NULL AND i.createdAt < :createdBefore ORDER BY i.id")
+    List<Invoice> findPendingMoMoInvoices(@Param("afterId") Long afterId,
+                                          @Param("createdBefore") LocalDateTime createdBefore,
+                                          Pageable limit);
     
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status = :status")
     long countByStatus(@Param("status") Invoice.Status status);
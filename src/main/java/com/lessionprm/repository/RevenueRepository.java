@@ -2,11 +2,13 @@ package com.lessionprm.repository;
 
 import com.lessionprm.entity.Revenue;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,27 @@ public interface RevenueRepository extends JpaRepository<Revenue, Long> {
     
     Optional<Revenue> findByMonthAndYear(Integer month, Integer year);
     
+    boolean existsByMonthAndYear(Integer month, Integer year);
+    
+    @Query("SELECT r.year, r.month, r.sourceVersion FROM Revenue r")
+    List<Object[]> findSourceVersions();
+    
+    // Never replaces figures computed from newer source data, so concurrent runs cannot go backwards
+    @Modifying
+    @Query("UPDATE Revenue r SET r.totalRevenue = :totalRevenue, r.totalExpense = :totalExpense, r.profit = :profit, " +
+           "r.courseSalesCount = :courseSalesCount, r.newUsersCount = :newUsersCount, " +
+           "r.sourceVersion = :sourceVersion, r.updatedAt = :updatedAt " +
+           "WHERE r.month = :month AND r.year = :year AND r.sourceVersion <= :sourceVersion")
+    int updateMonth(@Param("month") Integer month,
+                    @Param("year") Integer year,
+                    @Param("totalRevenue") BigDecimal totalRevenue,
+                    @Param("totalExpense") BigDecimal totalExpense,
+                    @Param("profit") BigDecimal profit,
+                    @Param("courseSalesCount") Integer courseSalesCount,
+                    @Param("newUsersCount") Integer newUsersCount,
+                    @Param("sourceVersion") Long sourceVersion,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+    
     List<Revenue> findByYear(Integer year);
     
     List<Revenue> findByYearOrderByMonthAsc(Integer year);
@@ -1,6 +1,9 @@
 package com.lessionprm.repository;
 
+import com.lessionprm.dto.response.UserSummaryResponse;
 import com.lessionprm.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,6 +30,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<User> findByEnabledFalse();
     
+    String SUMMARY_SELECT = "SELECT new com.lessionprm.dto.response.UserSummaryResponse(" +
+            "u.id, u.username, u.email, u.firstName, u.lastName, u.role, u.enabled, u.createdAt) FROM User u ";
+    
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserSummaryResponse> findSummaries(Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "ORDER BY u.createdAt DESC, u.id DESC")
+    List<UserSummaryResponse> findFirstSummarySlice(Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<UserSummaryResponse> findSummariesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Pageable limit);
+    
     @Query("SELECT u FROM User u WHERE u.createdAt BETWEEN :startDate AND :endDate")
     List<User> findByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, 
                                      @Param("endDate") LocalDateTime endDate);
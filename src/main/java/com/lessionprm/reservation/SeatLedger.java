@@ -0,0 +1,87 @@
+package com.lessionprm.reservation;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+// In-memory view of remaining seats so sold-out courses are rejected without touching the course row.
+// The database's conditional update stays authoritative; entries are reloaded after TTL_MILLIS so
+// seats released by other instances become visible again.
+@Component
+public class SeatLedger {
+    
+    public static final int UNLIMITED = -1;
+    
+    private static final int STRIPES = 64;
+    private static final long TTL_MILLIS = 30_000;
+    
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    
+    public SeatLedger() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+    
+    public boolean tryAcquire(Long courseId, IntSupplier remainingSeats) {
+        Entry entry = currentEntry(courseId, remainingSeats);
+        if (entry.remaining == null) {
+            return true;
+        }
+        
+        int seats;
+        do {
+            seats = entry.remaining.get();
+            if (seats <= 0) {
+                return false;
+            }
+        } while (!entry.remaining.compareAndSet(seats, seats - 1));
+        return true;
+    }
+    
+    public void release(Long courseId) {
+        Entry entry = entries.get(courseId);
+        if (entry != null && entry.remaining != null) {
+            entry.remaining.incrementAndGet();
+        }
+    }
+    
+    public void invalidate(Long courseId) {
+        entries.remove(courseId);
+    }
+    
+    private Entry currentEntry(Long courseId, IntSupplier remainingSeats) {
+        Entry entry = entries.get(courseId);
+        if (entry != null && !entry.isExpired()) {
+            return entry;
+        }
+        
+        // Only one loader per stripe hits the database when a hot course's entry is missing or stale
+        synchronized (stripes[Math.floorMod(courseId.hashCode(), STRIPES)]) {
+            entry = entries.get(courseId);
+            if (entry == null || entry.isExpired()) {
+                entry = new Entry(remainingSeats.getAsInt());
+                entries.put(courseId, entry);
+            }
+            return entry;
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final AtomicInteger remaining;
+        private final long loadedAt = System.currentTimeMillis();
+        
+        private Entry(int remainingSeats) {
+            this.remaining = remainingSeats == UNLIMITED ? null : new AtomicInteger(Math.max(remainingSeats, 0));
+        }
+        
+        private boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt > TTL_MILLIS;
+        }
+    }
+}
\ No newline at end of file
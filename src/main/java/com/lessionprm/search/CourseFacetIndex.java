@@ -0,0 +1,227 @@
+package com.lessionprm.search;
+
+import com.lessionprm.dto.response.CourseFacetsResponse;
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Live counts of active courses per category, instructor, level and price bucket, kept in step with
+// course mutations so the catalog filters never need a GROUP BY over the courses table.
+@Component
+public class CourseFacetIndex {
+    
+    @Autowired
+    private CourseRepository courseRepository;
+    
+    // Upper bounds of the price buckets; the last bucket is open-ended
+    @Value("${app.catalog.price-buckets:100,300,500,1000}")
+    private List<BigDecimal> priceBounds;
+    
+    private final Map<Long, Facets> documents = new HashMap<>();
+    private final NavigableMap<String, Integer> categoryCounts = new TreeMap<>();
+    private final NavigableMap<String, Integer> instructorCounts = new TreeMap<>();
+    private final Map<Course.Level, Integer> levelCounts = new EnumMap<>(Course.Level.class);
+    private int[] priceBucketCounts = new int[0];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private volatile boolean ready = false;
+    
+    // Changes committed while a rebuild reads the courses, replayed over its result; null outside a rebuild
+    private List<Runnable> missedChanges;
+    
+    // The courses are read without holding the lock, so readers keep the previous counts meanwhile
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            withWriteLock(() -> missedChanges = new ArrayList<>());
+            List<Course> activeCourses;
+            try {
+                activeCourses = courseRepository.findByIsActiveTrue();
+            } catch (RuntimeException e) {
+                withWriteLock(() -> missedChanges = null);
+                throw e;
+            }
+            
+            withWriteLock(() -> {
+                documents.clear();
+                categoryCounts.clear();
+                instructorCounts.clear();
+                levelCounts.clear();
+                priceBucketCounts = new int[priceBounds.size() + 1];
+                for (Course course : activeCourses) {
+                    addDocument(course.getId(), facetsOf(course));
+                }
+                missedChanges.forEach(Runnable::run);
+                missedChanges = null;
+                ready = true;
+            });
+        }
+    }
+    
+    // Requests arriving before the startup rebuild has finished wait for that one rebuild instead of each
+    // starting their own
+    public void ensureReady() {
+        if (!ready) {
+            synchronized (rebuildMonitor) {
+                if (!ready) {
+                    rebuild();
+                }
+            }
+        }
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public void index(Course course) {
+        Long id = course.getId();
+        Facets facets = Boolean.TRUE.equals(course.getIsActive()) ? facetsOf(course) : null;
+        
+        TransactionCallbacks.afterCommit(() -> apply(() -> {
+            removeDocument(id);
+            if (facets != null) {
+                addDocument(id, facets);
+            }
+        }));
+    }
+    
+    public void remove(Long id) {
+        TransactionCallbacks.afterCommit(() -> apply(() -> removeDocument(id)));
+    }
+    
+    public List<String> categories() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(categoryCounts.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public List<String> instructors() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(instructorCounts.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public CourseFacetsResponse snapshot() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> levels = new LinkedHashMap<>();
+            for (Course.Level level : Course.Level.values()) {
+                levels.put(level.name(), levelCounts.getOrDefault(level, 0));
+            }
+            
+            List<CourseFacetsResponse.PriceRange> priceRanges = new ArrayList<>(priceBucketCounts.length);
+            for (int bucket = 0; bucket < priceBucketCounts.length; bucket++) {
+                BigDecimal min = bucket == 0 ? BigDecimal.ZERO : priceBounds.get(bucket - 1);
+                BigDecimal max = bucket < priceBounds.size() ? priceBounds.get(bucket) : null;
+                priceRanges.add(new CourseFacetsResponse.PriceRange(min, max, priceBucketCounts[bucket]));
+            }
+            
+            return new CourseFacetsResponse(new LinkedHashMap<>(categoryCounts), new LinkedHashMap<>(instructorCounts),
+                    levels, priceRanges, documents.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Changes carry the full state of one course, so replaying one the rebuild already saw is harmless
+    private void apply(Runnable change) {
+        withWriteLock(() -> {
+            change.run();
+            if (missedChanges != null) {
+                missedChanges.add(change);
+            }
+        });
+    }
+    
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private Facets facetsOf(Course course) {
+        return new Facets(course.getCategory(), course.getInstructor(), course.getLevel(), priceBucket(course.getPrice()));
+    }
+    
+    private int priceBucket(BigDecimal price) {
+        if (price == null) {
+            return -1;
+        }
+        int bucket = 0;
+        while (bucket < priceBounds.size() && price.compareTo(priceBounds.get(bucket)) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+    
+    private void addDocument(Long id, Facets facets) {
+        increment(categoryCounts, facets.category, 1);
+        increment(instructorCounts, facets.instructor, 1);
+        increment(levelCounts, facets.level, 1);
+        if (facets.priceBucket >= 0 && facets.priceBucket < priceBucketCounts.length) {
+            priceBucketCounts[facets.priceBucket]++;
+        }
+        documents.put(id, facets);
+    }
+    
+    private void removeDocument(Long id) {
+        Facets facets = documents.remove(id);
+        if (facets == null) {
+            return;
+        }
+        increment(categoryCounts, facets.category, -1);
+        increment(instructorCounts, facets.instructor, -1);
+        increment(levelCounts, facets.level, -1);
+        if (facets.priceBucket >= 0 && facets.priceBucket < priceBucketCounts.length) {
+            priceBucketCounts[facets.priceBucket]--;
+        }
+    }
+    
+    // Values whose count drops to zero disappear, so the filter lists only offer non-empty choices
+    private static <K> void increment(Map<K, Integer> counts, K key, int delta) {
+        if (key == null) {
+            return;
+        }
+        Integer count = counts.merge(key, delta, Integer::sum);
+        if (count != null && count <= 0) {
+            counts.remove(key);
+        }
+    }
+    
+    private static final class Facets {
+        
+        private final String category;
+        private final String instructor;
+        private final Course.Level level;
+        private final int priceBucket;
+        
+        private Facets(String category, String instructor, Course.Level level, int priceBucket) {
+            this.category = category;
+            this.instructor = instructor;
+            this.level = level;
+            this.priceBucket = priceBucket;
+        }
+    }
+}
\ No newline at end of file
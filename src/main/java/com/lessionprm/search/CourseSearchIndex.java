@@ -0,0 +1,217 @@
+package com.lessionprm.search;
+
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Component
+public class CourseSearchIndex {
+    
+    private static final int TITLE_WEIGHT = 5;
+    private static final int INSTRUCTOR_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_BONUS = 2;
+    
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    @Autowired
+    private CourseRepository courseRepository;
+    
+    // term -> (course id -> weight); sorted so prefix queries are a range scan
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private volatile boolean ready = false;
+    
+    // Changes committed while a rebuild reads the courses, replayed over its result; null outside a rebuild
+    private List<Runnable> missedChanges;
+    
+    // The courses are read without holding the lock, so searches keep using the previous index meanwhile
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            withWriteLock(() -> missedChanges = new ArrayList<>());
+            List<Course> activeCourses;
+            try {
+                activeCourses = courseRepository.findByIsActiveTrue();
+            } catch (RuntimeException e) {
+                withWriteLock(() -> missedChanges = null);
+                throw e;
+            }
+            
+            withWriteLock(() -> {
+                postings.clear();
+                documentTerms.clear();
+                for (Course course : activeCourses) {
+                    addDocument(course.getId(), analyze(course));
+                }
+                missedChanges.forEach(Runnable::run);
+                missedChanges = null;
+                ready = true;
+            });
+        }
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public void index(Course course) {
+        Long id = course.getId();
+        Map<String, Integer> terms = Boolean.TRUE.equals(course.getIsActive()) ? analyze(course) : null;
+        
+        TransactionCallbacks.afterCommit(() -> apply(() -> {
+            removeDocument(id);
+            if (terms != null) {
+                addDocument(id, terms);
+            }
+        }));
+    }
+    
+    public void remove(Long id) {
+        TransactionCallbacks.afterCommit(() -> apply(() -> removeDocument(id)));
+    }
+    
+    public Page<Long> search(String keyword, Pageable pageable) {
+        List<String> queryTerms = tokenize(keyword);
+        if (queryTerms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String queryTerm : queryTerms) {
+                Map<Long, Integer> termScores = new HashMap<>();
+                // Every query term is a prefix so partially typed words still match
+                for (Map.Entry<String, Map<Long, Integer>> entry :
+                        postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true).entrySet()) {
+                    int bonus = entry.getKey().length() == queryTerm.length() ? EXACT_MATCH_BONUS : 1;
+                    for (Map.Entry<Long, Integer> posting : entry.getValue().entrySet()) {
+                        termScores.merge(posting.getKey(), posting.getValue() * bonus, Math::max);
+                    }
+                }
+                
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()));
+        
+        int total = ranked.size();
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), total) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), total) : total;
+        
+        List<Long> ids = new ArrayList<>(to - from);
+        for (Map.Entry<Long, Integer> entry : ranked.subList(from, to)) {
+            ids.add(entry.getKey());
+        }
+        return new PageImpl<>(ids, pageable, total);
+    }
+    
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        
+        // Fold Vietnamese diacritics: "Lập trình Đà Nẵng" -> "lap trinh da nang"
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        folded = COMBINING_MARKS.matcher(folded).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    // Changes carry the full state of one course, so replaying one the rebuild already saw is harmless
+    private void apply(Runnable change) {
+        withWriteLock(() -> {
+            change.run();
+            if (missedChanges != null) {
+                missedChanges.add(change);
+            }
+        });
+    }
+    
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private Map<String, Integer> analyze(Course course) {
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, course.getTitle(), TITLE_WEIGHT);
+        addField(terms, course.getInstructor(), INSTRUCTOR_WEIGHT);
+        addField(terms, course.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+    
+    private void addField(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+    
+    private void addDocument(Long id, Map<String, Integer> terms) {
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(id, term.getValue());
+        }
+        documentTerms.put(id, terms.keySet());
+    }
+    
+    private void removeDocument(Long id) {
+        Set<String> terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> documents = postings.get(term);
+            if (documents != null) {
+                documents.remove(id);
+                if (documents.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,14 +1,24 @@
 package com.lessionprm.service.impl;
 
+import com.lessionprm.catalog.CatalogVersionRegistry;
+import com.lessionprm.dto.response.CourseFacetsResponse;
+import com.lessionprm.dto.response.CourseSummaryResponse;
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Course;
 import com.lessionprm.entity.User;
 import com.lessionprm.exception.BadRequestException;
 import com.lessionprm.exception.ResourceNotFoundException;
 import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.search.CourseFacetIndex;
+import com.lessionprm.search.CourseSearchIndex;
 import com.lessionprm.service.interfaces.CourseService;
 import com.lessionprm.service.interfaces.InvoiceService;
+import com.lessionprm.service.interfaces.SeatReservationService;
+import com.lessionprm.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,23 +28,43 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class CourseServiceImpl implements CourseService {
     
+    // Ids per IN list when loading search hits; SQL Server refuses statements with more than 2100 parameters
+    private static final int ID_LOOKUP_BATCH = 1000;
+    
     @Autowired
     private CourseRepository courseRepository;
     
     @Autowired
     private InvoiceService invoiceService;
     
+    @Autowired
+    private CourseSearchIndex courseSearchIndex;
+    
+    @Autowired
+    private CourseFacetIndex courseFacetIndex;
+    
+    @Autowired
+    private CatalogVersionRegistry catalogVersionRegistry;
+    
+    @Autowired
+    private SeatReservationService seatReservationService;
+    
     @Override
     public Course createCourse(Course course) {
         course.setIsActive(true);
         course.setEnrolledStudents(0);
-        return courseRepository.save(course);
+        Course savedCourse = courseRepository.save(course);
+        courseSearchIndex.index(savedCourse);
+        courseFacetIndex.index(savedCourse);
+        catalogVersionRegistry.courseChanged(savedCourse.getId());
+        return savedCourse;
     }
     
     @Override
@@ -52,7 +82,12 @@ public class CourseServiceImpl implements CourseService {
         existingCourse.setLevel(course.getLevel());
         existingCourse.setMaxStudents(course.getMaxStudents());
         
-        return courseRepository.save(existingCourse);
+        Course savedCourse = courseRepository.save(existingCourse);
+        courseSearchIndex.index(savedCourse);
+        courseFacetIndex.index(savedCourse);
+        catalogVersionRegistry.courseChanged(savedCourse.getId());
+        seatReservationService.invalidate(id);
+        return savedCourse;
     }
     
     @Override
@@ -81,8 +116,19 @@ public class CourseServiceImpl implements CourseService {
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Course> getActiveCourses(Pageable pageable) {
-        return courseRepository.findByIsActiveTrue(pageable);
+    public Page<CourseSummaryResponse> getActiveCourses(Pageable pageable) {
+        return courseRepository.findActiveSummaries(pageable);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CourseSummaryResponse> getActiveCourses(String after, int size) {
+        int limit = CursorPage.clampSize(size);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<CourseSummaryResponse> courses = cursor == null
+                ? courseRepository.findFirstActiveSummarySlice(PageRequest.of(0, limit + 1))
+                : courseRepository.findActiveSummariesAfter(cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(courses, limit, course -> new KeysetCursor(course.getCreatedAt(), course.getId()));
     }
     
     @Override
@@ -93,20 +139,20 @@ public class CourseServiceImpl implements CourseService {
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Course> getCoursesByCategory(String category, Pageable pageable) {
-        return courseRepository.findByCategory(category, pageable);
+    public Page<CourseSummaryResponse> getCoursesByCategory(String category, Pageable pageable) {
+        return courseRepository.findSummariesByCategory(category, pageable);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Course> getCoursesByInstructor(String instructor) {
-        return courseRepository.findByInstructor(instructor);
+    public List<CourseSummaryResponse> getCoursesByInstructor(String instructor) {
+        return courseRepository.findSummariesByInstructor(instructor);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Course> getCoursesByLevel(Course.Level level) {
-        return courseRepository.findByLevel(level);
+    public List<CourseSummaryResponse> getCoursesByLevel(Course.Level level) {
+        return courseRepository.findSummariesByLevel(level);
     }
     
     @Override
@@ -117,20 +163,37 @@ public class CourseServiceImpl implements CourseService {
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Course> getCoursesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
-        return courseRepository.findByPriceRange(minPrice, maxPrice, pageable);
+    public Page<CourseSummaryResponse> getCoursesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        return courseRepository.findSummariesByPriceRange(minPrice, maxPrice, pageable);
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Course> searchCourses(String keyword) {
-        return courseRepository.searchCourses(keyword);
+        if (!courseSearchIndex.isReady()) {
+            return courseRepository.searchCourses(keyword);
+        }
+        List<Long> courseIds = courseSearchIndex.search(keyword, Pageable.unpaged()).getContent();
+        List<Course> courses = new ArrayList<>(courseIds.size());
+        for (int from = 0; from < courseIds.size(); from += ID_LOOKUP_BATCH) {
+            int to = Math.min(from + ID_LOOKUP_BATCH, courseIds.size());
+            courses.addAll(courseRepository.findAllById(courseIds.subList(from, to)));
+        }
+        return inIndexOrder(courseIds, courses, Course::getId);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Course> searchCourses(String keyword, Pageable pageable) {
-        return courseRepository.searchCourses(keyword, pageable);
+    public Page<CourseSummaryResponse> searchCourses(String keyword, Pageable pageable) {
+        // The index only ranks by relevance, so an explicit sort goes to the LIKE query, which honours it; so does
+        // every search until the index has finished its startup build
+        if (!courseSearchIndex.isReady() || pageable.getSort().isSorted()) {
+            return courseRepository.searchSummaries(keyword, pageable);
+        }
+        Page<Long> courseIds = courseSearchIndex.search(keyword, pageable);
+        List<CourseSummaryResponse> courses = inIndexOrder(courseIds.getContent(),
+                courseRepository.findSummariesByIdIn(courseIds.getContent()), CourseSummaryResponse::getId);
+        return new PageImpl<>(courses, pageable, courseIds.getTotalElements());
     }
     
     @Override
@@ -139,6 +202,9 @@ public class CourseServiceImpl implements CourseService {
             throw new ResourceNotFoundException("Course not found with id: " + id);
         }
         courseRepository.deleteById(id);
+        courseSearchIndex.remove(id);
+        courseFacetIndex.remove(id);
+        catalogVersionRegistry.courseChanged(id);
     }
     
     @Override
@@ -146,7 +212,10 @@ public class CourseServiceImpl implements CourseService {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + id));
         course.setIsActive(true);
-        courseRepository.save(course);
+        Course savedCourse = courseRepository.save(course);
+        courseSearchIndex.index(savedCourse);
+        courseFacetIndex.index(savedCourse);
+        catalogVersionRegistry.courseChanged(savedCourse.getId());
     }
     
     @Override
@@ -154,19 +223,35 @@ public class CourseServiceImpl implements CourseService {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + id));
         course.setIsActive(false);
-        courseRepository.save(course);
+        Course savedCourse = courseRepository.save(course);
+        courseSearchIndex.index(savedCourse);
+        courseFacetIndex.index(savedCourse);
+        catalogVersionRegistry.courseChanged(savedCourse.getId());
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<String> getAllCategories() {
-        return courseRepository.findAllCategories();
+        if (!courseFacetIndex.isReady()) {
+            return courseRepository.findAllCategories();
+        }
+        return courseFacetIndex.categories();
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<String> getAllInstructors() {
-        return courseRepository.findAllInstructors();
+        if (!courseFacetIndex.isReady()) {
+            return courseRepository.findAllInstructors();
+        }
+        return courseFacetIndex.instructors();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CourseFacetsResponse getCourseFacets() {
+        courseFacetIndex.ensureReady();
+        return courseFacetIndex.snapshot();
     }
     
     @Override
@@ -177,12 +262,24 @@ public class CourseServiceImpl implements CourseService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Course> getAvailableCourses() {
-        return courseRepository.findAvailableCourses();
+    public List<CourseSummaryResponse> getAvailableCourses() {
+        return courseRepository.findAvailableSummaries();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countAvailableCourses() {
+        return courseRepository.countAvailableCourses();
     }
     
     @Override
     public Course enrollStudent(Long courseId) {
+        // Reserve before loading so the returned course already reflects the new seat count;
+        // an inactive course rolls the reservation back with the transaction
+        if (!seatReservationService.reserveSeat(courseId)) {
+            throw new BadRequestException("Course is full");
+        }
+        
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
         
@@ -190,25 +287,14 @@ public class CourseServiceImpl implements CourseService {
             throw new BadRequestException("Course is not active");
         }
         
-        if (course.getMaxStudents() != null && course.getEnrolledStudents() >= course.getMaxStudents()) {
-            throw new BadRequestException("Course is full");
-        }
-        
-        course.setEnrolledStudents(course.getEnrolledStudents() + 1);
-        return courseRepository.save(course);
+        return course;
     }
     
     @Override
     public Course unenrollStudent(Long courseId) {
-        Course course = courseRepository.findById(courseId)
+        seatReservationService.releaseSeat(courseId);
+        return courseRepository.findById(courseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
-        
-        if (course.getEnrolledStudents() > 0) {
-            course.setEnrolledStudents(course.getEnrolledStudents() - 1);
-            return courseRepository.save(course);
-        }
-        
-        return course;
     }
     
     @Override
@@ -286,4 +372,19 @@ public class CourseServiceImpl implements CourseService {
         System.out.println("Review added for course " + courseId + " by user " + currentUser.getUsername() + 
                           " with rating " + rating + " and comment: " + comment);
     }
+    
+    private <T> List<T> inIndexOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> rowsById = rows.stream()
+                .collect(Collectors.toMap(idOf, row -> row));
+        
+        // Keep the relevance order from the index; drop ids removed since the search ran
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T row = rowsById.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
 }
\ No newline at end of file
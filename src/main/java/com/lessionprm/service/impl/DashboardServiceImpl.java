@@ -0,0 +1,160 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.service.interfaces.CourseService;
+import com.lessionprm.service.interfaces.DashboardService;
+import com.lessionprm.service.interfaces.ExpenseService;
+import com.lessionprm.service.interfaces.InvoiceService;
+import com.lessionprm.service.interfaces.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Runs the dashboard's independent aggregates at the same time on a small bounded pool, each in its own
+// transaction, so the response takes as long as the slowest query instead of the sum. A query that fails or
+// misses queryTimeoutMillis is reported as null and listed under "unavailable" rather than failing the dashboard.
+// The same limit is the transaction timeout, which JPA passes to the driver as the statement's query timeout,
+// so a late aggregate is cancelled in the database instead of running on after the dashboard gave up on it.
+@Service
+public class DashboardServiceImpl implements DashboardService {
+    
+    @Autowired
+    private InvoiceService invoiceService;
+    
+    @Autowired
+    private CourseService courseService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Kept below the connection pool size so the dashboard cannot starve other requests of connections
+    @Value("${app.dashboard.threads:6}")
+    private int threads;
+    
+    @Value("${app.dashboard.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${app.dashboard.query-timeout-ms:3000}")
+    private long queryTimeoutMillis;
+    
+    private ThreadPoolTaskExecutor executor;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        // Transaction timeouts are whole seconds; rounding up keeps the database from cancelling before the dashboard
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queryTimeoutMillis + 999)));
+        
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.initialize();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+    
+    @Override
+    public Map<String, Object> getDashboard(LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDate expenseStartDate = startDate.toLocalDate();
+        LocalDate expenseEndDate = endDate.toLocalDate();
+        
+        // Everything is submitted before anything is awaited
+        CompletableFuture<BigDecimal> totalRevenue = query(() -> invoiceService.getTotalRevenueByDateRange(startDate, endDate));
+        CompletableFuture<Long> paidInvoices = query(() -> invoiceService.countPaidInvoicesByDateRange(startDate, endDate));
+        CompletableFuture<Long> pendingInvoices = query(() -> invoiceService.countByStatus(Invoice.Status.PENDING));
+        CompletableFuture<Long> failedInvoices = query(() -> invoiceService.countByStatus(Invoice.Status.FAILED));
+        CompletableFuture<Long> totalCourses = query(courseService::countActiveCourses);
+        CompletableFuture<Long> availableCourses = query(courseService::countAvailableCourses);
+        CompletableFuture<Long> totalUsers = query(() -> userService.countUsersByRole(User.Role.USER));
+        CompletableFuture<Long> adminUsers = query(() -> userService.countUsersByRole(User.Role.ADMIN));
+        CompletableFuture<Long> newUsers = query(() -> userService.countNewUsersBetween(startDate, endDate));
+        CompletableFuture<BigDecimal> totalExpenses = query(() ->
+                expenseService.getTotalApprovedExpensesByDateRange(expenseStartDate, expenseEndDate));
+        CompletableFuture<Long> pendingExpenses = query(() -> expenseService.countByApprovalStatus(false));
+        
+        List<String> unavailable = new ArrayList<>();
+        
+        Map<String, Object> revenue = new LinkedHashMap<>();
+        revenue.put("total", await(totalRevenue, "revenue.total", unavailable));
+        revenue.put("paidInvoices", await(paidInvoices, "revenue.paidInvoices", unavailable));
+        revenue.put("pendingInvoices", await(pendingInvoices, "revenue.pendingInvoices", unavailable));
+        revenue.put("failedInvoices", await(failedInvoices, "revenue.failedInvoices", unavailable));
+        
+        Map<String, Object> courses = new LinkedHashMap<>();
+        courses.put("total", await(totalCourses, "courses.total", unavailable));
+        courses.put("available", await(availableCourses, "courses.available", unavailable));
+        
+        Map<String, Object> users = new LinkedHashMap<>();
+        users.put("total", await(totalUsers, "users.total", unavailable));
+        users.put("admins", await(adminUsers, "users.admins", unavailable));
+        users.put("newUsers", await(newUsers, "users.newUsers", unavailable));
+        
+        Map<String, Object> expenses = new LinkedHashMap<>();
+        expenses.put("total", await(totalExpenses, "expenses.total", unavailable));
+        expenses.put("pending", await(pendingExpenses, "expenses.pending", unavailable));
+        
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        dashboard.put("revenue", revenue);
+        dashboard.put("courses", courses);
+        dashboard.put("users", users);
+        dashboard.put("expenses", expenses);
+        dashboard.put("dateRange", Map.of("start", startDate, "end", endDate));
+        if (!unavailable.isEmpty()) {
+            dashboard.put("unavailable", unavailable);
+        }
+        return dashboard;
+    }
+    
+    private <T> CompletableFuture<T> query(Supplier<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> query.get()), executor)
+                    .orTimeout(queryTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // The pool's queue is full; this figure is skipped rather than run on the request thread
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    // A late query keeps its pool thread until the database cancels it, but the dashboard no longer waits for it
+    private static <T> T await(CompletableFuture<T> future, String name, List<String> unavailable) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            unavailable.add(name);
+            return null;
+        }
+    }
+}
\ No newline at end of file
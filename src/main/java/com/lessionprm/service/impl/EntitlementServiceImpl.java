@@ -0,0 +1,198 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entitlement.CourseIdSet;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.service.interfaces.EntitlementService;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Paid course ids per active user, so purchase checks are a lookup in a CourseIdSet instead of a COUNT over
+// invoices. The local tier is a bounded LRU; entries are reloaded after localTtlMillis so purchases and refunds
+// recorded on other instances show up. With app.entitlements.redis.enabled the reload comes from a shared
+// Redis copy, and only a miss there goes to the database.
+@Service
+public class EntitlementServiceImpl implements EntitlementService {
+    
+    private static final String REDIS_PREFIX = "entitlements:";
+    
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+    
+    @Value("${app.entitlements.cache-size:10000}")
+    private int cacheSize;
+    
+    @Value("${app.entitlements.local-ttl-ms:30000}")
+    private long localTtlMillis;
+    
+    @Value("${app.entitlements.redis.enabled:false}")
+    private boolean redisEnabled;
+    
+    @Value("${app.entitlements.redis.ttl-ms:600000}")
+    private long redisTtlMillis;
+    
+    // Access-ordered so the least recently active users are dropped first
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    
+    // Bumped on every grant or revoke; a load that overlapped one is used once but not cached
+    private final AtomicLong writes = new AtomicLong();
+    
+    @Override
+    public boolean hasPurchased(Long userId, Long courseId) {
+        return courseId != null && courseIds(userId).contains(courseId);
+    }
+    
+    @Override
+    public List<Long> getPaidCourseIds(Long userId) {
+        return courseIds(userId).toList();
+    }
+    
+    @Override
+    public void granted(Long userId, Long courseId) {
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            synchronized (entries) {
+                Entry entry = entries.get(userId);
+                if (entry != null) {
+                    entries.put(userId, new Entry(entry.courseIds.with(courseId), entry.loadedAt));
+                }
+            }
+            evictShared(userId);
+        });
+    }
+    
+    // A refunded course may still be covered by another paid invoice, so the entry is reloaded rather than edited
+    @Override
+    public void revoked(Long userId) {
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            synchronized (entries) {
+                entries.remove(userId);
+            }
+            evictShared(userId);
+        });
+    }
+    
+    private CourseIdSet courseIds(Long userId) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null && !entry.isExpired(localTtlMillis)) {
+                return entry.courseIds;
+            }
+        }
+        
+        long seen = writes.get();
+        CourseIdSet courseIds = readShared(userId);
+        if (courseIds == null) {
+            courseIds = CourseIdSet.of(invoiceRepository.findPaidCourseIdsByUser(userId));
+            if (writes.get() == seen) {
+                writeShared(userId, courseIds);
+            }
+        }
+        
+        if (writes.get() == seen) {
+            synchronized (entries) {
+                entries.put(userId, new Entry(courseIds, System.currentTimeMillis()));
+            }
+        }
+        return courseIds;
+    }
+    
+    // The shared tier is an optimisation only: any Redis failure falls back to the database
+    private CourseIdSet readShared(Long userId) {
+        StringRedisTemplate redis = sharedTier();
+        if (redis == null) {
+            return null;
+        }
+        try {
+            String value = redis.opsForValue().get(REDIS_PREFIX + userId);
+            return value != null ? decode(value) : null;
+        } catch (DataAccessException | NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private void writeShared(Long userId, CourseIdSet courseIds) {
+        StringRedisTemplate redis = sharedTier();
+        if (redis == null) {
+            return;
+        }
+        try {
+            redis.opsForValue().set(REDIS_PREFIX + userId, encode(courseIds), Duration.ofMillis(redisTtlMillis));
+        } catch (DataAccessException e) {
+            // Left for the next load to fill
+        }
+    }
+    
+    private void evictShared(Long userId) {
+        StringRedisTemplate redis = sharedTier();
+        if (redis == null) {
+            return;
+        }
+        try {
+            redis.delete(REDIS_PREFIX + userId);
+        } catch (DataAccessException e) {
+            // The shared copy expires after redisTtlMillis
+        }
+    }
+    
+    private StringRedisTemplate sharedTier() {
+        return redisEnabled ? redisTemplate.getIfAvailable() : null;
+    }
+    
+    private static String encode(CourseIdSet courseIds) {
+        StringBuilder value = new StringBuilder();
+        for (Long courseId : courseIds.toList()) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(courseId);
+        }
+        return value.toString();
+    }
+    
+    private static CourseIdSet decode(String value) {
+        if (value.isEmpty()) {
+            return CourseIdSet.EMPTY;
+        }
+        List<Long> courseIds = new ArrayList<>();
+        for (String courseId : value.split(",")) {
+            courseIds.add(Long.parseLong(courseId));
+        }
+        return CourseIdSet.of(courseIds);
+    }
+    
+    private static final class Entry {
+        
+        private final CourseIdSet courseIds;
+        private final long loadedAt;
+        
+        private Entry(CourseIdSet courseIds, long loadedAt) {
+            this.courseIds = courseIds;
+            this.loadedAt = loadedAt;
+        }
+        
+        private boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
\ No newline at end of file
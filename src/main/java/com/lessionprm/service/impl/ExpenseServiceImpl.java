@@ -1,11 +1,15 @@
 package com.lessionprm.service.impl;
 
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Expense;
 import com.lessionprm.exception.ResourceNotFoundException;
+import com.lessionprm.metrics.DailyMetricsRollup;
 import com.lessionprm.repository.ExpenseRepository;
 import com.lessionprm.service.interfaces.ExpenseService;
+import com.lessionprm.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +27,9 @@ public class ExpenseServiceImpl implements ExpenseService {
     @Autowired
     private ExpenseRepository expenseRepository;
     
+    @Autowired
+    private DailyMetricsRollup dailyMetricsRollup;
+    
     @Override
     public Expense createExpense(Expense expense) {
         expense.setIsApproved(false);
@@ -34,12 +41,15 @@ public class ExpenseServiceImpl implements ExpenseService {
         Expense existingExpense = expenseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
         
+        // Moves an approved expense's amount to its new day and category
+        dailyMetricsRollup.expenseRemoved(existingExpense);
         existingExpense.setDescription(expense.getDescription());
         existingExpense.setAmount(expense.getAmount());
         existingExpense.setCategory(expense.getCategory());
         existingExpense.setDate(expense.getDate());
         existingExpense.setReceiptUrl(expense.getReceiptUrl());
         existingExpense.setNotes(expense.getNotes());
+        dailyMetricsRollup.expenseAdded(existingExpense);
         
         return expenseRepository.save(existingExpense);
     }
@@ -62,6 +72,17 @@ public class ExpenseServiceImpl implements ExpenseService {
         return expenseRepository.findAll(pageable);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Expense> getAllExpenses(String after, int size) {
+        int limit = CursorPage.clampSize(size);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<Expense> expenses = cursor == null
+                ? expenseRepository.findAllByOrderByCreatedAtDescIdDesc(PageRequest.of(0, limit + 1))
+                : expenseRepository.findExpensesAfter(cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(expenses, limit, expense -> new KeysetCursor(expense.getCreatedAt(), expense.getId()));
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<Expense> getExpensesByCategory(String category) {
@@ -103,9 +124,11 @@ public class ExpenseServiceImpl implements ExpenseService {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
         
+        dailyMetricsRollup.expenseRemoved(expense);
         expense.setIsApproved(true);
         expense.setApprovedBy(approvedBy);
         expense.setApprovedAt(LocalDateTime.now());
+        dailyMetricsRollup.expenseAdded(expense);
         
         return expenseRepository.save(expense);
     }
@@ -115,6 +138,7 @@ public class ExpenseServiceImpl implements ExpenseService {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
         
+        dailyMetricsRollup.expenseRemoved(expense);
         expense.setIsApproved(false);
         expense.setApprovedBy(null);
         expense.setApprovedAt(null);
@@ -124,17 +148,16 @@ public class ExpenseServiceImpl implements ExpenseService {
     
     @Override
     public void deleteExpense(Long id) {
-        if (!expenseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Expense not found with id: " + id);
-        }
-        expenseRepository.deleteById(id);
+        Expense expense = expenseRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
+        dailyMetricsRollup.expenseRemoved(expense);
+        expenseRepository.delete(expense);
     }
     
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getTotalApprovedExpensesByDateRange(LocalDate startDate, LocalDate endDate) {
-        BigDecimal total = expenseRepository.getTotalApprovedExpensesByDateRange(startDate, endDate);
-        return total != null ? total : BigDecimal.ZERO;
+        return dailyMetricsRollup.approvedExpenses(startDate, endDate);
     }
     
     @Override
@@ -1,25 +1,35 @@
 package com.lessionprm.service.impl;
 
+import com.lessionprm.billing.ExpiredInvoiceSweeper;
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Course;
 import com.lessionprm.entity.Invoice;
 import com.lessionprm.entity.User;
 import com.lessionprm.exception.BadRequestException;
 import com.lessionprm.exception.ResourceNotFoundException;
+import com.lessionprm.metrics.DailyMetricsRollup;
 import com.lessionprm.repository.CourseRepository;
 import com.lessionprm.repository.InvoiceRepository;
 import com.lessionprm.repository.UserRepository;
+import com.lessionprm.service.interfaces.EntitlementService;
 import com.lessionprm.service.interfaces.InvoiceService;
+import com.lessionprm.service.interfaces.SeatReservationService;
+import com.lessionprm.shared.dto.PaymentEvent;
+import com.lessionprm.shared.service.IdGenerator;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
+import com.lessionprm.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Transactional
@@ -34,6 +44,24 @@ public class InvoiceServiceImpl implements InvoiceService {
     @Autowired
     private CourseRepository courseRepository;
     
+    @Autowired
+    private SeatReservationService seatReservationService;
+    
+    @Autowired
+    private ExpiredInvoiceSweeper expiredInvoiceSweeper;
+    
+    @Autowired
+    private EntitlementService entitlementService;
+    
+    @Autowired
+    private IdGenerator idGenerator;
+    
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
+    
+    @Autowired
+    private DailyMetricsRollup dailyMetricsRollup;
+    
     @Override
     public Invoice createInvoice(Long userId, Long courseId, Invoice.PaymentMethod paymentMethod) {
         User user = userRepository.findById(userId)
@@ -51,8 +79,13 @@ public class InvoiceServiceImpl implements InvoiceService {
             throw new BadRequestException("User has already purchased this course");
         }
         
+        // The seat is held while the payment is pending and given back if the invoice fails or expires
+        if (!seatReservationService.reserveSeat(courseId)) {
+            throw new BadRequestException("Course is full");
+        }
+        
         Invoice invoice = new Invoice(user, course, course.getPrice(), paymentMethod);
-        invoice.setOrderId("ORDER_" + UUID.randomUUID().toString().replace("-", "").substring(0, 10));
+        invoice.setOrderId(idGenerator.nextId("ORDER_"));
         invoice.setStatus(Invoice.Status.PENDING);
         
         return invoiceRepository.save(invoice);
@@ -63,7 +96,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice existingInvoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
         
-        existingInvoice.setStatus(invoice.getStatus());
+        changeStatus(existingInvoice, invoice.getStatus());
         existingInvoice.setTransactionId(invoice.getTransactionId());
         existingInvoice.setPaymentUrl(invoice.getPaymentUrl());
         existingInvoice.setNotes(invoice.getNotes());
@@ -89,6 +122,17 @@ public class InvoiceServiceImpl implements InvoiceService {
         return invoiceRepository.findAll(pageable);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Invoice> getAllInvoices(String after, int size) {
+        int limit = CursorPage.clampSize(size);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<Invoice> invoices = cursor == null
+                ? invoiceRepository.findAllByOrderByCreatedAtDescIdDesc(PageRequest.of(0, limit + 1))
+                : invoiceRepository.findInvoicesAfter(cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(invoices, limit, invoice -> new KeysetCursor(invoice.getCreatedAt(), invoice.getId()));
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<Invoice> getInvoicesByUser(User user) {
@@ -136,7 +180,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
         
-        invoice.setStatus(Invoice.Status.PAID);
+        changeStatus(invoice, Invoice.Status.PAID);
         invoice.setTransactionId(transactionId);
         invoice.setPaidAt(LocalDateTime.now());
         
@@ -148,7 +192,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
         
-        invoice.setStatus(Invoice.Status.FAILED);
+        changeStatus(invoice, Invoice.Status.FAILED);
         invoice.setNotes(reason);
         
         return invoiceRepository.save(invoice);
@@ -159,7 +203,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
         
-        invoice.setStatus(Invoice.Status.REFUNDED);
+        changeStatus(invoice, Invoice.Status.REFUNDED);
         invoice.setNotes(reason);
         
         return invoiceRepository.save(invoice);
@@ -170,55 +214,56 @@ public class InvoiceServiceImpl implements InvoiceService {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
         
-        invoice.setStatus(Invoice.Status.CANCELLED);
+        changeStatus(invoice, Invoice.Status.CANCELLED);
         
         return invoiceRepository.save(invoice);
     }
     
     @Override
     public void deleteInvoice(Long id) {
-        if (!invoiceRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Invoice not found with id: " + id);
+        Invoice invoice = invoiceRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with id: " + id));
+        
+        if (holdsSeat(invoice.getStatus())) {
+            seatReservationService.releaseSeat(invoice.getCourse().getId());
         }
-        invoiceRepository.deleteById(id);
+        dailyMetricsRollup.invoiceDeleted(invoice);
+        invoiceRepository.delete(invoice);
     }
     
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getTotalRevenueByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        BigDecimal revenue = invoiceRepository.getTotalRevenueByDateRange(startDate, endDate);
-        return revenue != null ? revenue : BigDecimal.ZERO;
+        return dailyMetricsRollup.paidRevenue(startDate, endDate);
     }
     
     @Override
     @Transactional(readOnly = true)
     public long countPaidInvoicesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return invoiceRepository.countPaidInvoicesByDateRange(startDate, endDate);
+        return dailyMetricsRollup.paidCount(startDate, endDate);
     }
     
     @Override
     @Transactional(readOnly = true)
     public boolean hasUserPurchasedCourse(Long userId, Long courseId) {
-        return invoiceRepository.countPaidInvoicesByUserAndCourse(userId, courseId) > 0;
+        return entitlementService.hasPurchased(userId, courseId);
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Long> getPaidCourseIdsByUser(Long userId) {
-        return invoiceRepository.findPaidCourseIdsByUser(userId);
+        return entitlementService.getPaidCourseIds(userId);
     }
     
     @Override
-    public void processExpiredInvoices() {
-        // Process invoices that are pending for more than 24 hours
-        LocalDateTime expiryDate = LocalDateTime.now().minusHours(24);
-        List<Invoice> expiredInvoices = invoiceRepository.findExpiredInvoices(expiryDate);
-        
-        for (Invoice invoice : expiredInvoices) {
-            invoice.setStatus(Invoice.Status.CANCELLED);
-            invoice.setNotes("Automatically cancelled due to expiry");
-            invoiceRepository.save(invoice);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int processExpiredInvoices() {
+        // Each chunk commits on its own, so the sweep must not run inside this class's transaction
+        int cancelled = expiredInvoiceSweeper.sweep();
+        if (cancelled < 0) {
+            throw new BadRequestException("An expired invoice sweep is already running");
         }
+        return cancelled;
     }
     
     @Override
@@ -232,4 +277,56 @@ public class InvoiceServiceImpl implements InvoiceService {
     public List<Object[]> getPaymentMethodStatistics() {
         return invoiceRepository.getPaymentMethodStatistics();
     }
+    
+    // PENDING and PAID invoices each hold one seat of the course's capacity
+    private static boolean holdsSeat(Invoice.Status status) {
+        return status == Invoice.Status.PENDING || status == Invoice.Status.PAID;
+    }
+    
+    private void changeStatus(Invoice invoice, Invoice.Status newStatus) {
+        boolean held = holdsSeat(invoice.getStatus());
+        boolean holds = holdsSeat(newStatus);
+        Long courseId = invoice.getCourse().getId();
+        
+        if (held && !holds) {
+            seatReservationService.releaseSeat(courseId);
+        } else if (!held && holds && !seatReservationService.reserveSeat(courseId)) {
+            if (newStatus != Invoice.Status.PAID) {
+                throw new BadRequestException("Course is full");
+            }
+            // The customer has already paid, e.g. a late callback for a FAILED invoice; the payment is
+            // never refused, the course goes over capacity instead
+            seatReservationService.claimSeat(courseId);
+        }
+        
+        // Applied after commit, so a rolled-back payment never grants access
+        Long userId = invoice.getUser().getId();
+        if (newStatus == Invoice.Status.PAID && invoice.getStatus() != Invoice.Status.PAID) {
+            entitlementService.granted(userId, courseId);
+        } else if (invoice.getStatus() == Invoice.Status.PAID && newStatus != Invoice.Status.PAID) {
+            entitlementService.revoked(userId);
+        }
+        
+        if (invoice.getStatus() != newStatus) {
+            dailyMetricsRollup.invoiceStatusChanged(invoice, newStatus);
+            publishStatusChange(invoice, userId, courseId, newStatus);
+        }
+        invoice.setStatus(newStatus);
+    }
+    
+    private void publishStatusChange(Invoice invoice, Long userId, Long courseId, Invoice.Status newStatus) {
+        if (newStatus == Invoice.Status.REFUNDED) {
+            paymentEventBroadcaster.publish(userId, new PaymentEvent(PaymentEvent.Type.REFUND,
+                    invoice.getOrderId(), courseId, newStatus.name(), "Refund processed successfully"));
+            return;
+        }
+        
+        paymentEventBroadcaster.publish(userId, new PaymentEvent(PaymentEvent.Type.PAYMENT,
+                invoice.getOrderId(), courseId, newStatus.name(), null));
+        if (newStatus == Invoice.Status.PAID) {
+            // Paying for a course is what enrolls the user in it
+            paymentEventBroadcaster.publish(userId, new PaymentEvent(PaymentEvent.Type.ENROLLMENT,
+                    invoice.getOrderId(), courseId, "ENROLLED", "Enrolled in course"));
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.lessionprm.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lessionprm.config.MoMoConfig;
 import com.lessionprm.dto.request.PaymentRequest;
 import com.lessionprm.dto.response.PaymentResponse;
@@ -8,21 +7,19 @@ import com.lessionprm.entity.Invoice;
 import com.lessionprm.exception.BadRequestException;
 import com.lessionprm.service.interfaces.InvoiceService;
 import com.lessionprm.service.interfaces.PaymentService;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import com.lessionprm.shared.dto.PaymentEvent;
+import com.lessionprm.shared.exception.GatewayUnavailableException;
+import com.lessionprm.shared.service.MoMoCallbackGuard;
+import com.lessionprm.shared.service.MoMoGatewayClient;
+import com.lessionprm.shared.service.MoMoSigner;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
@@ -33,13 +30,28 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private InvoiceService invoiceService;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private MoMoGatewayClient moMoGatewayClient;
+    
+    @Autowired
+    private MoMoSigner moMoSigner;
+    
+    @Autowired
+    private MoMoCallbackGuard moMoCallbackGuard;
+    
+    @Autowired
+    private PaymentEventBroadcaster paymentEventBroadcaster;
     
     @Override
-    public PaymentResponse createMoMoPayment(PaymentRequest request) {
+    public CompletableFuture<PaymentResponse> createMoMoPayment(PaymentRequest request) {
+        // Fails fast with a 503 instead of opening an invoice the gateway cannot take
+        moMoGatewayClient.checkAvailable();
+        
+        Invoice invoice;
+        Map<String, Object> requestBody = new HashMap<>();
         try {
             // Create invoice first
-            Invoice invoice = invoiceService.createInvoice(
+            invoice = invoiceService.createInvoice(
                     request.getUserId(),
                     request.getCourseId(),
                     Invoice.PaymentMethod.MOMO
@@ -54,21 +66,20 @@ public class PaymentServiceImpl implements PaymentService {
             String requestType = "captureWallet";
             
             // Create signature
-            String rawHash = "accessKey=" + moMoConfig.getAccessKey() +
-                    "&amount=" + amount +
-                    "&extraData=" + extraData +
-                    "&ipnUrl=" + moMoConfig.getNotifyUrl() +
-                    "&orderId=" + orderId +
-                    "&orderInfo=" + orderInfo +
-                    "&partnerCode=" + moMoConfig.getPartnerCode() +
-                    "&redirectUrl=" + moMoConfig.getRedirectUrl() +
-                    "&requestId=" + requestId +
-                    "&requestType=" + requestType;
-            
-            String signature = hmacSHA256(rawHash, moMoConfig.getSecretKey());
+            String signature = moMoSigner.builder()
+                    .field("accessKey", moMoConfig.getAccessKey())
+                    .field("amount", amount)
+                    .field("extraData", extraData)
+                    .field("ipnUrl", moMoConfig.getNotifyUrl())
+                    .field("orderId", orderId)
+                    .field("orderInfo", orderInfo)
+                    .field("partnerCode", moMoConfig.getPartnerCode())
+                    .field("redirectUrl", moMoConfig.getRedirectUrl())
+                    .field("requestId", requestId)
+                    .field("requestType", requestType)
+                    .sign(moMoConfig.getSecretKey());
             
             // Prepare request body
-            Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("partnerCode", moMoConfig.getPartnerCode());
             requestBody.put("accessKey", moMoConfig.getAccessKey());
             requestBody.put("requestId", requestId);
@@ -81,48 +92,63 @@ public class PaymentServiceImpl implements PaymentService {
             requestBody.put("requestType", requestType);
             requestBody.put("signature", signature);
             requestBody.put("lang", "en");
-            
-            // Send request to MoMo
-            String responseBody = sendHttpPost(moMoConfig.getEndpoint(), requestBody);
-            
-            // Parse response
-            @SuppressWarnings("unchecked")
-            Map<String, Object> momoResponse = objectMapper.readValue(responseBody, Map.class);
-            
-            PaymentResponse response = new PaymentResponse();
-            response.setOrderId(orderId);
-            response.setInvoiceId(invoice.getId());
-            response.setAmount(request.getAmount());
-            
-            if ("0".equals(momoResponse.get("resultCode"))) {
-                response.setPaymentUrl((String) momoResponse.get("payUrl"));
-                response.setStatus("PENDING");
-                response.setMessage("Payment created successfully");
-                
-                // Update invoice with payment URL
-                invoice.setPaymentUrl(response.getPaymentUrl());
-                invoiceService.updateInvoice(invoice.getId(), invoice);
-                
-            } else {
-                response.setStatus("FAILED");
-                response.setMessage((String) momoResponse.get("message"));
-                response.setResultCode((String) momoResponse.get("resultCode"));
-            }
-            
-            return response;
-            
+        
         } catch (Exception e) {
             throw new BadRequestException("Failed to create MoMo payment: " + e.getMessage());
         }
+        
+        // Send request to MoMo; the request thread is released until the gateway answers
+        return moMoGatewayClient.post(moMoConfig.getEndpoint(), requestBody)
+                .thenApply(momoResponse -> toPaymentResponse(invoice, request, momoResponse))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof GatewayUnavailableException unavailable) {
+                        throw unavailable;
+                    }
+                    throw new BadRequestException("Failed to create MoMo payment: " + cause.getMessage());
+                });
+    }
+    
+    private PaymentResponse toPaymentResponse(Invoice invoice, PaymentRequest request, Map<String, Object> momoResponse) {
+        PaymentResponse response = new PaymentResponse();
+        response.setOrderId(invoice.getOrderId());
+        response.setInvoiceId(invoice.getId());
+        response.setAmount(request.getAmount());
+        
+        if ("0".equals(momoResponse.get("resultCode"))) {
+            response.setPaymentUrl((String) momoResponse.get("payUrl"));
+            response.setStatus("PENDING");
+            response.setMessage("Payment created successfully");
+            
+            // Update invoice with payment URL
+            invoice.setPaymentUrl(response.getPaymentUrl());
+            invoiceService.updateInvoice(invoice.getId(), invoice);
+        
+        } else {
+            response.setStatus("FAILED");
+            response.setMessage((String) momoResponse.get("message"));
+            response.setResultCode((String) momoResponse.get("resultCode"));
+        }
+        
+        return response;
     }
     
     @Override
     public PaymentResponse handleMoMoCallback(Map<String, String> params) {
+        String orderId = params.get("orderId");
+        String resultCode = params.get("resultCode");
+        String transId = params.get("transId");
+        if (orderId == null) {
+            throw new BadRequestException("Failed to process MoMo callback: missing orderId");
+        }
+        
+        // MoMo retries notifications; each (orderId, transId, resultCode) is applied once and replays get the same answer
+        return moMoCallbackGuard.process(orderId, transId, resultCode, PaymentResponse.class,
+                () -> applyMoMoCallback(orderId, resultCode, transId));
+    }
+    
+    private PaymentResponse applyMoMoCallback(String orderId, String resultCode, String transId) {
         try {
-            String orderId = params.get("orderId");
-            String resultCode = params.get("resultCode");
-            String transId = params.get("transId");
-            
             Invoice invoice = invoiceService.getInvoiceByOrderId(orderId)
                     .orElseThrow(() -> new BadRequestException("Invoice not found with orderId: " + orderId));
             
@@ -144,7 +170,7 @@ public class PaymentServiceImpl implements PaymentService {
             }
             
             return response;
-            
+        
         } catch (Exception e) {
             throw new BadRequestException("Failed to process MoMo callback: " + e.getMessage());
         }
@@ -197,15 +223,15 @@ public class PaymentServiceImpl implements PaymentService {
             String transId = invoice.getTransactionId();
             
             // Create signature for refund
-            String rawHash = "accessKey=" + moMoConfig.getAccessKey() +
-                    "&amount=" + amount +
-                    "&description=Refund for order " + orderId +
-                    "&orderId=" + orderId +
-                    "&partnerCode=" + moMoConfig.getPartnerCode() +
-                    "&requestId=" + requestId +
-                    "&transId=" + transId;
-            
-            String signature = hmacSHA256(rawHash, moMoConfig.getSecretKey());
+            String signature = moMoSigner.builder()
+                    .field("accessKey", moMoConfig.getAccessKey())
+                    .field("amount", amount)
+                    .field("description", "Refund for order " + orderId)
+                    .field("orderId", orderId)
+                    .field("partnerCode", moMoConfig.getPartnerCode())
+                    .field("requestId", requestId)
+                    .field("transId", transId)
+                    .sign(moMoConfig.getSecretKey());
             
             // Prepare refund request body
             Map<String, Object> requestBody = new HashMap<>();
@@ -220,11 +246,7 @@ public class PaymentServiceImpl implements PaymentService {
             
             // Send refund request to MoMo
             String refundEndpoint = moMoConfig.getEndpoint().replace("/create", "/refund");
-            String responseBody = sendHttpPost(refundEndpoint, requestBody);
-            
-            // Parse response
-            @SuppressWarnings("unchecked")
-            Map<String, Object> momoResponse = objectMapper.readValue(responseBody, Map.class);
+            Map<String, Object> momoResponse = moMoGatewayClient.post(refundEndpoint, requestBody).join();
             
             PaymentResponse response = new PaymentResponse();
             response.setOrderId(orderId);
@@ -241,39 +263,19 @@ public class PaymentServiceImpl implements PaymentService {
                 response.setStatus("REFUND_FAILED");
                 response.setMessage((String) momoResponse.get("message"));
                 response.setResultCode((String) momoResponse.get("resultCode"));
+                paymentEventBroadcaster.publish(invoice.getUser().getId(), new PaymentEvent(PaymentEvent.Type.REFUND,
+                        orderId, invoice.getCourse().getId(), response.getStatus(), response.getMessage()));
             }
             
             return response;
-            
-        } catch (Exception e) {
-            throw new BadRequestException("Failed to process refund: " + e.getMessage());
-        }
-    }
-    
-    private String hmacSHA256(String data, String key) throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secret_key = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        sha256_HMAC.init(secret_key);
         
-        byte[] hash = sha256_HMAC.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        StringBuilder result = new StringBuilder();
-        for (byte b : hash) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
-    }
-    
-    private String sendHttpPost(String url, Map<String, Object> requestBody) throws Exception {
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost httpPost = new HttpPost(url);
-            httpPost.setHeader("Content-Type", "application/json");
-            
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-            httpPost.setEntity(new StringEntity(jsonBody));
-            
-            try (CloseableHttpResponse response = client.execute(httpPost)) {
-                return new String(response.getEntity().getContent().readAllBytes());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GatewayUnavailableException unavailable) {
+                throw unavailable;
             }
+            throw new BadRequestException("Failed to process refund: " + e.getCause().getMessage());
+        } catch (Exception e) {
+            throw new BadRequestException("Failed to process refund: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
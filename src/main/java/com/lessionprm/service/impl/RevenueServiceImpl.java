@@ -0,0 +1,330 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Revenue;
+import com.lessionprm.exception.BadRequestException;
+import com.lessionprm.exception.ResourceNotFoundException;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.RevenueRepository;
+import com.lessionprm.service.interfaces.RevenueService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Builds the monthly revenues rows from the daily_metrics rollup rather than the fact tables, so ten years
+// is one grouped query over a few thousand rows. Each month is then written on its own fork-join task and
+// transaction. A refresh only rewrites months whose rollup rows changed since they were last computed.
+@Service
+@Transactional
+public class RevenueServiceImpl implements RevenueService {
+    
+    @Autowired
+    private RevenueRepository revenueRepository;
+    
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Kept below the connection pool size; every task holds a connection while it writes
+    @Value("${app.revenue.parallelism:4}")
+    private int parallelism;
+    
+    private ForkJoinPool pool;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        pool.shutdown();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Revenue createOrUpdateRevenue(Integer month, Integer year) {
+        generateMonthlyRevenue(month, year);
+        return revenueRepository.findByMonthAndYear(month, year)
+                .orElseThrow(() -> new ResourceNotFoundException("Revenue not found for " + month + "/" + year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Revenue> getRevenueByMonthAndYear(Integer month, Integer year) {
+        return revenueRepository.findByMonthAndYear(month, year);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Revenue> getRevenueByYear(Integer year) {
+        return revenueRepository.findByYearOrderByMonthAsc(year);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Revenue> getRevenueByYearRange(Integer startYear, Integer endYear) {
+        return revenueRepository.findByYearBetween(startYear, endYear);
+    }
+    
+    @Override
+    public Revenue updateRevenue(Long id, Revenue revenue) {
+        Revenue existingRevenue = revenueRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Revenue not found with id: " + id));
+        
+        existingRevenue.setTotalRevenue(revenue.getTotalRevenue());
+        existingRevenue.setTotalExpense(revenue.getTotalExpense());
+        existingRevenue.setCourseSalesCount(revenue.getCourseSalesCount());
+        existingRevenue.setNewUsersCount(revenue.getNewUsersCount());
+        existingRevenue.calculateProfit();
+        
+        return revenueRepository.save(existingRevenue);
+    }
+    
+    @Override
+    public void deleteRevenue(Long id) {
+        if (!revenueRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Revenue not found with id: " + id);
+        }
+        revenueRepository.deleteById(id);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenueByYear(Integer year) {
+        return orZero(revenueRepository.getTotalRevenueByYear(year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalExpenseByYear(Integer year) {
+        return orZero(revenueRepository.getTotalExpenseByYear(year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalProfitByYear(Integer year) {
+        return orZero(revenueRepository.getTotalProfitByYear(year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getYearlySummary() {
+        return revenueRepository.getYearlySummary();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Revenue> getProfitableMonths(BigDecimal minProfit) {
+        return revenueRepository.findByProfitGreaterThan(minProfit);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Revenue> getLossMonths(BigDecimal maxProfit) {
+        return revenueRepository.findByProfitLessThan(maxProfit);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getAverageMonthlyRevenueByYear(Integer year) {
+        return orZero(revenueRepository.getAverageMonthlyRevenueByYear(year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getAverageMonthlyProfitByYear(Integer year) {
+        return orZero(revenueRepository.getAverageMonthlyProfitByYear(year));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Revenue> getAllRevenuesOrderByDate() {
+        return revenueRepository.findAllOrderByYearDescMonthDesc();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countProfitableMonths() {
+        return revenueRepository.countProfitableMonths();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countLossMonths() {
+        return revenueRepository.countLossMonths();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getMaxMonthlyRevenue() {
+        return orZero(revenueRepository.getMaxMonthlyRevenue());
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getMinMonthlyRevenue() {
+        return orZero(revenueRepository.getMinMonthlyRevenue());
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void generateMonthlyRevenue(Integer month, Integer year) {
+        if (month == null || month < 1 || month > 12 || year == null) {
+            throw new BadRequestException("Invalid month: " + month + "/" + year);
+        }
+        
+        LocalDate firstDay = LocalDate.of(year, month, 1);
+        List<Object[]> totals = dailyMetricRepository.getMonthlyTotalsBetween(firstDay, firstDay.plusMonths(1));
+        writeMonth(totals.isEmpty() ? MonthTotals.empty(year, month) : MonthTotals.of(totals.get(0)));
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recalculateAllRevenues() {
+        writeMonths(collectMonths(true));
+    }
+    
+    @Override
+    @Scheduled(cron = "${app.revenue.refresh-cron:0 */15 * * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int refreshChangedRevenues() {
+        return writeMonths(collectMonths(false));
+    }
+    
+    private List<MonthTotals> collectMonths(boolean all) {
+        Map<Integer, Long> storedVersions = new HashMap<>();
+        for (Object[] row : revenueRepository.findSourceVersions()) {
+            storedVersions.put(monthKey((Integer) row[0], (Integer) row[1]), (Long) row[2]);
+        }
+        
+        List<MonthTotals> months = new ArrayList<>();
+        for (Object[] row : dailyMetricRepository.getMonthlyTotals()) {
+            MonthTotals totals = MonthTotals.of(row);
+            Long storedVersion = storedVersions.remove(monthKey(totals.year, totals.month));
+            if (all || !totals.sourceVersion.equals(storedVersion)) {
+                months.add(totals);
+            }
+        }
+        
+        // Months stored without any rollup rows behind them, e.g. from an older import, come out empty
+        for (Map.Entry<Integer, Long> stored : storedVersions.entrySet()) {
+            MonthTotals empty = MonthTotals.empty(stored.getKey() / 100, stored.getKey() % 100);
+            if (all || !empty.sourceVersion.equals(stored.getValue())) {
+                months.add(empty);
+            }
+        }
+        return months;
+    }
+    
+    private int writeMonths(List<MonthTotals> months) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (MonthTotals totals : months) {
+            tasks.add(pool.submit(() -> writeMonth(totals)));
+        }
+        // Joined in order; a failing month is rethrown only after the others were given the chance to finish
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return months.size();
+    }
+    
+    private void writeMonth(MonthTotals totals) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsertMonth(totals));
+        } catch (DataIntegrityViolationException e) {
+            // Another run inserted the month first; its row now exists and takes the update
+            transactionTemplate.executeWithoutResult(status -> upsertMonth(totals));
+        }
+    }
+    
+    private void upsertMonth(MonthTotals totals) {
+        BigDecimal profit = totals.revenue.subtract(totals.expense);
+        int updated = revenueRepository.updateMonth(totals.month, totals.year, totals.revenue, totals.expense, profit,
+                totals.courseSales, totals.newUsers, totals.sourceVersion, LocalDateTime.now());
+        if (updated > 0 || revenueRepository.existsByMonthAndYear(totals.month, totals.year)) {
+            // Written, or already holds figures from newer data
+            return;
+        }
+        
+        Revenue revenue = new Revenue(totals.month, totals.year);
+        revenue.setTotalRevenue(totals.revenue);
+        revenue.setTotalExpense(totals.expense);
+        revenue.setCourseSalesCount(totals.courseSales);
+        revenue.setNewUsersCount(totals.newUsers);
+        revenue.setSourceVersion(totals.sourceVersion);
+        revenueRepository.saveAndFlush(revenue);
+    }
+    
+    private static int monthKey(int year, int month) {
+        return year * 100 + month;
+    }
+    
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
+    private static class MonthTotals {
+        
+        private final int year;
+        private final int month;
+        private final BigDecimal revenue;
+        private final BigDecimal expense;
+        private final int courseSales;
+        private final int newUsers;
+        private final Long sourceVersion;
+        
+        private MonthTotals(int year, int month, BigDecimal revenue, BigDecimal expense,
+                            int courseSales, int newUsers, Long sourceVersion) {
+            this.year = year;
+            this.month = month;
+            this.revenue = revenue;
+            this.expense = expense;
+            this.courseSales = courseSales;
+            this.newUsers = newUsers;
+            this.sourceVersion = sourceVersion;
+        }
+        
+        // Row layout of DailyMetricRepository.MONTHLY_TOTALS_SELECT
+        private static MonthTotals of(Object[] row) {
+            return new MonthTotals(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                    orZero((BigDecimal) row[2]), orZero((BigDecimal) row[5]),
+                    ((Number) row[3]).intValue(), ((Number) row[4]).intValue(), ((Number) row[6]).longValue());
+        }
+        
+        private static MonthTotals empty(int year, int month) {
+            return new MonthTotals(year, month, BigDecimal.ZERO, BigDecimal.ZERO, 0, 0, 0L);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.catalog.CatalogVersionRegistry;
+import com.lessionprm.exception.ResourceNotFoundException;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.reservation.SeatLedger;
+import com.lessionprm.service.interfaces.SeatReservationService;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@Transactional
+public class SeatReservationServiceImpl implements SeatReservationService {
+    
+    @Autowired
+    private CourseRepository courseRepository;
+    
+    @Autowired
+    private SeatLedger seatLedger;
+    
+    @Autowired
+    private CatalogVersionRegistry catalogVersionRegistry;
+    
+    @Override
+    public boolean reserveSeat(Long courseId) {
+        if (!seatLedger.tryAcquire(courseId, () -> remainingSeats(courseId))) {
+            return false;
+        }
+        
+        boolean reserved = false;
+        try {
+            // Conditional update: the row itself refuses to go past max_students
+            reserved = courseRepository.reserveSeat(courseId) > 0;
+        } finally {
+            if (!reserved) {
+                // The ledger was optimistic; drop the entry so the next caller reloads it from the row
+                seatLedger.invalidate(courseId);
+            }
+        }
+        
+        if (reserved) {
+            TransactionCallbacks.afterRollback(() -> seatLedger.release(courseId));
+            catalogVersionRegistry.courseChanged(courseId);
+        }
+        return reserved;
+    }
+    
+    @Override
+    public void claimSeat(Long courseId) {
+        if (courseRepository.claimSeat(courseId) > 0) {
+            // The course may now be over capacity; reload the ledger entry instead of adjusting it
+            TransactionCallbacks.afterCommit(() -> seatLedger.invalidate(courseId));
+            catalogVersionRegistry.courseChanged(courseId);
+        }
+    }
+    
+    @Override
+    public void releaseSeat(Long courseId) {
+        if (courseRepository.releaseSeat(courseId) > 0) {
+            TransactionCallbacks.afterCommit(() -> seatLedger.release(courseId));
+            catalogVersionRegistry.courseChanged(courseId);
+        }
+    }
+    
+    @Override
+    public void releaseSeats(Long courseId, int seats) {
+        if (seats > 0 && courseRepository.releaseSeats(courseId, seats) > 0) {
+            // The row clamps at zero, so reload the ledger entry instead of adding seats back one by one
+            TransactionCallbacks.afterCommit(() -> seatLedger.invalidate(courseId));
+            catalogVersionRegistry.courseChanged(courseId);
+        }
+    }
+    
+    @Override
+    public void invalidate(Long courseId) {
+        TransactionCallbacks.afterCommit(() -> seatLedger.invalidate(courseId));
+    }
+    
+    private int remainingSeats(Long courseId) {
+        return courseRepository.findRemainingSeats(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
+    }
+}
\ No newline at end of file
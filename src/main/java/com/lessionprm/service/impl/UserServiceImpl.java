@@ -1,12 +1,17 @@
 package com.lessionprm.service.impl;
 
+import com.lessionprm.dto.response.CursorPage;
+import com.lessionprm.dto.response.UserSummaryResponse;
 import com.lessionprm.entity.User;
 import com.lessionprm.exception.ResourceNotFoundException;
 import com.lessionprm.exception.BadRequestException;
+import com.lessionprm.metrics.DailyMetricsRollup;
 import com.lessionprm.repository.UserRepository;
 import com.lessionprm.service.interfaces.UserService;
+import com.lessionprm.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -26,6 +31,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private DailyMetricsRollup dailyMetricsRollup;
+    
     @Override
     public User createUser(User user) {
         if (existsByUsername(user.getUsername())) {
@@ -36,7 +44,9 @@ public class UserServiceImpl implements UserService {
         }
         
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        dailyMetricsRollup.userCreated(savedUser);
+        return savedUser;
     }
     
     @Override
@@ -91,8 +101,19 @@ public class UserServiceImpl implements UserService {
     
     @Override
     @Transactional(readOnly = true)
-    public Page<User> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable);
+    public Page<UserSummaryResponse> getAllUsers(Pageable pageable) {
+        return userRepository.findSummaries(pageable);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<UserSummaryResponse> getAllUsers(String after, int size) {
+        int limit = CursorPage.clampSize(size);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<UserSummaryResponse> users = cursor == null
+                ? userRepository.findFirstSummarySlice(PageRequest.of(0, limit + 1))
+                : userRepository.findSummariesAfter(cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, limit + 1));
+        return CursorPage.of(users, limit, user -> new KeysetCursor(user.getCreatedAt(), user.getId()));
     }
     
     @Override
@@ -103,10 +124,10 @@ public class UserServiceImpl implements UserService {
     
     @Override
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found with id: " + id);
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+        dailyMetricsRollup.userDeleted(user);
+        userRepository.delete(user);
     }
     
     @Override
@@ -146,7 +167,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional(readOnly = true)
     public long countNewUsersBetween(LocalDateTime startDate, LocalDateTime endDate) {
-        return userRepository.countNewUsersBetween(startDate, endDate);
+        return dailyMetricsRollup.newUsers(startDate, endDate);
     }
     
     @Override
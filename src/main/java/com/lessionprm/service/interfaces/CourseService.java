@@ -1,5 +1,8 @@
 package com.lessionprm.service.interfaces;
 
+import com.lessionprm.dto.response.CourseFacetsResponse;
+import com.lessionprm.dto.response.CourseSummaryResponse;
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Course;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -23,23 +26,25 @@ public interface CourseService {
     
     List<Course> getActiveCourses();
     
-    Page<Course> getActiveCourses(Pageable pageable);
+    Page<CourseSummaryResponse> getActiveCourses(Pageable pageable);
+    
+    CursorPage<CourseSummaryResponse> getActiveCourses(String after, int size);
     
     List<Course> getCoursesByCategory(String category);
     
-    Page<Course> getCoursesByCategory(String category, Pageable pageable);
+    Page<CourseSummaryResponse> getCoursesByCategory(String category, Pageable pageable);
     
-    List<Course> getCoursesByInstructor(String instructor);
+    List<CourseSummaryResponse> getCoursesByInstructor(String instructor);
     
-    List<Course> getCoursesByLevel(Course.Level level);
+    List<CourseSummaryResponse> getCoursesByLevel(Course.Level level);
     
     List<Course> getCoursesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice);
     
-    Page<Course> getCoursesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+    Page<CourseSummaryResponse> getCoursesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
     
     List<Course> searchCourses(String keyword);
     
-    Page<Course> searchCourses(String keyword, Pageable pageable);
+    Page<CourseSummaryResponse> searchCourses(String keyword, Pageable pageable);
     
     void deleteCourse(Long id);
     
@@ -51,9 +56,13 @@ public interface CourseService {
     
     List<String> getAllInstructors();
     
+    CourseFacetsResponse getCourseFacets();
+    
     long countActiveCourses();
     
-    List<Course> getAvailableCourses();
+    List<CourseSummaryResponse> getAvailableCourses();
+    
+    long countAvailableCourses();
     
     void enrollUserInCourse(Long courseId);
     
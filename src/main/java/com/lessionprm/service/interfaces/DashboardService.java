@@ -0,0 +1,9 @@
+package com.lessionprm.service.interfaces;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface DashboardService {
+    
+    Map<String, Object> getDashboard(LocalDateTime startDate, LocalDateTime endDate);
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.lessionprm.service.interfaces;
+
+import java.util.List;
+
+public interface EntitlementService {
+    
+    boolean hasPurchased(Long userId, Long courseId);
+    
+    List<Long> getPaidCourseIds(Long userId);
+    
+    void granted(Long userId, Long courseId);
+    
+    void revoked(Long userId);
+}
\ No newline at end of file
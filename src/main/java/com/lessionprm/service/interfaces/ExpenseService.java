@@ -1,5 +1,6 @@
 package com.lessionprm.service.interfaces;
 
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Expense;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +22,8 @@ public interface ExpenseService {
     
     Page<Expense> getAllExpenses(Pageable pageable);
     
+    CursorPage<Expense> getAllExpenses(String after, int size);
+    
     List<Expense> getExpensesByCategory(String category);
     
     List<Expense> getApprovedExpenses();
@@ -1,5 +1,6 @@
 package com.lessionprm.service.interfaces;
 
+import com.lessionprm.dto.response.CursorPage;
 import com.lessionprm.entity.Invoice;
 import com.lessionprm.entity.User;
 import org.springframework.data.domain.Page;
@@ -22,6 +23,8 @@ public interface InvoiceService {
     
     Page<Invoice> getAllInvoices(Pageable pageable);
     
+    CursorPage<Invoice> getAllInvoices(String after, int size);
+    
     List<Invoice> getInvoicesByUser(User user);
     
     Page<Invoice> getInvoicesByUser(User user, Pageable pageable);
@@ -54,7 +57,7 @@ public interface InvoiceService {
     
     List<Long> getPaidCourseIdsByUser(Long userId);
     
-    void processExpiredInvoices();
+    int processExpiredInvoices();
     
     long countByStatus(Invoice.Status status);
     
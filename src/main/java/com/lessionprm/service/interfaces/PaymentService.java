@@ -4,10 +4,11 @@ import com.lessionprm.dto.request.PaymentRequest;
 import com.lessionprm.dto.response.PaymentResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentService {
     
-    PaymentResponse createMoMoPayment(PaymentRequest request);
+    CompletableFuture<PaymentResponse> createMoMoPayment(PaymentRequest request);
     
     PaymentResponse handleMoMoCallback(Map<String, String> params);
     
@@ -49,4 +49,6 @@ public interface RevenueService {
     void generateMonthlyRevenue(Integer month, Integer year);
     
     void recalculateAllRevenues();
+    
+    int refreshChangedRevenues();
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.lessionprm.service.interfaces;
+
+public interface SeatReservationService {
+    
+    boolean reserveSeat(Long courseId);
+    
+    void claimSeat(Long courseId);
+    
+    void releaseSeat(Long courseId);
+    
+    void releaseSeats(Long courseId, int seats);
+    
+    void invalidate(Long courseId);
+}
\ No newline at end of file
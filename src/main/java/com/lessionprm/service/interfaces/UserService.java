@@ -1,5 +1,7 @@
 package com.lessionprm.service.interfaces;
 
+import com.lessionprm.dto.response.CursorPage;
+import com.lessionprm.dto.response.UserSummaryResponse;
 import com.lessionprm.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -22,7 +24,9 @@ public interface UserService {
     
     List<User> getAllUsers();
     
-    Page<User> getAllUsers(Pageable pageable);
+    Page<UserSummaryResponse> getAllUsers(Pageable pageable);
+    
+    CursorPage<UserSummaryResponse> getAllUsers(String after, int size);
     
     List<User> getUsersByRole(User.Role role);
     
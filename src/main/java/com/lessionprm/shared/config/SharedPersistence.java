@@ -0,0 +1,13 @@
+package com.lessionprm.shared.config;
+
+// Code under com.lessionprm.shared is used by both stacks and imports neither. The payment callback table
+// it reads is mapped here, and each stack adds these packages to its own persistence unit.
+public final class SharedPersistence {
+
+    public static final String ENTITY_PACKAGE = "com.lessionprm.shared.entity";
+
+    public static final String REPOSITORY_PACKAGE = "com.lessionprm.shared.repository";
+
+    private SharedPersistence() {
+    }
+}
\ No newline at end of file
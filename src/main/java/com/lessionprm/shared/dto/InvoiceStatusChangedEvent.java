@@ -0,0 +1,46 @@
+package com.lessionprm.shared.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Published inside the transaction that changes an invoice's status, before the new status is set.
+// The daily metrics rollup listens for it, so backend payments and refunds keep the shared invoices
+// table and its rollup in step without the backend depending on the reporting code.
+public class InvoiceStatusChangedEvent {
+
+    private final Long invoiceId;
+    private final LocalDateTime createdAt;
+    private final BigDecimal amount;
+    private final String previousStatus;
+    private final String newStatus;
+
+    // Statuses travel by name, so either stack's invoice enum can be passed
+    public InvoiceStatusChangedEvent(Long invoiceId, LocalDateTime createdAt, BigDecimal amount,
+                                     Enum<?> previousStatus, Enum<?> newStatus) {
+        this.invoiceId = invoiceId;
+        this.createdAt = createdAt;
+        this.amount = amount;
+        this.previousStatus = previousStatus != null ? previousStatus.name() : null;
+        this.newStatus = newStatus != null ? newStatus.name() : null;
+    }
+
+    public Long getInvoiceId() {
+        return invoiceId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public String getNewStatus() {
+        return newStatus;
+    }
+}
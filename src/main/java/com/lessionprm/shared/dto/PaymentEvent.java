@@ -0,0 +1,77 @@
+package com.lessionprm.shared.dto;
+
+import java.time.LocalDateTime;
+
+public class PaymentEvent {
+
+    public enum Type {
+        PAYMENT, ENROLLMENT, REFUND
+    }
+
+    private Type type;
+    private String orderId;
+    private Long courseId;
+    private String status;
+    private String message;
+    private LocalDateTime occurredAt = LocalDateTime.now();
+
+    // Constructors
+    public PaymentEvent() {}
+
+    public PaymentEvent(Type type, String orderId, Long courseId, String status, String message) {
+        this.type = type;
+        this.orderId = orderId;
+        this.courseId = courseId;
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
\ No newline at end of file
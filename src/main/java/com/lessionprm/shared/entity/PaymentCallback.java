@@ -0,0 +1,156 @@
+package com.lessionprm.shared.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+// One row per distinct MoMo IPN; the unique key stops a retried notification from being applied twice.
+// Backend IPNs are stored RECEIVED with their payload and applied later by PaymentCallbackPipeline.
+@Entity
+@Table(name = "payment_callbacks", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_payment_callbacks_notification", columnNames = {"order_id", "trans_id", "result_code"})
+})
+@EntityListeners(AuditingEntityListener.class)
+public class PaymentCallback {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, length = 100)
+    private String orderId;
+
+    @Column(name = "trans_id", nullable = false, length = 100)
+    private String transId;
+
+    @Column(name = "result_code", nullable = false, length = 20)
+    private String resultCode;
+
+    // Serialized response handed back when MoMo replays the notification
+    @Column(length = 4000)
+    private String response;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PROCESSED;
+
+    // Serialized callback waiting to be applied
+    @Column(length = 4000)
+    private String payload;
+
+    @CreatedDate
+    @Column(updatable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+
+    // Failed attempts to apply the callback; it is marked FAILED once the pipeline gives up on it
+    @Column(nullable = false)
+    private int attempts;
+
+    @Version
+    private Long version;
+
+    public PaymentCallback() {}
+
+    public PaymentCallback(String orderId, String transId, String resultCode, String response) {
+        this.orderId = orderId;
+        this.transId = transId;
+        this.resultCode = resultCode;
+        this.response = response;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getTransId() {
+        return transId;
+    }
+
+    public void setTransId(String transId) {
+        this.transId = transId;
+    }
+
+    public String getResultCode() {
+        return resultCode;
+    }
+
+    public void setResultCode(String resultCode) {
+        this.resultCode = resultCode;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    public void setReceivedAt(LocalDateTime receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public enum Status {
+        RECEIVED, PROCESSED, FAILED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.lessionprm.shared.exception;
+
+// Thrown without calling the payment gateway when it is known to be failing or saturated; mapped to 503
+public class GatewayUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public GatewayUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.lessionprm.shared.repository;
+
+import com.lessionprm.shared.entity.PaymentCallback;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentCallbackRepository extends JpaRepository<PaymentCallback, Long> {
+    
+    Optional<PaymentCallback> findByOrderIdAndTransIdAndResultCode(String orderId, String transId, String resultCode);
+    
+    List<PaymentCallback> findByIdInAndStatusOrderByIdAsc(Collection<Long> ids, PaymentCallback.Status status);
+    
+    List<PaymentCallback> findTop1000ByStatusOrderByIdAsc(PaymentCallback.Status status);
+}
\ No newline at end of file
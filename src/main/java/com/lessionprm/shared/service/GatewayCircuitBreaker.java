@@ -0,0 +1,120 @@
+package com.lessionprm.shared.service;
+
+import java.util.function.LongSupplier;
+
+// Count-based sliding-window circuit breaker. Closed, it records the outcome of the last windowSize calls and opens
+// once at least minimumCalls were seen and the failure rate reaches failureRateThreshold percent. Open, every call
+// is refused until openMillis have passed; then halfOpenCalls probes are let through and the circuit closes again
+// only if all of them succeed.
+public class GatewayCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] failures;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failed;
+    private long openedAt;
+    private int probesLeft;
+    private int probesSucceeded;
+
+    public GatewayCircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold,
+                                 long openMillis, int halfOpenCalls, LongSupplier clock) {
+        this.failures = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesLeft = halfOpenCalls;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesLeft == 0) {
+                return false;
+            }
+            probesLeft--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failed * 100 >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    // Refusing early avoids writing an order that could not be paid anyway; it takes no probe permit
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+                || (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis)
+                || (state == State.HALF_OPEN && probesLeft > 0);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getRetryAfterMillis() {
+        return state == State.OPEN ? Math.max(openMillis - (clock.getAsLong() - openedAt), 0) : 0;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failures.length) {
+            if (failures[next]) {
+                failed--;
+            }
+        } else {
+            recorded++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            failed++;
+        }
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failed = 0;
+    }
+}
\ No newline at end of file
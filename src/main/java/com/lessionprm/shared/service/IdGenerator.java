@@ -0,0 +1,28 @@
+package com.lessionprm.shared.service;
+
+// Source of unique, time-ordered 64-bit ids for order and invoice numbers in both payment stacks.
+// Implementations must hand out increasing ids, so numbers issued later sort after earlier ones.
+public interface IdGenerator {
+
+    // Crockford base32 without the ambiguous I, L, O and U; its characters are in ascending ASCII order
+    char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    // 64 bits in 5-bit digits
+    int ENCODED_LENGTH = 13;
+
+    long nextId();
+
+    default String nextId(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    // Fixed width, so string order matches numeric order and new numbers land at the end of the orderId index
+    static String encode(long id) {
+        char[] digits = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            digits[i] = ALPHABET[(int) (id & 0x1f)];
+            id >>>= 5;
+        }
+        return new String(digits);
+    }
+}
\ No newline at end of file
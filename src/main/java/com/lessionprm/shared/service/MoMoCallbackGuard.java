@@ -0,0 +1,183 @@
+package com.lessionprm.shared.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.shared.entity.PaymentCallback;
+import com.lessionprm.shared.repository.PaymentCallbackRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Applies each MoMo IPN once, keyed on (orderId, transId, resultCode). Replays are answered from a bounded
+// in-memory cache or, after a restart or on another instance, from the payment_callbacks row whose unique key
+// was written in the same transaction as the state change (or, for enqueue, as the durable queue entry).
+// Callbacks for one order are serialised by a striped lock.
+@Component
+public class MoMoCallbackGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoMoCallbackGuard.class);
+
+    private static final int STRIPES = 64;
+
+    private static final String ENQUEUED = "ENQUEUED";
+
+    @Autowired
+    private PaymentCallbackRepository paymentCallbackRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.payments.callback-cache-size:10000}")
+    private int cacheSize;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    // Access-ordered so the least recently replayed notifications are dropped first
+    private final Map<String, Object> seen = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public MoMoCallbackGuard() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T process(String orderId, String transId, String resultCode, Class<T> responseType, Supplier<T> handler) {
+        String safeTransId = transId != null ? transId : "";
+        String safeResultCode = resultCode != null ? resultCode : "";
+        String key = key(orderId, safeTransId, safeResultCode);
+
+        T cached = cached(key, responseType);
+        if (cached != null) {
+            logger.debug("Duplicate MoMo callback for order ID {} answered from cache", orderId);
+            return cached;
+        }
+
+        ReentrantLock lock = locks[Math.floorMod(orderId.hashCode(), STRIPES)];
+        lock.lock();
+        try {
+            cached = cached(key, responseType);
+            if (cached != null) {
+                return cached;
+            }
+
+            Optional<PaymentCallback> recorded = recorded(orderId, safeTransId, safeResultCode);
+            if (recorded.isPresent()) {
+                T response = read(recorded.get().getResponse(), responseType);
+                remember(key, response);
+                return response;
+            }
+
+            T response;
+            try {
+                response = new TransactionTemplate(transactionManager).execute(status -> {
+                    T result = handler.get();
+                    paymentCallbackRepository.saveAndFlush(
+                            new PaymentCallback(orderId, safeTransId, safeResultCode, write(result)));
+                    return result;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another instance recorded the same notification first; its transaction carried the state change
+                logger.info("MoMo callback for order ID {} was already processed elsewhere", orderId);
+                PaymentCallback existing = recorded(orderId, safeTransId, safeResultCode).orElseThrow(() -> e);
+                response = read(existing.getResponse(), responseType);
+            }
+
+            remember(key, response);
+            return response;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stores the notification as RECEIVED for PaymentCallbackPipeline; returns null when it was already recorded
+    public PaymentCallback enqueue(String orderId, String transId, String resultCode, Object payload) {
+        String safeTransId = transId != null ? transId : "";
+        String safeResultCode = resultCode != null ? resultCode : "";
+        String key = key(orderId, safeTransId, safeResultCode);
+
+        if (cached(key, Object.class) != null) {
+            logger.debug("Duplicate MoMo callback for order ID {} already queued", orderId);
+            return null;
+        }
+
+        ReentrantLock lock = locks[Math.floorMod(orderId.hashCode(), STRIPES)];
+        lock.lock();
+        try {
+            if (cached(key, Object.class) != null || recorded(orderId, safeTransId, safeResultCode).isPresent()) {
+                remember(key, ENQUEUED);
+                return null;
+            }
+
+            PaymentCallback callback = new PaymentCallback(orderId, safeTransId, safeResultCode, null);
+            callback.setStatus(PaymentCallback.Status.RECEIVED);
+            callback.setPayload(write(payload));
+            try {
+                callback = paymentCallbackRepository.saveAndFlush(callback);
+            } catch (DataIntegrityViolationException e) {
+                logger.info("MoMo callback for order ID {} was already queued elsewhere", orderId);
+                callback = null;
+            }
+
+            remember(key, ENQUEUED);
+            return callback;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String key(String orderId, String transId, String resultCode) {
+        return orderId + '|' + transId + '|' + resultCode;
+    }
+
+    private <T> T cached(String key, Class<T> responseType) {
+        synchronized (seen) {
+            return responseType.cast(seen.get(key));
+        }
+    }
+
+    private void remember(String key, Object response) {
+        if (response != null) {
+            synchronized (seen) {
+                seen.put(key, response);
+            }
+        }
+    }
+
+    private Optional<PaymentCallback> recorded(String orderId, String transId, String resultCode) {
+        return paymentCallbackRepository.findByOrderIdAndTransIdAndResultCode(orderId, transId, resultCode);
+    }
+
+    private String write(Object response) {
+        try {
+            return response != null ? objectMapper.writeValueAsString(response) : null;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialise callback response", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> responseType) {
+        try {
+            return response != null ? objectMapper.readValue(response, responseType) : null;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read recorded callback response", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.lessionprm.shared.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.shared.exception.GatewayUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Single pooled, keep-alive HTTP client for every call to the MoMo gateway, shared by both payment stacks.
+// Every call passes a bulkhead capping concurrent gateway calls and a circuit breaker fed by transport failures,
+// timeouts and 5xx answers; either one refuses with GatewayUnavailableException instead of queueing behind a slow
+// gateway. A call that has not completed within deadlineMs, pool wait included, is cancelled.
+@Component
+public class MoMoGatewayClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoMoGatewayClient.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${momo.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${momo.http.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${momo.http.response-timeout-ms:10000}")
+    private long responseTimeoutMs;
+
+    @Value("${momo.http.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${momo.http.callback-threads:8}")
+    private int callbackThreads;
+
+    @Value("${momo.http.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+
+    @Value("${momo.http.deadline-ms:8000}")
+    private long deadlineMs;
+
+    @Value("${momo.circuit.window-size:50}")
+    private int circuitWindowSize;
+
+    @Value("${momo.circuit.minimum-calls:20}")
+    private int circuitMinimumCalls;
+
+    @Value("${momo.circuit.failure-rate-threshold:50}")
+    private int circuitFailureRateThreshold;
+
+    @Value("${momo.circuit.open-ms:30000}")
+    private long circuitOpenMs;
+
+    @Value("${momo.circuit.half-open-calls:3}")
+    private int circuitHalfOpenCalls;
+
+    private CloseableHttpAsyncClient httpClient;
+
+    private ThreadPoolTaskExecutor callbackExecutor;
+
+    private ScheduledThreadPoolExecutor deadlines;
+
+    private Semaphore bulkhead;
+
+    private GatewayCircuitBreaker circuitBreaker;
+
+    private MeterRegistry registry;
+
+    @PostConstruct
+    public void start() {
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAliveMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+        httpClient.start();
+
+        // Responses are handed off the I/O reactor so callers can safely block or touch the database
+        callbackExecutor = new ThreadPoolTaskExecutor();
+        callbackExecutor.setCorePoolSize(callbackThreads);
+        callbackExecutor.setMaxPoolSize(callbackThreads);
+        callbackExecutor.setThreadNamePrefix("momo-gateway-");
+        callbackExecutor.initialize();
+
+        deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "momo-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new GatewayCircuitBreaker(circuitWindowSize, circuitMinimumCalls,
+                circuitFailureRateThreshold, circuitOpenMs, circuitHalfOpenCalls, System::currentTimeMillis);
+
+        registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("momo.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("MoMo circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        Gauge.builder("momo.gateway.in_flight", bulkhead, permits -> maxConcurrentCalls - permits.availablePermits())
+                .description("MoMo gateway calls currently in flight")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        httpClient.close(CloseMode.GRACEFUL);
+        callbackExecutor.shutdown();
+        deadlines.shutdownNow();
+    }
+
+    // Lets callers refuse a checkout before writing anything when the gateway is known to be down
+    public void checkAvailable() {
+        if (!circuitBreaker.isCallPermitted()) {
+            throw circuitOpen();
+        }
+    }
+
+    public CompletableFuture<Map<String, Object>> post(String url, Map<String, Object> body) {
+        return send(url, body).thenApply(this::toMap);
+    }
+
+    public <T> CompletableFuture<T> post(String url, Map<String, Object> body, Class<T> responseType) {
+        return send(url, body).thenApply(responseBody -> read(responseBody, responseType));
+    }
+
+    private CompletableFuture<String> send(String url, Map<String, Object> body) {
+        String operation = url.substring(url.lastIndexOf('/') + 1);
+        SimpleHttpRequest request;
+        try {
+            request = SimpleRequestBuilder.post(url)
+                    .setBody(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON)
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // The bulkhead goes first so a refused call never takes one of the circuit's half-open probes
+        if (!bulkhead.tryAcquire()) {
+            rejected(operation, "bulkhead_full");
+            return CompletableFuture.failedFuture(new GatewayUnavailableException(
+                    "Too many payment gateway calls in progress, please retry shortly", 1));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            rejected(operation, "circuit_open");
+            return CompletableFuture.failedFuture(circuitOpen());
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long startedAt = System.nanoTime();
+        FutureCallback<SimpleHttpResponse> callback = new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                logger.debug("MoMo gateway answered {} for {}", response.getCode(), url);
+                boolean serverError = response.getCode() >= 500;
+                finish(operation, startedAt, serverError ? "server_error" : "success", !serverError);
+                callbackExecutor.execute(() -> {
+                    String responseBody = response.getBodyText();
+                    countResultCode(operation, responseBody);
+                    future.complete(responseBody);
+                });
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                logger.warn("MoMo gateway call to {} failed: {}", url, ex.getMessage());
+                finish(operation, startedAt, "error", false);
+                callbackExecutor.execute(() -> future.completeExceptionally(ex));
+            }
+
+            @Override
+            public void cancelled() {
+                // Only the deadline below cancels an exchange
+                logger.warn("MoMo gateway call to {} exceeded its {} ms deadline", url, deadlineMs);
+                finish(operation, startedAt, "timeout", false);
+                callbackExecutor.execute(() -> future.completeExceptionally(
+                        new TimeoutException("MoMo gateway did not answer within " + deadlineMs + " ms")));
+            }
+        };
+
+        Future<SimpleHttpResponse> exchange;
+        try {
+            exchange = httpClient.execute(request, callback);
+        } catch (RuntimeException e) {
+            finish(operation, startedAt, "error", false);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> exchange.cancel(true), deadlineMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((responseBody, ex) -> deadline.cancel(false));
+        return future;
+    }
+
+    private void finish(String operation, long startedAt, String outcome, boolean success) {
+        bulkhead.release();
+        if (success) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+        Timer.builder("momo.gateway.latency")
+                .description("MoMo gateway call latency")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(registry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void countResultCode(String operation, String responseBody) {
+        String resultCode;
+        try {
+            resultCode = objectMapper.readTree(responseBody).path("resultCode").asText("none");
+        } catch (Exception e) {
+            resultCode = "unreadable";
+        }
+        Counter.builder("momo.gateway.results")
+                .description("MoMo gateway answers by resultCode")
+                .tag("operation", operation)
+                .tag("resultCode", resultCode)
+                .register(registry)
+                .increment();
+    }
+
+    private void rejected(String operation, String reason) {
+        Counter.builder("momo.gateway.rejected")
+                .description("MoMo gateway calls refused without being sent")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    private GatewayUnavailableException circuitOpen() {
+        long retryAfterSeconds = Math.max(TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRetryAfterMillis()), 1);
+        return new GatewayUnavailableException("The payment gateway is temporarily unavailable, please retry in "
+                + retryAfterSeconds + " seconds", retryAfterSeconds);
+    }
+
+    private Map<String, Object> toMap(String responseBody) {
+        try {
+            return objectMapper.readValue(responseBody, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable MoMo response: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T read(String responseBody, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(responseBody, responseType);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable MoMo response: " + e.getMessage(), e);
+        }
+    }
+}
\ No newline at end of file
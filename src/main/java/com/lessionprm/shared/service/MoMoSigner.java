@@ -0,0 +1,154 @@
+package com.lessionprm.shared.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// HmacSHA256 signing for MoMo messages shared by both payment stacks. Every thread keeps its own scratch
+// buffers and a clone of the initialised Mac per secret, so signing allocates little more than the hex result.
+@Component
+public class MoMoSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Mac> prototypes = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    // MoMo signs "key=value" pairs joined with '&' in alphabetical key order; callers add fields in that order.
+    // The returned builder is the calling thread's buffer, so finish it before starting another one.
+    public Builder builder() {
+        Scratch current = scratch.get();
+        current.builder.text.setLength(0);
+        return current.builder;
+    }
+
+    private Mac prototype(String secretKey) {
+        return prototypes.computeIfAbsent(secretKey, key -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to initialise " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public final class Builder {
+
+        private final StringBuilder text = new StringBuilder(512);
+        private final Scratch owner;
+
+        private Builder(Scratch owner) {
+            this.owner = owner;
+        }
+
+        public Builder field(String name, Object value) {
+            if (text.length() > 0) {
+                text.append('&');
+            }
+            text.append(name).append('=').append(value);
+            return this;
+        }
+
+        public String sign(String secretKey) {
+            digest(secretKey);
+            encodeHex();
+            return new String(owner.hex);
+        }
+
+        // Compares every character so the time taken does not reveal how much of the signature matched.
+        // MoMo sends lowercase hex, so the signature must match exactly.
+        public boolean verify(String secretKey, String signature) {
+            if (signature == null) {
+                return false;
+            }
+            digest(secretKey);
+            encodeHex();
+
+            int difference = signature.length() ^ owner.hex.length;
+            for (int i = 0; i < owner.hex.length; i++) {
+                char actual = i < signature.length() ? signature.charAt(i) : 0;
+                difference |= owner.hex[i] ^ actual;
+            }
+            return difference == 0;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+
+        private void digest(String secretKey) {
+            Mac mac = owner.macs.computeIfAbsent(secretKey, key -> {
+                try {
+                    return (Mac) prototype(key).clone();
+                } catch (CloneNotSupportedException e) {
+                    throw new IllegalStateException(ALGORITHM + " provider does not support cloning", e);
+                }
+            });
+
+            mac.update(owner.encode(text));
+            try {
+                mac.doFinal(owner.digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to compute " + ALGORITHM, e);
+            }
+        }
+
+        private void encodeHex() {
+            byte[] digest = owner.digest;
+            char[] hex = owner.hex;
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                int b = digest[i] & 0xff;
+                hex[i * 2] = HEX[b >>> 4];
+                hex[i * 2 + 1] = HEX[b & 0x0f];
+            }
+        }
+    }
+
+    private final class Scratch {
+
+        private final Builder builder = new Builder(this);
+        private final Map<String, Mac> macs = new HashMap<>();
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+        private final char[] hex = new char[DIGEST_LENGTH * 2];
+        private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+        private ByteBuffer encode(CharSequence text) {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                encoder.reset();
+                bytes.clear();
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(bytes);
+                }
+                if (!result.isOverflow()) {
+                    bytes.flip();
+                    return bytes;
+                }
+                // Longer than any message seen so far on this thread: grow once and keep the larger buffer
+                bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+                chars.rewind();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.lessionprm.shared.service;
+
+import com.lessionprm.shared.dto.PaymentEvent;
+import com.lessionprm.shared.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory registry of Server-Sent Event subscribers, keyed by user. Idle connections are parked servlet async
+// requests, so they hold no thread; a small dispatcher pool writes to a client only when it has something queued.
+// Each client buffers at most bufferSize events and drops the oldest when a slow reader falls behind, since the
+// newest status is the one that matters. A write still blocked after writeTimeoutMs means the client stopped
+// reading: it is dropped and the pool gets a replacement thread, so one stalled socket never holds a dispatcher
+// thread that other subscribers wait on. Events are delivered only after the transaction that caused them commits.
+@Component
+public class PaymentEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventBroadcaster.class);
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.payments.events.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${app.payments.events.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    @Value("${app.payments.events.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${app.payments.events.dispatch-threads:2}")
+    private int dispatchThreads;
+
+    @Value("${app.payments.events.write-timeout-ms:5000}")
+    private long writeTimeoutMillis;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    private ThreadPoolExecutor dispatcher;
+
+    private ScheduledExecutorService watchdog;
+
+    // Dispatcher threads still stuck in a write to a dropped subscriber, each covered by an extra pool thread
+    private int stalledSends;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-events-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-events-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkEvery = Math.max(writeTimeoutMillis / 4, 10);
+        watchdog.scheduleWithFixedDelay(this::dropStalled, checkEvery, checkEvery, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("payments.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open payment event streams")
+                .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> subscriber.emitter.complete()));
+        watchdog.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(timeoutMillis), bufferSize);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(error -> remove(subscriber));
+
+        // compute keeps adding and removing a user's streams atomic with dropping the empty list
+        List<Subscriber> streams = subscribers.compute(userId, (id, current) -> {
+            List<Subscriber> list = current != null ? current : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        subscriberCount.incrementAndGet();
+
+        // A user with many tabs keeps the newest streams; the oldest one is closed and its client reconnects if needed
+        while (streams.size() > maxStreamsPerUser) {
+            Subscriber oldest = streams.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+
+        // Flushes the response headers so the client sees the stream open straight away
+        subscriber.heartbeatDue.set(true);
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    // Safe to call inside a transaction: the event is only sent if it commits
+    public void publish(Long userId, PaymentEvent event) {
+        if (userId == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> deliver(userId, event));
+    }
+
+    // Keeps proxies and load balancers from closing idle streams and detects clients that went away
+    @Scheduled(fixedRateString = "${app.payments.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (List<Subscriber> streams : subscribers.values()) {
+            for (Subscriber subscriber : streams) {
+                subscriber.heartbeatDue.set(true);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void deliver(Long userId, PaymentEvent event) {
+        List<Subscriber> streams = subscribers.get(userId);
+        if (streams == null) {
+            return;
+        }
+        for (Subscriber subscriber : streams) {
+            subscriber.offer(event);
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> flush(subscriber));
+        }
+    }
+
+    private void flush(Subscriber subscriber) {
+        try {
+            if (subscriber.heartbeatDue.getAndSet(false)) {
+                send(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+            PaymentEvent event;
+            while ((event = subscriber.poll()) != null) {
+                send(subscriber, SseEmitter.event()
+                        .id(String.valueOf(eventIds.incrementAndGet()))
+                        .name(event.getType().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+        } catch (Exception e) {
+            if (subscriber.isStalled()) {
+                // Already dropped by the watchdog; this is the stalled write finally failing
+                return;
+            }
+            // The client disconnected; the container reports it through onError/onCompletion as well
+            logger.debug("Closing payment event stream for user {}: {}", subscriber.userId, e.getMessage());
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+
+        // Anything queued while this flush was finishing would otherwise wait for the next event or heartbeat
+        if (subscriber.hasPending()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws Exception {
+        subscriber.startSend();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            if (subscriber.endSend()) {
+                resize(-1);
+            }
+        }
+    }
+
+    // Drops subscribers whose write has been blocked past the timeout and replaces the thread stuck in it
+    private void dropStalled() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        for (List<Subscriber> streams : subscribers.values()) {
+            for (Subscriber subscriber : streams) {
+                // Growing under the subscriber's lock pairs it with the shrink when the stuck send returns
+                synchronized (subscriber) {
+                    if (!subscriber.markStalled(now, timeout)) {
+                        continue;
+                    }
+                    resize(1);
+                }
+                logger.debug("Dropping payment event stream for user {}: write blocked for over {} ms",
+                        subscriber.userId, writeTimeoutMillis);
+                // Completing the emitter would wait on the lock its blocked send holds; the failed write or the
+                // async timeout ends the request instead
+                remove(subscriber);
+            }
+        }
+    }
+
+    private synchronized void resize(int delta) {
+        stalledSends += delta;
+        int size = dispatchThreads + stalledSends;
+        // The core size may never exceed the maximum, so grow the maximum first and shrink it last
+        if (delta > 0) {
+            dispatcher.setMaximumPoolSize(size);
+            dispatcher.setCorePoolSize(size);
+        } else {
+            dispatcher.setCorePoolSize(size);
+            dispatcher.setMaximumPoolSize(size);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, streams) -> {
+            if (streams.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private static final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<PaymentEvent> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private long sendStartedAt;
+        private boolean stalled;
+
+        private Subscriber(Long userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private synchronized void offer(PaymentEvent event) {
+            while (!buffer.offer(event)) {
+                buffer.poll();
+            }
+        }
+
+        private synchronized PaymentEvent poll() {
+            return buffer.poll();
+        }
+
+        private synchronized boolean hasPending() {
+            return !buffer.isEmpty() || heartbeatDue.get();
+        }
+
+        private synchronized void startSend() {
+            sendStartedAt = System.nanoTime();
+        }
+
+        // True when the watchdog gave up on this send while it was blocked
+        private synchronized boolean endSend() {
+            sendStartedAt = 0;
+            return stalled;
+        }
+
+        private synchronized boolean markStalled(long now, long timeout) {
+            if (stalled || sendStartedAt == 0 || now - sendStartedAt < timeout) {
+                return false;
+            }
+            stalled = true;
+            return true;
+        }
+
+        private synchronized boolean isStalled() {
+            return stalled;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.lessionprm.shared.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Snowflake-style ids: 41 bits of milliseconds since 2024-01-01 UTC, a 10-bit node id and a 12-bit sequence.
+// The timestamp and sequence share one AtomicLong advanced with compareAndSet, so callers never block. When a
+// millisecond's 4096 sequence values run out, or the clock steps backwards, the sequence carries into the next
+// millisecond instead of waiting, and ids stay strictly increasing.
+@Component
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeOrderedIdGenerator.class);
+
+    static final long EPOCH = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    private final LongSupplier clock;
+
+    // Milliseconds since EPOCH shifted left by SEQUENCE_BITS, plus the sequence within that millisecond
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public TimeOrderedIdGenerator(@Value("${app.ids.node-id:-1}") long nodeId) {
+        this(nodeId < 0 ? derivedNodeId() : nodeId, System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            long next = now > current >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // Fallback for single-node setups; deployments with several instances should set app.ids.node-id explicitly
+    private static long derivedNodeId() {
+        String identity;
+        try {
+            identity = InetAddress.getLocalHost().getHostName() + '/' + ManagementFactory.getRuntimeMXBean().getName();
+        } catch (Exception e) {
+            identity = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        long nodeId = Math.floorMod(identity.hashCode(), MAX_NODE_ID + 1);
+        logger.warn("app.ids.node-id is not set; using node id {} derived from {}", nodeId, identity);
+        return nodeId;
+    }
+}
\ No newline at end of file
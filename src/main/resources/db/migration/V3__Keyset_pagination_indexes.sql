@@ -0,0 +1,7 @@
+-- Keyset pagination indexes
+-- Version: 1.2.0
+-- Description: Support (created_at DESC, id DESC) seeks used by cursor-mode list endpoints
+
+CREATE INDEX idx_courses_active_created_at ON courses(is_active, created_at DESC, id DESC);
+CREATE INDEX idx_users_created_at ON users(created_at DESC, id DESC);
+CREATE INDEX idx_expenses_created_at ON expenses(created_at DESC, id DESC);
\ No newline at end of file
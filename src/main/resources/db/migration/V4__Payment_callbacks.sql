@@ -0,0 +1,13 @@
+-- Processed MoMo IPN notifications
+-- Version: 1.3.0
+-- Description: Deduplicate retried payment callbacks on (order_id, trans_id, result_code)
+
+CREATE TABLE payment_callbacks (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    order_id NVARCHAR(100) NOT NULL,
+    trans_id NVARCHAR(100) NOT NULL,
+    result_code NVARCHAR(20) NOT NULL,
+    response NVARCHAR(4000),
+    received_at DATETIME2(6),
+    CONSTRAINT uk_payment_callbacks_notification UNIQUE (order_id, trans_id, result_code)
+);
\ No newline at end of file
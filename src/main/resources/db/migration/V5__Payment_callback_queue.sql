@@ -0,0 +1,11 @@
+-- Staged MoMo IPN ingestion
+-- Version: 1.4.0
+-- Description: Let payment_callbacks double as the durable queue drained by the callback workers
+
+ALTER TABLE payment_callbacks ADD
+    status NVARCHAR(20) NOT NULL DEFAULT 'PROCESSED',
+    payload NVARCHAR(4000),
+    processed_at DATETIME2(6),
+    version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_payment_callbacks_status ON payment_callbacks(status, id);
\ No newline at end of file
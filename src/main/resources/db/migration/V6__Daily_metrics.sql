@@ -0,0 +1,45 @@
+-- Daily financial rollup
+-- Version: 1.5.0
+-- Description: Per-day revenue, refund, new user and approved expense figures, kept current by the services
+-- and repaired nightly; backfilled here from the existing rows
+
+CREATE TABLE daily_metrics (
+    metric_date DATE NOT NULL,
+    category NVARCHAR(100) NOT NULL,
+    paid_revenue DECIMAL(15,2) NOT NULL DEFAULT 0,
+    paid_count BIGINT NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    refund_count BIGINT NOT NULL DEFAULT 0,
+    new_users BIGINT NOT NULL DEFAULT 0,
+    approved_expenses DECIMAL(15,2) NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_daily_metrics PRIMARY KEY (metric_date, category)
+);
+
+-- Invoice and user figures go on the row with an empty category, together with any uncategorised expenses
+INSERT INTO daily_metrics (metric_date, category, paid_revenue, paid_count, refunded_amount, refund_count,
+                           new_users, approved_expenses)
+SELECT metric_date, N'', SUM(paid_revenue), SUM(paid_count), SUM(refunded_amount), SUM(refund_count),
+       SUM(new_users), SUM(approved_expenses)
+FROM (
+    SELECT CAST(created_at AS DATE) AS metric_date,
+           CASE WHEN status = 'PAID' THEN amount ELSE 0 END AS paid_revenue,
+           CASE WHEN status = 'PAID' THEN 1 ELSE 0 END AS paid_count,
+           CASE WHEN status = 'REFUNDED' THEN amount ELSE 0 END AS refunded_amount,
+           CASE WHEN status = 'REFUNDED' THEN 1 ELSE 0 END AS refund_count,
+           0 AS new_users,
+           0 AS approved_expenses
+    FROM invoices
+    WHERE status IN ('PAID', 'REFUNDED')
+    UNION ALL
+    SELECT CAST(created_at AS DATE), 0, 0, 0, 0, 1, 0 FROM users
+    UNION ALL
+    SELECT date, 0, 0, 0, 0, 0, amount FROM expenses WHERE is_approved = 1 AND category = N''
+) facts
+GROUP BY metric_date;
+
+INSERT INTO daily_metrics (metric_date, category, approved_expenses)
+SELECT date, category, SUM(amount)
+FROM expenses
+WHERE is_approved = 1 AND category <> N''
+GROUP BY date, category;
\ No newline at end of file
@@ -0,0 +1,30 @@
+-- Monthly revenue summaries
+-- Version: 1.6.0
+-- Description: Create the revenues table behind RevenueService where sql/schema.sql has not already done so,
+-- and record which daily_metrics data each month was computed from
+
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'revenues')
+BEGIN
+    CREATE TABLE revenues (
+        id BIGINT IDENTITY(1,1) PRIMARY KEY,
+        month INT NOT NULL,
+        year INT NOT NULL,
+        total_revenue DECIMAL(15,2) NOT NULL DEFAULT 0,
+        total_expense DECIMAL(15,2) NOT NULL DEFAULT 0,
+        profit DECIMAL(15,2) NOT NULL DEFAULT 0,
+        course_sales_count INT DEFAULT 0,
+        new_users_count INT DEFAULT 0,
+        source_version BIGINT NOT NULL DEFAULT -1,
+        created_at DATETIME2(6) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+        updated_at DATETIME2(6),
+        CONSTRAINT uq_revenues_month_year UNIQUE (month, year)
+    );
+
+    CREATE INDEX idx_revenues_year ON revenues(year);
+    CREATE INDEX idx_revenues_profit ON revenues(profit);
+END
+ELSE IF COL_LENGTH('revenues', 'source_version') IS NULL
+BEGIN
+    -- Existing rows start out stale so the first refresh recomputes them
+    ALTER TABLE revenues ADD source_version BIGINT NOT NULL DEFAULT -1;
+END
\ No newline at end of file
@@ -0,0 +1,11 @@
+-- Seat counts
+-- Version: 1.7.0
+-- Description: Recount enrolled_students from the invoices that hold a seat (PENDING and PAID), so invoices
+-- created before seats were reserved are counted and cancelling or expiring them releases a real seat
+
+UPDATE courses
+SET enrolled_students = (
+    SELECT COUNT(*)
+    FROM invoices i
+    WHERE i.course_id = courses.id AND i.status IN ('PENDING', 'PAID')
+);
\ No newline at end of file
@@ -0,0 +1,6 @@
+-- Payment callback retries
+-- Version: 1.8.0
+-- Description: Count failed attempts to apply a queued MoMo IPN, so one that keeps failing is set aside as FAILED
+-- instead of being retried forever
+
+ALTER TABLE payment_callbacks ADD attempts INT NOT NULL DEFAULT 0;
\ No newline at end of file
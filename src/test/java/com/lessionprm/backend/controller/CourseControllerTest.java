@@ -0,0 +1,154 @@
+package com.lessionprm.backend.controller;
+
+import com.lessionprm.backend.dto.course.CourseResponse;
+import com.lessionprm.backend.exception.GlobalExceptionHandler;
+import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.backend.service.CatalogVersionService;
+import com.lessionprm.backend.service.CourseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The version service is real, so cached versions carry over between requests of a test but not between tests
+@SpringJUnitWebConfig(CourseControllerTest.WebConfig.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CourseControllerTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2026, 10, 1, 10, 15, 30);
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @MockBean
+    private CourseService courseService;
+
+    @MockBean
+    private CourseRepository courseRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        when(courseService.getCourseById(7L)).thenReturn(course());
+    }
+
+    @Test
+    void courseCarriesItsVersion() throws Exception {
+        mockMvc.perform(get("/api/courses/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag()))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(jsonPath("$.id").value(7));
+    }
+
+    @Test
+    void matchingETagIsNotModifiedWithoutLoadingTheCourse() throws Exception {
+        mockMvc.perform(get("/api/courses/7")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/courses/7").header("If-None-Match", eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag()))
+                .andExpect(content().string(""));
+
+        verify(courseService, times(1)).getCourseById(7L);
+    }
+
+    @Test
+    void staleETagGetsTheCourse() throws Exception {
+        mockMvc.perform(get("/api/courses/7").header("If-None-Match", "W/\"course-7-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag()));
+    }
+
+    @Test
+    void versionOfACourseChangedWhileItLoadedIsNotCached() throws Exception {
+        when(courseService.getCourseById(7L)).thenAnswer(invocation -> {
+            catalogVersionService.courseChanged(7L);
+            return course();
+        });
+
+        mockMvc.perform(get("/api/courses/7")).andExpect(status().isOk());
+
+        verify(courseService, times(1)).getCourseById(7L);
+        mockMvc.perform(get("/api/courses/7").header("If-None-Match", eTag()))
+                .andExpect(status().isNotModified());
+        verify(courseService, times(2)).getCourseById(7L);
+    }
+
+    @Test
+    void unchangedCatalogIsNotModified() throws Exception {
+        when(courseRepository.findCatalogStamp()).thenReturn(List.<Object[]>of(new Object[]{UPDATED_AT, 3L}));
+        String catalogETag = mockMvc.perform(get("/api/courses").param("after", ""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/courses").header("If-None-Match", catalogETag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(courseService, times(1)).getCourseSlice(any(), anyInt(), any());
+        verify(courseRepository, times(1)).findCatalogStamp();
+    }
+
+    @Test
+    void courseChangeMovesTheCatalogVersion() throws Exception {
+        when(courseRepository.findCatalogStamp())
+                .thenReturn(List.<Object[]>of(new Object[]{UPDATED_AT, 3L}))
+                .thenReturn(List.<Object[]>of(new Object[]{UPDATED_AT.plusMinutes(1), 3L}));
+        String catalogETag = mockMvc.perform(get("/api/courses").param("after", ""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        catalogVersionService.courseChanged(7L);
+
+        mockMvc.perform(get("/api/courses").param("after", "").header("If-None-Match", catalogETag))
+                .andExpect(status().isOk());
+        verify(courseRepository, times(2)).findCatalogStamp();
+    }
+
+    private static CourseResponse course() {
+        CourseResponse course = new CourseResponse();
+        course.setId(7L);
+        course.setTitle("Java");
+        course.setCreatedAt(UPDATED_AT.minusDays(1));
+        course.setUpdatedAt(UPDATED_AT);
+        return course;
+    }
+
+    private static String eTag() {
+        return "W/\"course-7-" + UPDATED_AT.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + "\"";
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import({CourseController.class, CatalogVersionService.class, GlobalExceptionHandler.class})
+    static class WebConfig {
+    }
+}
@@ -0,0 +1,75 @@
+package com.lessionprm.backend.controller;
+
+import com.lessionprm.backend.config.AsyncWebConfig;
+import com.lessionprm.backend.exception.GlobalExceptionHandler;
+import com.lessionprm.backend.service.ExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitWebConfig(ExportControllerTest.WebConfig.class)
+class ExportControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @MockBean
+    private ExportService exportService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void unknownFormatIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/admin/exports/invoices").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void unknownStatusIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/admin/exports/payments").param("status", "settled"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void exportGetsTheLongAsyncTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/admin/exports/invoices")
+                        .param("format", "CSV").param("status", "paid"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(1_800_000L, result.getRequest().getAsyncContext().getTimeout());
+
+        // Lets the stream finish here rather than touch the mock during a later test
+        result.getAsyncResult(5000);
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import({AsyncWebConfig.class, ExportController.class, GlobalExceptionHandler.class})
+    static class WebConfig {
+    }
+}
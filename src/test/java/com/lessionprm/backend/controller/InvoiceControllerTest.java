@@ -0,0 +1,70 @@
+package com.lessionprm.backend.controller;
+
+import com.lessionprm.backend.exception.GlobalExceptionHandler;
+import com.lessionprm.backend.repository.InvoiceRepository;
+import com.lessionprm.backend.service.CourseLeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitWebConfig(InvoiceControllerTest.WebConfig.class)
+class InvoiceControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @MockBean
+    private InvoiceRepository invoiceRepository;
+
+    @MockBean
+    private CourseLeaderboardService courseLeaderboardService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void tamperedCursorIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/invoices").param("after", "not a cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor: not a cursor!"));
+
+        verifyNoInteractions(invoiceRepository);
+    }
+
+    @Test
+    void cursorWithoutAPositionIsABadRequest() throws Exception {
+        String token = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2026-10-01T10:15:30".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/api/invoices").param("after", token))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(invoiceRepository);
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import({InvoiceController.class, GlobalExceptionHandler.class})
+    static class WebConfig {
+    }
+}
@@ -0,0 +1,203 @@
+package com.lessionprm.backend.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.backend.dto.course.CourseResponse;
+import com.lessionprm.backend.dto.course.CourseSummaryResponse;
+import com.lessionprm.backend.dto.invoice.InvoiceResponse;
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.entity.Enrollment;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fails when a list endpoint's repository call starts lazy-loading associations row by row, or when a card
+// list starts selecting the long text columns again
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.lessionprm.backend.repository.ListQueryBudgetTest$SelectedSql"
+})
+@ActiveProfiles("test")
+class ListQueryBudgetTest {
+
+    private static final int ROWS = 20;
+
+    // One select for the page; the count query is skipped because the page is not full
+    private static final long STATEMENT_BUDGET = 1;
+
+    // Roughly a real course page: a few KB in each TEXT column
+    private static final String LONG_TEXT = "Lorem ipsum dolor sit amet. ".repeat(150);
+
+    private static final List<String> TEXT_COLUMNS = List.of(".description", ".requirements", ".what_youll_learn");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    private User student;
+
+    @BeforeEach
+    void setUp() {
+        student = entityManager.persist(new User("student@test.com", "secret", "Student", User.Role.USER));
+
+        for (int i = 0; i < ROWS; i++) {
+            User instructor = entityManager.persist(
+                    new User("instructor" + i + "@test.com", "secret", "Instructor " + i, User.Role.ADMIN));
+            Course course = new Course("Course " + i, "Description", BigDecimal.TEN, "IT", "BEGINNER", instructor);
+            course.setStatus(Course.CourseStatus.PUBLISHED);
+            course.setFeatured(true);
+            course.setEnrollmentCount(1);
+            course.setDescription(LONG_TEXT);
+            course.setRequirements(LONG_TEXT);
+            course.setWhatYoullLearn(LONG_TEXT);
+            entityManager.persist(course);
+
+            entityManager.persist(new Invoice("INV-" + i, student, course, BigDecimal.TEN, BigDecimal.TEN));
+            entityManager.persist(new Enrollment(student, course));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void publishedCoursePageStaysWithinBudget() {
+        List<CourseResponse> courses = withinBudget(() -> courseRepository
+                .findByStatus(Course.CourseStatus.PUBLISHED, PageRequest.of(0, 50))
+                .map(CourseResponse::new)
+                .getContent());
+
+        assertEquals(ROWS, courses.size());
+    }
+
+    @Test
+    void featuredAndPopularCoursesStayWithinBudget() {
+        withinBudget(() -> courseRepository.findByFeatured(true, PageRequest.of(0, 50))
+                .map(CourseResponse::new)
+                .getContent());
+        withinBudget(() -> courseRepository.findMostPopularCourses(PageRequest.of(0, 50)).stream()
+                .map(CourseResponse::new)
+                .toList());
+    }
+
+    @Test
+    void userInvoicePageStaysWithinBudget() {
+        List<InvoiceResponse> invoices = withinBudget(() -> invoiceRepository
+                .findByUser(student, PageRequest.of(0, 50))
+                .map(InvoiceResponse::new)
+                .getContent());
+
+        assertEquals(ROWS, invoices.size());
+    }
+
+    @Test
+    void userCoursesStayWithinBudget() {
+        List<CourseResponse> courses = withinBudget(() -> enrollmentRepository
+                .findActiveEnrollmentsByUser(student).stream()
+                .map(enrollment -> new CourseResponse(enrollment.getCourse()))
+                .toList());
+
+        assertEquals(ROWS, courses.size());
+    }
+
+    @Test
+    void courseCardListsStayWithinBudgetWithoutTextColumns() {
+        List<CourseSummaryResponse> page = cardsWithinBudget(() -> courseRepository
+                .findSummaries(Course.CourseStatus.PUBLISHED, null, null, PageRequest.of(0, 50))
+                .getContent());
+        List<CourseSummaryResponse> slice = cardsWithinBudget(() -> courseRepository
+                .findFirstSummarySliceByStatus(Course.CourseStatus.PUBLISHED, "IT", PageRequest.of(0, 50)));
+        cardsWithinBudget(() -> courseRepository.findSummariesByFeatured(true, PageRequest.of(0, 50)).getContent());
+        cardsWithinBudget(() -> courseRepository.findMostPopularSummaries(PageRequest.of(0, 50)));
+        List<CourseSummaryResponse> userCourses = cardsWithinBudget(() -> enrollmentRepository
+                .findActiveCourseSummariesByUser(student));
+
+        assertEquals(ROWS, page.size());
+        assertEquals(ROWS, slice.size());
+        assertEquals(ROWS, userCourses.size());
+        assertTrue(page.get(0).getInstructor() != null, "The instructor is joined into the card select");
+    }
+
+    @Test
+    void courseCardsAreAFractionOfTheFullResponse() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        byte[] full = objectMapper.writeValueAsBytes(withinBudget(() -> courseRepository
+                .findByStatus(Course.CourseStatus.PUBLISHED, PageRequest.of(0, 50))
+                .map(CourseResponse::new)
+                .getContent()));
+        byte[] cards = objectMapper.writeValueAsBytes(cardsWithinBudget(() -> courseRepository
+                .findSummaries(Course.CourseStatus.PUBLISHED, null, null, PageRequest.of(0, 50))
+                .getContent()));
+
+        // About 260 KB against 7 KB for this page
+        assertTrue(cards.length * 20L < full.length,
+                "Cards took " + cards.length + " bytes against " + full.length + " for full responses");
+    }
+
+    private List<CourseSummaryResponse> cardsWithinBudget(Supplier<List<CourseSummaryResponse>> listCall) {
+        SelectedSql.STATEMENTS.clear();
+        List<CourseSummaryResponse> result = withinBudget(listCall);
+        for (String sql : SelectedSql.STATEMENTS) {
+            // Search filters may still use the description; only the select list is checked
+            String selected = sql.substring(0, sql.indexOf(" from "));
+            for (String column : TEXT_COLUMNS) {
+                assertTrue(!selected.contains(column), "Card list selected " + column + ": " + sql);
+            }
+        }
+        return result;
+    }
+
+    private <T> T withinBudget(Supplier<T> listCall) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        T result = listCall.get();
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= STATEMENT_BUDGET,
+                "Expected at most " + STATEMENT_BUDGET + " statements but " + statements + " were executed");
+        entityManager.clear();
+        return result;
+    }
+
+    public static class SelectedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.lessionprm.backend.service;
+
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.User;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Uses a file-backed H2 database so seeded rows live on disk rather than in the heap being measured.
+// The million-row test is tagged slow and left out of the default build; run it with
+// mvn test -Pslow-tests -Dtest=ExportServiceTest, adding -DargLine=-Xmx256m to check it under a small heap
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/export-test")
+@AutoConfigureJson
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ExportService.class)
+@ActiveProfiles("test")
+class ExportServiceTest {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int SAMPLE_EVERY = 100_000;
+
+    // Far below what a million hydrated invoices take, far above one fetch batch
+    private static final long HEAP_GROWTH_BUDGET = 128L * 1024 * 1024;
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2026, 1, 15, 10, 0);
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User student;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        User instructor = entityManager.persist(new User("instructor@test.com", "secret", "Instructor", User.Role.ADMIN));
+        student = entityManager.persist(new User("student@test.com", "secret", "Student", User.Role.USER));
+        course = entityManager.persist(new Course("Java, \"the good parts\"", "Description", BigDecimal.TEN,
+                "IT", "BEGINNER", instructor));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @Tag("slow")
+    void exportsAMillionInvoicesWithFlatMemory() throws Exception {
+        entityManager.getEntityManager().createNativeQuery(
+                "INSERT INTO invoices (invoice_number, user_id, course_id, amount, total_amount, status, created_at) " +
+                "SELECT 'INV-' || X, :userId, :courseId, 100.00, 100.00, " +
+                "CASE WHEN MOD(X, 2) = 0 THEN 'PAID' ELSE 'PENDING' END, :createdAt FROM SYSTEM_RANGE(1, " + ROWS + ")")
+                .setParameter("userId", student.getId())
+                .setParameter("courseId", course.getId())
+                .setParameter("createdAt", JANUARY)
+                .executeUpdate();
+
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+
+        long[] lines = new long[1];
+        long[] maxHeapGrowth = new long[1];
+        int[] maxManagedEntities = new int[1];
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                if (b == '\n' && ++lines[0] % SAMPLE_EVERY == 0) {
+                    maxHeapGrowth[0] = Math.max(maxHeapGrowth[0], usedHeapAfterGc(memory) - baseline);
+                    maxManagedEntities[0] = Math.max(maxManagedEntities[0], session.getStatistics().getEntityCount());
+                }
+            }
+        };
+
+        long exported = exportService.writeInvoices(sink, ExportService.Format.NDJSON, null, null, null);
+
+        assertEquals(ROWS, exported);
+        assertEquals(ROWS, lines[0]);
+        assertTrue(maxManagedEntities[0] < 2_000,
+                "Persistence context grew to " + maxManagedEntities[0] + " entities");
+        assertTrue(maxHeapGrowth[0] < HEAP_GROWTH_BUDGET,
+                "Heap grew by " + maxHeapGrowth[0] / (1024 * 1024) + " MB during the export");
+    }
+
+    @Test
+    void filtersInvoicesByStatusAndDateRangeAsCsv() throws Exception {
+        insertInvoice("INV-1", Invoice.InvoiceStatus.PAID, JANUARY);
+        insertInvoice("INV-2", Invoice.InvoiceStatus.PENDING, JANUARY);
+        insertInvoice("INV-3", Invoice.InvoiceStatus.PAID, JANUARY.plusMonths(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.writeInvoices(out, ExportService.Format.CSV,
+                JANUARY.withDayOfMonth(1), JANUARY.withDayOfMonth(1).plusMonths(1), Invoice.InvoiceStatus.PAID);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(1, exported);
+        assertEquals(2, lines.length);
+        assertEquals("id,invoice_number,user_email,course_title,amount,discount_amount,total_amount,status," +
+                "payment_method,payment_transaction_id,paid_at,created_at", lines[0]);
+        assertTrue(lines[1].contains(",INV-1,student@test.com,\"Java, \"\"the good parts\"\"\",100.00,,100.00,PAID,"),
+                lines[1]);
+    }
+
+    @Test
+    void writesExpensesAsNdjson() throws Exception {
+        entityManager.getEntityManager().createNativeQuery(
+                "INSERT INTO expenses (title, description, amount, category, expense_date, created_by, created_at) " +
+                "VALUES ('Hosting', 'Line one\nline two', 250.50, 'IT', :expenseDate, :userId, :expenseDate)")
+                .setParameter("expenseDate", JANUARY)
+                .setParameter("userId", student.getId())
+                .executeUpdate();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.writeExpenses(out, ExportService.Format.NDJSON, null, null, "IT");
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, exported);
+        assertTrue(ndjson.endsWith("}\n"), ndjson);
+        assertTrue(ndjson.contains("\"description\":\"Line one\\nline two\",\"amount\":250.50,\"category\":\"IT\""),
+                ndjson);
+        assertTrue(ndjson.contains("\"created_by\":\"student@test.com\""), ndjson);
+    }
+
+    private void insertInvoice(String invoiceNumber, Invoice.InvoiceStatus status, LocalDateTime createdAt) {
+        entityManager.getEntityManager().createNativeQuery(
+                "INSERT INTO invoices (invoice_number, user_id, course_id, amount, total_amount, status, created_at) " +
+                "VALUES (:invoiceNumber, :userId, :courseId, 100.00, 100.00, :status, :createdAt)")
+                .setParameter("invoiceNumber", invoiceNumber)
+                .setParameter("userId", student.getId())
+                .setParameter("courseId", course.getId())
+                .setParameter("status", status.name())
+                .setParameter("createdAt", createdAt)
+                .executeUpdate();
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
\ No newline at end of file
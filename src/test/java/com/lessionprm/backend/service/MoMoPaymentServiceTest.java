@@ -0,0 +1,323 @@
+package com.lessionprm.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.backend.dto.payment.CreatePaymentRequest;
+import com.lessionprm.backend.dto.payment.MoMoCallbackRequest;
+import com.lessionprm.backend.dto.payment.MoMoPaymentResponse;
+import com.lessionprm.backend.entity.Course;
+import com.lessionprm.backend.entity.Invoice;
+import com.lessionprm.backend.entity.Payment;
+import com.lessionprm.backend.entity.User;
+import com.lessionprm.backend.repository.CourseRepository;
+import com.lessionprm.backend.repository.InvoiceRepository;
+import com.lessionprm.backend.repository.PaymentRepository;
+import com.lessionprm.backend.repository.UserRepository;
+import com.lessionprm.shared.entity.PaymentCallback;
+import com.lessionprm.shared.repository.PaymentCallbackRepository;
+import com.lessionprm.shared.service.MoMoCallbackGuard;
+import com.lessionprm.shared.service.MoMoGatewayClient;
+import com.lessionprm.shared.service.MoMoSigner;
+import com.lessionprm.shared.service.PaymentEventBroadcaster;
+import com.lessionprm.shared.service.TimeOrderedIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs against the pooled test datasource without a test-managed transaction, so the pool reflects what the service holds.
+// The recovery sweep is pushed out so it does not race the tests that drive the pipeline directly.
+@DataJpaTest(properties = "app.payments.callback-recovery-ms=3600000")
+@AutoConfigureJson
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({MoMoPaymentService.class, MoMoSigner.class, MoMoCallbackGuard.class, PaymentCallbackPipeline.class,
+        TimeOrderedIdGenerator.class, PaymentEventBroadcaster.class})
+@ActiveProfiles("test")
+class MoMoPaymentServiceTest {
+
+    @Autowired
+    private MoMoPaymentService moMoPaymentService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentCallbackRepository paymentCallbackRepository;
+
+    @Autowired
+    private MoMoSigner moMoSigner;
+
+    @Autowired
+    private PaymentCallbackPipeline paymentCallbackPipeline;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MoMoGatewayClient moMoGatewayClient;
+
+    @MockBean
+    private CourseLeaderboardService courseLeaderboardService;
+
+    private User student;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        User instructor = userRepository.save(new User("instructor@test.com", "secret", "Instructor", User.Role.ADMIN));
+        student = userRepository.save(new User("student@test.com", "secret", "Student", User.Role.USER));
+        course = courseRepository.save(new Course("Course", "Description", BigDecimal.TEN, "IT", "BEGINNER", instructor));
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentCallbackRepository.deleteAll();
+        paymentRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        courseRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void gatewayCallHoldsNoConnection() {
+        AtomicInteger activeConnections = new AtomicInteger(-1);
+        AtomicBoolean transactionActive = new AtomicBoolean(true);
+        when(moMoGatewayClient.post(anyString(), anyMap(), eq(MoMoPaymentResponse.class))).thenAnswer(invocation -> {
+            activeConnections.set(((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections());
+            transactionActive.set(TransactionSynchronizationManager.isActualTransactionActive());
+            return CompletableFuture.completedFuture(gatewayResponse("0"));
+        });
+
+        moMoPaymentService.createPayment(paymentRequest(), student).join();
+
+        assertEquals(0, activeConnections.get());
+        assertFalse(transactionActive.get());
+
+        Payment payment = paymentRepository.findAll().get(0);
+        assertEquals(Payment.PaymentStatus.PENDING, payment.getStatus());
+        assertEquals("signature", payment.getSignature());
+    }
+
+    @Test
+    void gatewayTimeoutMarksPaymentAndInvoiceFailed() {
+        when(moMoGatewayClient.post(anyString(), anyMap(), eq(MoMoPaymentResponse.class)))
+                .thenReturn(CompletableFuture.failedFuture(new SocketTimeoutException("Read timed out")));
+
+        CompletableFuture<MoMoPaymentResponse> result = moMoPaymentService.createPayment(paymentRequest(), student);
+
+        assertThrows(CompletionException.class, result::join);
+        Payment payment = paymentRepository.findAll().get(0);
+        assertEquals(Payment.PaymentStatus.FAILED, payment.getStatus());
+        Invoice invoice = invoiceRepository.findAll().get(0);
+        assertEquals(Invoice.InvoiceStatus.FAILED, invoice.getStatus());
+    }
+
+    @Test
+    void concurrentDuplicateCallbacksTransitionOnce() throws Exception {
+        Invoice invoice = invoiceRepository.save(new Invoice("INV-IPN", student, course, BigDecimal.TEN, BigDecimal.TEN));
+        paymentRepository.save(new Payment("ORDER-IPN", "REQ-IPN", invoice, BigDecimal.TEN));
+        MoMoCallbackRequest callback = signedCallback("ORDER-IPN", "REQ-IPN", "4088878653", "0");
+
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                moMoPaymentService.handleCallback(callback);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        // Ingestion only queues the callback; wait for the pipeline worker to apply it
+        assertEquals(1, paymentCallbackRepository.count());
+        awaitProcessed();
+
+        // Duplicates are answered by the guard, so the success is applied, and recordPayment reached, once
+        verify(courseLeaderboardService, times(1)).recordPayment(course.getId());
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findByOrderId("ORDER-IPN").orElseThrow().getStatus());
+        assertEquals(Invoice.InvoiceStatus.PAID, invoiceRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void poisonCallbackDoesNotBlockItsBatch() throws Exception {
+        Invoice goodInvoice = invoiceRepository.save(new Invoice("INV-GOOD", student, course, BigDecimal.TEN, BigDecimal.TEN));
+        paymentRepository.save(new Payment("ORDER-GOOD", "REQ-GOOD", goodInvoice, BigDecimal.TEN));
+        Invoice poisonInvoice = invoiceRepository.save(new Invoice("INV-POISON", student, course, BigDecimal.TEN, BigDecimal.TEN));
+        paymentRepository.save(new Payment("ORDER-POISON", "REQ-POISON", poisonInvoice, BigDecimal.TEN));
+
+        // A message longer than the payment column fails the flush every time it is applied
+        MoMoCallbackRequest poison = signedCallback("ORDER-POISON", "REQ-POISON", "2", "0");
+        poison.setMessage("x".repeat(300));
+        List<Long> ids = List.of(
+                queuedCallback(signedCallback("ORDER-GOOD", "REQ-GOOD", "1", "0")).getId(),
+                queuedCallback(poison).getId());
+
+        paymentCallbackPipeline.process(ids);
+
+        assertEquals(PaymentCallback.Status.PROCESSED, paymentCallbackRepository.findById(ids.get(0)).orElseThrow().getStatus());
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findByOrderId("ORDER-GOOD").orElseThrow().getStatus());
+        verify(courseLeaderboardService, times(1)).recordPayment(course.getId());
+        PaymentCallback stuck = paymentCallbackRepository.findById(ids.get(1)).orElseThrow();
+        assertEquals(PaymentCallback.Status.RECEIVED, stuck.getStatus());
+        assertEquals(1, stuck.getAttempts());
+
+        // The default limit is five attempts, after which the row is set aside instead of being swept forever
+        for (int attempt = 2; attempt <= 5; attempt++) {
+            paymentCallbackPipeline.process(List.of(ids.get(1)));
+        }
+        PaymentCallback failed = paymentCallbackRepository.findById(ids.get(1)).orElseThrow();
+        assertEquals(PaymentCallback.Status.FAILED, failed.getStatus());
+        assertEquals(5, failed.getAttempts());
+        assertEquals(Payment.PaymentStatus.PENDING, paymentRepository.findByOrderId("ORDER-POISON").orElseThrow().getStatus());
+        verify(courseLeaderboardService, times(1)).recordPayment(course.getId());
+    }
+
+    @Test
+    void failureAfterSuccessLeavesThePaymentPaid() throws Exception {
+        Invoice invoice = invoiceRepository.save(new Invoice("INV-LATE", student, course, BigDecimal.TEN, BigDecimal.TEN));
+        paymentRepository.save(new Payment("ORDER-LATE", "REQ-LATE", invoice, BigDecimal.TEN));
+        paymentCallbackPipeline.process(List.of(queuedCallback(signedCallback("ORDER-LATE", "REQ-LATE", "1", "0")).getId()));
+
+        // A different trans id and result code, so the guard lets both through to the pipeline
+        Long lateFailure = queuedCallback(signedCallback("ORDER-LATE", "REQ-LATE", "2", "1006")).getId();
+        Long secondSuccess = queuedCallback(signedCallback("ORDER-LATE", "REQ-LATE", "3", "0")).getId();
+        paymentCallbackPipeline.process(List.of(lateFailure, secondSuccess));
+
+        assertEquals(PaymentCallback.Status.PROCESSED, paymentCallbackRepository.findById(lateFailure).orElseThrow().getStatus());
+        assertEquals(PaymentCallback.Status.PROCESSED, paymentCallbackRepository.findById(secondSuccess).orElseThrow().getStatus());
+        Payment payment = paymentRepository.findByOrderId("ORDER-LATE").orElseThrow();
+        assertEquals(Payment.PaymentStatus.SUCCESS, payment.getStatus());
+        assertEquals("1", payment.getMomoTransId());
+        Invoice paid = invoiceRepository.findById(invoice.getId()).orElseThrow();
+        assertEquals(Invoice.InvoiceStatus.PAID, paid.getStatus());
+        assertEquals("1", paid.getPaymentTransactionId());
+        verify(courseLeaderboardService, times(1)).recordPayment(course.getId());
+    }
+
+    @Test
+    void lateSuccessPaysAFailedInvoice() throws Exception {
+        Invoice invoice = invoiceRepository.save(new Invoice("INV-RETRY", student, course, BigDecimal.TEN, BigDecimal.TEN));
+        paymentRepository.save(new Payment("ORDER-RETRY", "REQ-RETRY", invoice, BigDecimal.TEN));
+
+        paymentCallbackPipeline.process(List.of(queuedCallback(signedCallback("ORDER-RETRY", "REQ-RETRY", "1", "1006")).getId()));
+        assertEquals(Invoice.InvoiceStatus.FAILED, invoiceRepository.findById(invoice.getId()).orElseThrow().getStatus());
+        paymentCallbackPipeline.process(List.of(queuedCallback(signedCallback("ORDER-RETRY", "REQ-RETRY", "2", "0")).getId()));
+
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findByOrderId("ORDER-RETRY").orElseThrow().getStatus());
+        assertEquals(Invoice.InvoiceStatus.PAID, invoiceRepository.findById(invoice.getId()).orElseThrow().getStatus());
+        verify(courseLeaderboardService, times(1)).recordPayment(course.getId());
+    }
+
+    private PaymentCallback queuedCallback(MoMoCallbackRequest request) throws Exception {
+        PaymentCallback callback = new PaymentCallback(request.getOrderId(), request.getTransId(), request.getResultCode(), null);
+        callback.setStatus(PaymentCallback.Status.RECEIVED);
+        callback.setPayload(objectMapper.writeValueAsString(request));
+        return paymentCallbackRepository.save(callback);
+    }
+
+    private void awaitProcessed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (paymentCallbackRepository.findAll().get(0).getStatus() == PaymentCallback.Status.RECEIVED) {
+            assertTrue(System.currentTimeMillis() < deadline, "Callback was not applied in time");
+            Thread.sleep(50);
+        }
+    }
+
+    private MoMoCallbackRequest signedCallback(String orderId, String requestId, String transId, String resultCode) {
+        MoMoCallbackRequest callback = new MoMoCallbackRequest();
+        callback.setPartnerCode("TEST_PARTNER");
+        callback.setOrderId(orderId);
+        callback.setRequestId(requestId);
+        callback.setAmount(BigDecimal.TEN);
+        callback.setOrderInfo("Course payment");
+        callback.setOrderType("momo_wallet");
+        callback.setTransId(transId);
+        callback.setResultCode(resultCode);
+        callback.setMessage("Successful.");
+        callback.setPayType("qr");
+        callback.setResponseTime("1700000000000");
+        callback.setExtraData("");
+        callback.setSignature(moMoSigner.builder()
+                .field("accessKey", "TEST_ACCESS_KEY")
+                .field("amount", callback.getAmount())
+                .field("extraData", callback.getExtraData())
+                .field("message", callback.getMessage())
+                .field("orderId", orderId)
+                .field("orderInfo", callback.getOrderInfo())
+                .field("orderType", callback.getOrderType())
+                .field("partnerCode", callback.getPartnerCode())
+                .field("payType", callback.getPayType())
+                .field("requestId", requestId)
+                .field("responseTime", callback.getResponseTime())
+                .field("resultCode", resultCode)
+                .field("transId", transId)
+                .sign("TEST_SECRET_KEY"));
+        return callback;
+    }
+
+    private CreatePaymentRequest paymentRequest() {
+        return new CreatePaymentRequest(course.getId(), BigDecimal.TEN, "Course payment");
+    }
+
+    private MoMoPaymentResponse gatewayResponse(String resultCode) {
+        MoMoPaymentResponse response = new MoMoPaymentResponse();
+        response.setResultCode(resultCode);
+        response.setMessage("Successful.");
+        response.setSignature("signature");
+        return response;
+    }
+}
\ No newline at end of file
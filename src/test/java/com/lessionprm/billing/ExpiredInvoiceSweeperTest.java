@@ -0,0 +1,169 @@
+package com.lessionprm.billing;
+
+import com.lessionprm.catalog.CatalogVersionRegistry;
+import com.lessionprm.entity.Course;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import com.lessionprm.repository.UserRepository;
+import com.lessionprm.reservation.SeatLedger;
+import com.lessionprm.service.impl.SeatReservationServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Chunks of two ids, so a handful of invoices already spans several chunks and id gaps
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sweeper",
+        "app.invoices.sweep-chunk-size=2",
+        "app.invoices.sweep-throttle-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@Import({ExpiredInvoiceSweeper.class, SeatReservationServiceImpl.class, SeatLedger.class, CatalogVersionRegistry.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpiredInvoiceSweeperTest {
+
+    private static final LocalDateTime EXPIRED = LocalDateTime.now().minusDays(2);
+
+    @Autowired
+    private ExpiredInvoiceSweeper sweeper;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    private Course java;
+
+    private Course sql;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("student", "student@test.com", "secret", User.Role.USER));
+        java = courseRepository.save(new Course("Java", "Description", BigDecimal.TEN, "Instructor", "IT"));
+        sql = courseRepository.save(new Course("SQL", "Description", BigDecimal.TEN, "Instructor", "IT"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoiceRepository.deleteAll();
+        userRepository.deleteAll();
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    void sweepCancelsExpiredInvoicesAndReleasesTheirSeats() {
+        Long expiredJava = invoice(java, Invoice.Status.PENDING, EXPIRED);
+        Long freshJava = invoice(java, Invoice.Status.PENDING, LocalDateTime.now());
+        Long paidJava = invoice(java, Invoice.Status.PAID, EXPIRED);
+        Long expiredFailed = invoice(sql, Invoice.Status.FAILED, EXPIRED);
+        Long expiredSql = invoice(sql, Invoice.Status.PENDING, EXPIRED);
+        Long refunded = invoice(sql, Invoice.Status.REFUNDED, EXPIRED);
+        enroll(java, 3);
+        enroll(sql, 1);
+
+        assertEquals(3, sweeper.sweep());
+
+        assertEquals(Invoice.Status.CANCELLED, status(expiredJava));
+        assertEquals(Invoice.Status.CANCELLED, status(expiredFailed));
+        assertEquals(Invoice.Status.CANCELLED, status(expiredSql));
+        assertEquals(Invoice.Status.PENDING, status(freshJava));
+        assertEquals(Invoice.Status.PAID, status(paidJava));
+        assertEquals(Invoice.Status.REFUNDED, status(refunded));
+        assertEquals(ExpiredInvoiceSweeper.EXPIRY_NOTE, invoiceRepository.findById(expiredJava).orElseThrow().getNotes());
+        // Only the PENDING invoices held seats; the FAILED one had already given its seat back
+        assertEquals(2, enrolledStudents(java));
+        assertEquals(0, enrolledStudents(sql));
+
+        assertEquals(0, sweeper.sweep());
+    }
+
+    @Test
+    void nextExpiredIdSkipsLiveInvoices() {
+        invoice(java, Invoice.Status.PAID, EXPIRED);
+        invoice(java, Invoice.Status.PENDING, LocalDateTime.now());
+        Long expired = invoice(java, Invoice.Status.FAILED, EXPIRED);
+        LocalDateTime expiryDate = LocalDateTime.now().minusDays(1);
+
+        assertEquals(expired, invoiceRepository.findNextExpiredInvoiceId(0L, expiryDate));
+        assertNull(invoiceRepository.findNextExpiredInvoiceId(expired, expiryDate));
+    }
+
+    @Test
+    void bulkCancelStaysWithinItsIdRangeAndCourse() {
+        Long first = invoice(java, Invoice.Status.PENDING, EXPIRED);
+        Long second = invoice(java, Invoice.Status.PENDING, EXPIRED);
+        Long otherCourse = invoice(sql, Invoice.Status.PENDING, EXPIRED);
+        LocalDateTime expiryDate = LocalDateTime.now().minusDays(1);
+
+        int cancelled = inTransaction(() -> invoiceRepository.cancelExpiredPendingInvoices(first, first, expiryDate,
+                java.getId(), Invoice.Status.CANCELLED, ExpiredInvoiceSweeper.EXPIRY_NOTE));
+        // Status is re-checked by the update, so running it again finds nothing
+        int again = inTransaction(() -> invoiceRepository.cancelExpiredPendingInvoices(first, otherCourse, expiryDate,
+                java.getId(), Invoice.Status.CANCELLED, ExpiredInvoiceSweeper.EXPIRY_NOTE));
+
+        assertEquals(1, cancelled);
+        assertEquals(1, again);
+        assertEquals(Invoice.Status.CANCELLED, status(second));
+        assertEquals(Invoice.Status.PENDING, status(otherCourse));
+    }
+
+    private Long invoice(Course course, Invoice.Status status, LocalDateTime createdAt) {
+        Invoice invoice = new Invoice(user, course, BigDecimal.TEN, Invoice.PaymentMethod.MOMO);
+        invoice.setStatus(status);
+        Long id = invoiceRepository.save(invoice).getId();
+        // created_at is set by auditing on insert, so it is moved back afterwards
+        jdbcTemplate.update("UPDATE invoices SET created_at = ? WHERE id = ?", createdAt, id);
+        return id;
+    }
+
+    private void enroll(Course course, int seats) {
+        jdbcTemplate.update("UPDATE courses SET enrolled_students = ? WHERE id = ?", seats, course.getId());
+    }
+
+    private Invoice.Status status(Long invoiceId) {
+        return invoiceRepository.findById(invoiceId).orElseThrow().getStatus();
+    }
+
+    private int enrolledStudents(Course course) {
+        return courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudents();
+    }
+
+    private int inTransaction(IntSupplier update) {
+        return new TransactionTemplate(transactionManager).execute(status -> update.getAsInt());
+    }
+}
@@ -0,0 +1,204 @@
+package com.lessionprm.billing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.config.MoMoConfig;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.service.interfaces.PaymentService;
+import com.lessionprm.shared.service.MoMoGatewayClient;
+import com.lessionprm.shared.service.MoMoSigner;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs the reconciler against a local stub of MoMo's transaction-status API
+class PaymentReconcilerTest {
+
+    private static final int CONCURRENCY = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Map<String, Object>> gatewayAnswers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> gatewayStatuses = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private HttpServer gateway;
+    private ExecutorService gatewayThreads;
+    private MoMoGatewayClient moMoGatewayClient;
+    private InvoiceRepository invoiceRepository;
+    private PaymentService paymentService;
+    private PaymentReconciler paymentReconciler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gatewayThreads = Executors.newFixedThreadPool(16);
+        gateway = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        gateway.setExecutor(gatewayThreads);
+        gateway.createContext("/v2/gateway/api/query", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+                Thread.sleep(20);
+                String orderId = (String) request.get("orderId");
+                byte[] body = objectMapper.writeValueAsBytes(gatewayAnswers.get(orderId));
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(gatewayStatuses.getOrDefault(orderId, 200), body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        gateway.start();
+
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        moMoGatewayClient = new MoMoGatewayClient();
+        ReflectionTestUtils.setField(moMoGatewayClient, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(moMoGatewayClient, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(moMoGatewayClient, "maxConnections", 16);
+        ReflectionTestUtils.setField(moMoGatewayClient, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(moMoGatewayClient, "responseTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(moMoGatewayClient, "keepAliveMs", 30000L);
+        ReflectionTestUtils.setField(moMoGatewayClient, "callbackThreads", 4);
+        ReflectionTestUtils.setField(moMoGatewayClient, "maxConcurrentCalls", 16);
+        ReflectionTestUtils.setField(moMoGatewayClient, "deadlineMs", 5000L);
+        ReflectionTestUtils.setField(moMoGatewayClient, "circuitWindowSize", 50);
+        ReflectionTestUtils.setField(moMoGatewayClient, "circuitMinimumCalls", 20);
+        ReflectionTestUtils.setField(moMoGatewayClient, "circuitFailureRateThreshold", 50);
+        ReflectionTestUtils.setField(moMoGatewayClient, "circuitOpenMs", 30000L);
+        ReflectionTestUtils.setField(moMoGatewayClient, "circuitHalfOpenCalls", 3);
+        moMoGatewayClient.start();
+
+        MoMoConfig moMoConfig = new MoMoConfig();
+        ReflectionTestUtils.setField(moMoConfig, "partnerCode", "TEST_PARTNER");
+        ReflectionTestUtils.setField(moMoConfig, "accessKey", "TEST_ACCESS_KEY");
+        ReflectionTestUtils.setField(moMoConfig, "secretKey", "TEST_SECRET_KEY");
+        ReflectionTestUtils.setField(moMoConfig, "endpoint",
+                "http://127.0.0.1:" + gateway.getAddress().getPort() + "/v2/gateway/api/create");
+
+        invoiceRepository = mock(InvoiceRepository.class);
+        paymentService = mock(PaymentService.class);
+
+        paymentReconciler = new PaymentReconciler();
+        ReflectionTestUtils.setField(paymentReconciler, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(paymentReconciler, "paymentService", paymentService);
+        ReflectionTestUtils.setField(paymentReconciler, "moMoGatewayClient", moMoGatewayClient);
+        ReflectionTestUtils.setField(paymentReconciler, "moMoSigner", new MoMoSigner());
+        ReflectionTestUtils.setField(paymentReconciler, "moMoConfig", moMoConfig);
+        ReflectionTestUtils.setField(paymentReconciler, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(paymentReconciler, "reconcileAfterMinutes", 15L);
+        ReflectionTestUtils.setField(paymentReconciler, "pageSize", 10);
+        ReflectionTestUtils.setField(paymentReconciler, "concurrency", CONCURRENCY);
+        ReflectionTestUtils.setField(paymentReconciler, "ratePerSecond", 1000);
+        paymentReconciler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        moMoGatewayClient.stop();
+        gateway.stop(0);
+        gatewayThreads.shutdownNow();
+    }
+
+    @Test
+    void appliesFinalAnswersAndCountsTheRest() {
+        List<Invoice> invoices = new ArrayList<>();
+        invoices.add(invoice(1L, "ORDER_PAID", Map.of("resultCode", 0, "amount", 150000, "transId", 4088878653L)));
+        invoices.add(invoice(2L, "ORDER_DENIED", Map.of("resultCode", 1006, "message", "User denied")));
+        invoices.add(invoice(3L, "ORDER_WAITING", Map.of("resultCode", 1000)));
+        invoices.add(invoice(4L, "ORDER_SHORT", Map.of("resultCode", 0, "amount", 1000, "transId", 4088878654L)));
+        when(invoiceRepository.findPendingMoMoInvoices(eq(0L), any(), any())).thenReturn(invoices);
+
+        Map<PaymentReconciler.Outcome, Integer> outcomes = paymentReconciler.run();
+
+        assertEquals(2, outcomes.get(PaymentReconciler.Outcome.FIXED));
+        assertEquals(1, outcomes.get(PaymentReconciler.Outcome.PENDING));
+        assertEquals(1, outcomes.get(PaymentReconciler.Outcome.MISMATCHED));
+        assertEquals(0, outcomes.get(PaymentReconciler.Outcome.ERROR));
+
+        // Corrections go through the same entry point as MoMo's own notifications
+        verify(paymentService).handleMoMoCallback(argThat(params -> "ORDER_PAID".equals(params.get("orderId"))
+                && "0".equals(params.get("resultCode")) && "4088878653".equals(params.get("transId"))));
+        verify(paymentService).handleMoMoCallback(argThat(params -> "ORDER_DENIED".equals(params.get("orderId"))
+                && "1006".equals(params.get("resultCode"))));
+        verify(paymentService, times(2)).handleMoMoCallback(anyMap());
+    }
+
+    @Test
+    void gatewayErrorsLeaveTheInvoicePending() {
+        List<Invoice> invoices = new ArrayList<>();
+        invoices.add(invoice(1L, "ORDER_SYSTEM_ERROR", Map.of("resultCode", 99, "message", "Unknown error")));
+        invoices.add(invoice(2L, "ORDER_BAD_SIGNATURE", Map.of("resultCode", 13, "message", "Merchant auth failed")));
+        invoices.add(invoice(3L, "ORDER_NO_CODE", Map.of("message", "Bad request")));
+        invoices.add(invoice(4L, "ORDER_GATEWAY_DOWN", Map.of("message", "Internal Server Error")));
+        gatewayStatuses.put("ORDER_GATEWAY_DOWN", 500);
+        when(invoiceRepository.findPendingMoMoInvoices(eq(0L), any(), any())).thenReturn(invoices);
+
+        Map<PaymentReconciler.Outcome, Integer> outcomes = paymentReconciler.run();
+
+        // None of these says anything about the payment, so none may fail the invoice
+        assertEquals(4, outcomes.get(PaymentReconciler.Outcome.ERROR));
+        assertEquals(0, outcomes.get(PaymentReconciler.Outcome.FIXED));
+        verify(paymentService, never()).handleMoMoCallback(anyMap());
+    }
+
+    @Test
+    void pagesThroughInvoicesWithBoundedConcurrency() {
+        List<Invoice> firstPage = new ArrayList<>();
+        List<Invoice> secondPage = new ArrayList<>();
+        for (long id = 1; id <= 15; id++) {
+            Invoice invoice = invoice(id, "ORDER_" + id, Map.of("resultCode", 1000));
+            (id <= 10 ? firstPage : secondPage).add(invoice);
+        }
+        when(invoiceRepository.findPendingMoMoInvoices(eq(0L), any(), any())).thenReturn(firstPage);
+        when(invoiceRepository.findPendingMoMoInvoices(eq(10L), any(), any())).thenReturn(secondPage);
+
+        Map<PaymentReconciler.Outcome, Integer> outcomes = paymentReconciler.run();
+
+        assertEquals(15, outcomes.get(PaymentReconciler.Outcome.PENDING));
+        assertTrue(maxInFlight.get() <= CONCURRENCY, "At most " + CONCURRENCY + " queries may be in flight");
+        verify(paymentService, never()).handleMoMoCallback(anyMap());
+    }
+
+    private Invoice invoice(Long id, String orderId, Map<String, Object> gatewayAnswer) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setOrderId(orderId);
+        invoice.setAmount(BigDecimal.valueOf(150000));
+        gatewayAnswers.put(orderId, gatewayAnswer);
+        return invoice;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.lessionprm.catalog;
+
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Reads the catalog stamp from the main stack's own courses mapping. Writes commit on their own, so a
+// course change is seen by the registry straight away.
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:catalog")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@Import(CatalogVersionRegistry.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogVersionRegistryTest {
+
+    @Autowired
+    private CatalogVersionRegistry registry;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @AfterEach
+    void tearDown() {
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    void catalogVersionIsCachedUntilACourseChanges() {
+        courseRepository.save(new Course("Java", "Description", BigDecimal.TEN, "Instructor", "IT"));
+        String first = registry.catalog().getETag();
+
+        Course added = courseRepository.save(new Course("SQL", "Description", BigDecimal.TEN, "Instructor", "IT"));
+        assertEquals(first, registry.catalog().getETag());
+
+        registry.courseChanged(added.getId());
+        assertNotEquals(first, registry.catalog().getETag());
+    }
+
+    @Test
+    void courseChangedWhileLoadingIsNotCached() {
+        Course course = courseRepository.save(new Course("Java", "Description", BigDecimal.TEN, "Instructor", "IT"));
+
+        long changeCount = registry.changeCount();
+        registry.courseChanged(course.getId());
+        CatalogVersionRegistry.Version stale = registry.record(course, changeCount);
+
+        assertEquals("W/\"course-" + course.getId() + "-" + stale.getLastModified() + "\"", stale.getETag());
+        assertNull(registry.course(course.getId()));
+
+        registry.record(course, registry.changeCount());
+        assertEquals(stale.getETag(), registry.course(course.getId()).getETag());
+    }
+}
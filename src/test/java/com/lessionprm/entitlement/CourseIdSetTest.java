@@ -0,0 +1,47 @@
+package com.lessionprm.entitlement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseIdSetTest {
+
+    @Test
+    void containsOnlyLoadedIds() {
+        CourseIdSet courseIds = CourseIdSet.of(List.of(7L, 3L, 3L, 1024L));
+
+        assertEquals(3, courseIds.size());
+        assertTrue(courseIds.contains(3L));
+        assertTrue(courseIds.contains(1024L));
+        assertFalse(courseIds.contains(4L));
+        assertFalse(CourseIdSet.EMPTY.contains(3L));
+        assertEquals(List.of(3L, 7L, 1024L), courseIds.toList());
+    }
+
+    @Test
+    void withReturnsACopyAndLeavesTheOriginalUntouched() {
+        CourseIdSet original = CourseIdSet.of(List.of(1L));
+        CourseIdSet grown = original;
+        for (long id = 2; id <= 100; id++) {
+            grown = grown.with(id);
+        }
+
+        assertEquals(1, original.size());
+        assertFalse(original.contains(50L));
+        assertEquals(100, grown.size());
+        assertSame(grown, grown.with(50L));
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            expected.add(id);
+            assertTrue(grown.contains(id));
+        }
+        assertEquals(expected, grown.toList());
+    }
+}
\ No newline at end of file
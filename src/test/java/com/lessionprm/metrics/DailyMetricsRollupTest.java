@@ -0,0 +1,123 @@
+package com.lessionprm.metrics;
+
+import com.lessionprm.entity.DailyMetric;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DailyMetricsRollupTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+
+    private final DailyMetricRepository dailyMetricRepository = mock(DailyMetricRepository.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private DailyMetricsRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        rollup = new DailyMetricsRollup();
+        ReflectionTestUtils.setField(rollup, "dailyMetricRepository", dailyMetricRepository);
+        ReflectionTestUtils.setField(rollup, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(rollup, "userRepository", userRepository);
+        ReflectionTestUtils.setField(rollup, "transactionManager", transactionManager);
+        rollup.init();
+    }
+
+    @Test
+    void readsWholeDaysFromTheRollupAndOnlyTheEdgesFromInvoices() {
+        LocalDateTime start = LocalDateTime.of(2026, 9, 17, 10, 15);
+        LocalDateTime end = LocalDateTime.of(2026, 10, 17, 9, 0);
+        LocalDateTime endOfFirstDay = LocalDateTime.of(2026, 9, 17, 23, 59, 59, 999_999_000);
+        LocalDateTime startOfLastDay = LocalDateTime.of(2026, 10, 17, 0, 0);
+        when(dailyMetricRepository.sumPaidRevenue(LocalDate.of(2026, 9, 18), LocalDate.of(2026, 10, 17)))
+                .thenReturn(BigDecimal.valueOf(1000));
+        when(invoiceRepository.getTotalRevenueByDateRange(start, endOfFirstDay)).thenReturn(BigDecimal.valueOf(50));
+        when(invoiceRepository.getTotalRevenueByDateRange(startOfLastDay, end)).thenReturn(null);
+
+        assertEquals(BigDecimal.valueOf(1050), rollup.paidRevenue(start, end));
+        verify(invoiceRepository, times(2)).getTotalRevenueByDateRange(any(), any());
+    }
+
+    @Test
+    void rangeStartingAtMidnightHasNoLeadingEdge() {
+        LocalDateTime start = DAY.atStartOfDay();
+        LocalDateTime end = LocalDateTime.of(2026, 10, 31, 23, 59, 59);
+        when(dailyMetricRepository.sumNewUsers(DAY, LocalDate.of(2026, 10, 31))).thenReturn(40L);
+        when(userRepository.countNewUsersBetween(LocalDate.of(2026, 10, 31).atStartOfDay(), end)).thenReturn(2L);
+
+        assertEquals(42L, rollup.newUsers(start, end));
+        verify(userRepository, times(1)).countNewUsersBetween(any(), any());
+    }
+
+    @Test
+    void rangeWithoutAWholeDayUsesInvoicesOnly() {
+        LocalDateTime start = DAY.atTime(8, 0);
+        LocalDateTime end = DAY.plusDays(1).atTime(6, 0);
+        when(invoiceRepository.countPaidInvoicesByDateRange(start, end)).thenReturn(3L);
+
+        assertEquals(3L, rollup.paidCount(start, end));
+        verifyNoInteractions(dailyMetricRepository);
+    }
+
+    @Test
+    void refundMovesTheAmountFromPaidToRefunded() {
+        when(dailyMetricRepository.addToDay(any(), any(), any(), anyLong(), any(), anyLong(), anyLong(), any()))
+                .thenReturn(1);
+
+        rollup.invoiceStatusChanged(invoice(Invoice.Status.PAID), Invoice.Status.REFUNDED);
+
+        verify(dailyMetricRepository).addToDay(DAY, DailyMetric.NO_CATEGORY, BigDecimal.valueOf(-100), -1,
+                BigDecimal.valueOf(100), 1, 0, BigDecimal.ZERO);
+        verify(dailyMetricRepository, never()).insertEmptyDay(any(), any());
+    }
+
+    @Test
+    void failedPaymentLeavesTheRollupAlone() {
+        rollup.invoiceStatusChanged(invoice(Invoice.Status.PENDING), Invoice.Status.FAILED);
+
+        verifyNoInteractions(dailyMetricRepository);
+    }
+
+    @Test
+    void firstUpdateOfADayCreatesItsRow() {
+        when(dailyMetricRepository.addToDay(any(), any(), any(), anyLong(), any(), anyLong(), anyLong(), any()))
+                .thenReturn(0, 1);
+
+        rollup.invoiceStatusChanged(invoice(Invoice.Status.PENDING), Invoice.Status.PAID);
+
+        verify(dailyMetricRepository).insertEmptyDay(DAY, DailyMetric.NO_CATEGORY);
+        verify(dailyMetricRepository, times(2)).addToDay(eq(DAY), eq(DailyMetric.NO_CATEGORY),
+                eq(BigDecimal.valueOf(100)), eq(1L), eq(BigDecimal.ZERO), eq(0L), eq(0L), eq(BigDecimal.ZERO));
+    }
+
+    private static Invoice invoice(Invoice.Status status) {
+        Invoice invoice = new Invoice();
+        invoice.setAmount(BigDecimal.valueOf(100));
+        invoice.setStatus(status);
+        invoice.setCreatedAt(DAY.atTime(14, 30));
+        return invoice;
+    }
+}
\ No newline at end of file
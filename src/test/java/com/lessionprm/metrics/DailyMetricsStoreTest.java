@@ -0,0 +1,265 @@
+package com.lessionprm.metrics;
+
+import com.lessionprm.entity.Course;
+import com.lessionprm.entity.DailyMetric;
+import com.lessionprm.entity.Expense;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.ExpenseRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import com.lessionprm.repository.UserRepository;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+// Runs the rollup's JPQL and native SQL against the database. Every change commits on its own, as it would from
+// a request, so the test itself is not transactional.
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics;LOCK_TIMEOUT=10000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@Import({DailyMetricsRollup.class, DailyMetricsRepairJob.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DailyMetricsStoreTest {
+
+    private static final LocalDate DAY = LocalDate.now().minusDays(3);
+
+    @Autowired
+    private DailyMetricsRollup rollup;
+
+    @Autowired
+    private DailyMetricsRepairJob repairJob;
+
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+
+    @SpyBean
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("student", "student@test.com", "secret", User.Role.USER));
+        course = courseRepository.save(new Course("Java", "Description", BigDecimal.TEN, "Instructor", "IT"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dailyMetricRepository.deleteAll();
+        expenseRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        userRepository.deleteAll();
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    void statusChangesAddUpOnTheDayRow() {
+        inTransaction(() -> rollup.invoiceStatusChanged(invoice(Invoice.Status.PENDING, "100.00"), Invoice.Status.PAID));
+        inTransaction(() -> rollup.invoiceStatusChanged(invoice(Invoice.Status.PENDING, "40.00"), Invoice.Status.PAID));
+        inTransaction(() -> rollup.invoiceStatusChanged(invoice(Invoice.Status.PAID, "100.00"), Invoice.Status.REFUNDED));
+
+        DailyMetric day = dayRow();
+        assertEquals(new BigDecimal("40.00"), day.getPaidRevenue());
+        assertEquals(1L, day.getPaidCount());
+        assertEquals(new BigDecimal("100.00"), day.getRefundedAmount());
+        assertEquals(1L, day.getRefundCount());
+        // One update creates the row and every change bumps its version
+        assertEquals(3L, day.getVersion());
+    }
+
+    @Test
+    void backendStatusChangesReachTheRollup() {
+        // The backend publishes its own enum names, which match the main stack's
+        LocalDateTime createdAt = DAY.atTime(9, 0);
+        BigDecimal amount = new BigDecimal("25.00");
+        inTransaction(() -> eventPublisher.publishEvent(new InvoiceStatusChangedEvent(1L, createdAt, amount,
+                Invoice.Status.PENDING, Invoice.Status.PAID)));
+        inTransaction(() -> eventPublisher.publishEvent(new InvoiceStatusChangedEvent(1L, createdAt, amount,
+                Invoice.Status.PAID, Invoice.Status.REFUNDED)));
+
+        DailyMetric day = dayRow();
+        assertEquals(new BigDecimal("0.00"), day.getPaidRevenue());
+        assertEquals(0L, day.getPaidCount());
+        assertEquals(new BigDecimal("25.00"), day.getRefundedAmount());
+        assertEquals(1L, day.getRefundCount());
+    }
+
+    @Test
+    void firstUpdatesOfADayRaceToCreateItsRow() throws Exception {
+        // Each caller holds two connections while it creates the row, so stay well inside the pool
+        int callers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                inTransaction(() -> rollup.invoiceStatusChanged(invoice(Invoice.Status.PENDING, "10.00"), Invoice.Status.PAID));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        DailyMetric day = dayRow();
+        assertEquals(new BigDecimal("40.00"), day.getPaidRevenue());
+        assertEquals((long) callers, day.getPaidCount());
+    }
+
+    @Test
+    void repairRetriesADayThatChangedWhileItWasRead() throws Exception {
+        Long missed = savedInvoice(Invoice.Status.PAID, "100.00");
+        jdbcTemplate.update("INSERT INTO daily_metrics (metric_date, category, paid_revenue, paid_count, refunded_amount, " +
+                "refund_count, new_users, approved_expenses, version) VALUES (?, '', 0, 0, 0, 0, 0, 0, 0)", DAY);
+
+        // A payment commits between the repair reading the day row and reading the invoices
+        AtomicInteger reads = new AtomicInteger();
+        Answer<?> realMethod = mockingDetails(invoiceRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            if (reads.incrementAndGet() == 1) {
+                Executors.newSingleThreadExecutor().submit(() -> {
+                    Long paid = savedInvoice(Invoice.Status.PENDING, "50.00");
+                    inTransaction(() -> {
+                        Invoice invoice = invoiceRepository.findById(paid).orElseThrow();
+                        rollup.invoiceStatusChanged(invoice, Invoice.Status.PAID);
+                        invoice.setStatus(Invoice.Status.PAID);
+                    });
+                }).get();
+            }
+            return realMethod.answer(invocation);
+        }).when(invoiceRepository).getTotalRevenueByDateRange(any(), any());
+
+        assertEquals(1, repairJob.repair(DAY, DAY));
+
+        assertEquals(2, reads.get());
+        DailyMetric day = dayRow();
+        assertEquals(new BigDecimal("150.00"), day.getPaidRevenue());
+        assertEquals(2L, day.getPaidCount());
+        assertEquals(Invoice.Status.PAID, invoiceRepository.findById(missed).orElseThrow().getStatus());
+    }
+
+    @Test
+    void migrationBackfillsExistingRows() throws Exception {
+        savedInvoice(Invoice.Status.PAID, "100.00");
+        savedInvoice(Invoice.Status.REFUNDED, "30.00");
+        savedInvoice(Invoice.Status.PENDING, "70.00");
+        jdbcTemplate.update("UPDATE users SET created_at = ?", DAY.atTime(8, 0));
+        expense("", "5.00", true);
+        expense("Marketing", "20.00", true);
+        expense("Marketing", "15.00", true);
+        expense("Marketing", "99.00", false);
+
+        jdbcTemplate.execute("DROP TABLE daily_metrics");
+        // is_approved is a BIT on SQL Server, which the migration compares with 1
+        jdbcTemplate.execute("ALTER TABLE expenses ALTER COLUMN is_approved TINYINT");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V6__Daily_metrics.sql"));
+        }
+
+        DailyMetric day = dayRow();
+        assertEquals(new BigDecimal("100.00"), day.getPaidRevenue());
+        assertEquals(1L, day.getPaidCount());
+        assertEquals(new BigDecimal("30.00"), day.getRefundedAmount());
+        assertEquals(1L, day.getRefundCount());
+        assertEquals(1L, day.getNewUsers());
+        assertEquals(new BigDecimal("5.00"), day.getApprovedExpenses());
+        DailyMetric marketing = dailyMetricRepository.findById(new DailyMetric.Key(DAY, "Marketing")).orElseThrow();
+        assertEquals(new BigDecimal("35.00"), marketing.getApprovedExpenses());
+        assertEquals(0L, marketing.getPaidCount());
+        assertNull(dailyMetricRepository.findById(new DailyMetric.Key(DAY.plusDays(1), "")).orElse(null));
+    }
+
+    private Invoice invoice(Invoice.Status status, String amount) {
+        Invoice invoice = new Invoice(user, course, new BigDecimal(amount), Invoice.PaymentMethod.MOMO);
+        invoice.setStatus(status);
+        invoice.setCreatedAt(DAY.atTime(14, 30));
+        return invoice;
+    }
+
+    private Long savedInvoice(Invoice.Status status, String amount) {
+        Long id = invoiceRepository.save(invoice(status, amount)).getId();
+        // created_at is set by auditing on insert, so it is moved back afterwards
+        jdbcTemplate.update("UPDATE invoices SET created_at = ? WHERE id = ?", DAY.atTime(14, 30), id);
+        return id;
+    }
+
+    private void expense(String category, String amount, boolean approved) {
+        Expense expense = new Expense("Ads", new BigDecimal(amount), category, DAY);
+        expense.setIsApproved(approved);
+        expenseRepository.save(expense);
+    }
+
+    private DailyMetric dayRow() {
+        return dailyMetricRepository.findById(new DailyMetric.Key(DAY, DailyMetric.NO_CATEGORY)).orElseThrow();
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+}
@@ -0,0 +1,136 @@
+package com.lessionprm.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lessionprm.dto.response.CourseSummaryResponse;
+import com.lessionprm.dto.response.UserSummaryResponse;
+import com.lessionprm.entity.Course;
+import com.lessionprm.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Main-stack lists run one select each and leave the description and password columns out of it
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projections",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.lessionprm.repository.ListProjectionTest$SelectedSql"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@ActiveProfiles("test")
+class ListProjectionTest {
+
+    private static final int ROWS = 20;
+
+    // Roughly a real course page in the TEXT column
+    private static final String LONG_TEXT = "Lorem ipsum dolor sit amet. ".repeat(150);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            Course course = new Course("Java " + i, LONG_TEXT, BigDecimal.TEN, "Instructor", "IT");
+            course.setMaxStudents(50);
+            entityManager.persist(course);
+            entityManager.persist(new User("student" + i, "student" + i + "@test.com", "secret-hash", User.Role.USER));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void courseCardListsLeaveTheDescriptionOut() {
+        List<CourseSummaryResponse> page = selecting(".description",
+                () -> courseRepository.findActiveSummaries(PageRequest.of(0, 50)).getContent());
+        selecting(".description", () -> courseRepository.findFirstActiveSummarySlice(PageRequest.of(0, 50)));
+        selecting(".description", () -> courseRepository.searchSummaries("java", PageRequest.of(0, 50)).getContent());
+        selecting(".description", () -> courseRepository.findSummariesByCategory("IT", PageRequest.of(0, 50)).getContent());
+        selecting(".description", () -> courseRepository.findAvailableSummaries());
+
+        assertEquals(ROWS, page.size());
+    }
+
+    @Test
+    void courseCardsAreAFractionOfTheEntities() throws Exception {
+        byte[] entities = objectMapper.writeValueAsBytes(courseRepository.findByIsActiveTrue());
+        byte[] cards = objectMapper.writeValueAsBytes(
+                courseRepository.findActiveSummaries(PageRequest.of(0, 50)).getContent());
+
+        // About 90 KB against 4 KB for this page
+        assertTrue(cards.length * 10L < entities.length,
+                "Cards took " + cards.length + " bytes against " + entities.length + " for entities");
+    }
+
+    @Test
+    void userListLeavesThePasswordOut() throws Exception {
+        List<UserSummaryResponse> users = selecting(".password",
+                () -> userRepository.findSummaries(PageRequest.of(0, 50)).getContent());
+
+        assertEquals(ROWS, users.size());
+        assertFalse(objectMapper.writeValueAsString(users).contains("secret-hash"));
+    }
+
+    private <T> List<T> selecting(String leftOut, Supplier<List<T>> listCall) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SelectedSql.STATEMENTS.clear();
+
+        List<T> result = listCall.get();
+
+        // One select; the count query is skipped because the page is not full
+        assertEquals(1, statistics.getPrepareStatementCount());
+        for (String sql : SelectedSql.STATEMENTS) {
+            // Search filters may still use the description; only the select list is checked
+            String selected = sql.substring(0, sql.indexOf(" from "));
+            assertFalse(selected.contains(leftOut), "List selected " + leftOut + ": " + sql);
+        }
+        entityManager.clear();
+        return result;
+    }
+
+    public static class SelectedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.lessionprm.repository;
+
+import com.lessionprm.shared.config.SharedPersistence;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+// The main and backend stacks map the same tables with entities of the same names, so JPA tests of the
+// main stack load only its own entities and repositories, plus the shared ones:
+// @DataJpaTest @ContextConfiguration(classes = MainStackJpaConfig.class)
+@Configuration
+@EntityScan(basePackages = {"com.lessionprm.entity", SharedPersistence.ENTITY_PACKAGE})
+@EnableJpaRepositories(basePackages = {"com.lessionprm.repository", SharedPersistence.REPOSITORY_PACKAGE})
+@EnableJpaAuditing
+public class MainStackJpaConfig {
+}
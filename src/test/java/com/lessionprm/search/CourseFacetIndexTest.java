@@ -0,0 +1,139 @@
+package com.lessionprm.search;
+
+import com.lessionprm.dto.response.CourseFacetsResponse;
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CourseFacetIndexTest {
+
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+
+    private CourseFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CourseFacetIndex();
+        ReflectionTestUtils.setField(index, "courseRepository", courseRepository);
+        ReflectionTestUtils.setField(index, "priceBounds", List.of(BigDecimal.valueOf(100), BigDecimal.valueOf(500)));
+    }
+
+    @Test
+    void rebuildCountsActiveCoursesPerFacet() {
+        when(courseRepository.findByIsActiveTrue()).thenReturn(List.of(
+                course(1L, "IT", "Hoa", Course.Level.BEGINNER, 50),
+                course(2L, "IT", "Nam", Course.Level.ADVANCED, 100),
+                course(3L, "Design", "Hoa", Course.Level.BEGINNER, 900)));
+
+        index.rebuild();
+        CourseFacetsResponse facets = index.snapshot();
+
+        assertTrue(index.isReady());
+        assertEquals(Map.of("Design", 1, "IT", 2), facets.getCategories());
+        assertEquals(Map.of("Hoa", 2, "Nam", 1), facets.getInstructors());
+        assertEquals(Map.of("BEGINNER", 2, "INTERMEDIATE", 0, "ADVANCED", 1), facets.getLevels());
+        // [0, 100), [100, 500), [500, ...)
+        assertEquals(List.of(1, 1, 1), priceCounts(facets));
+        assertEquals(3, facets.getTotalCourses());
+    }
+
+    @Test
+    void updatesMoveCountsAndEmptyValuesDisappear() {
+        when(courseRepository.findByIsActiveTrue()).thenReturn(List.of(
+                course(1L, "IT", "Hoa", Course.Level.BEGINNER, 50),
+                course(2L, "Design", "Nam", Course.Level.ADVANCED, 100)));
+        index.rebuild();
+
+        index.index(course(1L, "Design", "Hoa", Course.Level.INTERMEDIATE, 600));
+        Course deactivated = course(2L, "Design", "Nam", Course.Level.ADVANCED, 100);
+        deactivated.setIsActive(false);
+        index.index(deactivated);
+        CourseFacetsResponse facets = index.snapshot();
+
+        assertEquals(Map.of("Design", 1), facets.getCategories());
+        assertEquals(List.of("Hoa"), index.instructors());
+        assertEquals(List.of(0, 0, 1), priceCounts(facets));
+        assertEquals(1, facets.getTotalCourses());
+
+        index.remove(1L);
+        assertTrue(index.categories().isEmpty());
+    }
+
+    @Test
+    void changesCommittedDuringARebuildAreNotLost() {
+        when(courseRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            // Committed after the read below saw the courses table
+            index.index(course(2L, "Design", "Nam", Course.Level.ADVANCED, 100));
+            index.remove(1L);
+            return List.of(course(1L, "IT", "Hoa", Course.Level.BEGINNER, 50));
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of("Design"), index.categories());
+        assertEquals(1, index.snapshot().getTotalCourses());
+    }
+
+    @Test
+    void concurrentRequestsShareOneRebuild() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(courseRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            reading.countDown();
+            release.await();
+            return List.of(course(1L, "IT", "Hoa", Course.Level.BEGINNER, 50));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(executor.submit(index::ensureReady));
+        }
+        reading.await();
+        assertFalse(index.isReady());
+        release.countDown();
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        executor.shutdown();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of("IT"), index.categories());
+        verify(courseRepository, times(1)).findByIsActiveTrue();
+    }
+
+    private static List<Integer> priceCounts(CourseFacetsResponse facets) {
+        List<Integer> counts = new ArrayList<>();
+        for (CourseFacetsResponse.PriceRange range : facets.getPriceRanges()) {
+            counts.add(range.getCount());
+        }
+        return counts;
+    }
+
+    private static Course course(Long id, String category, String instructor, Course.Level level, int price) {
+        Course course = new Course("Course " + id, "Description", BigDecimal.valueOf(price), instructor, category);
+        course.setId(id);
+        course.setLevel(level);
+        course.setIsActive(true);
+        return course;
+    }
+}
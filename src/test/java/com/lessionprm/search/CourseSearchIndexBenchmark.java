@@ -0,0 +1,162 @@
+package com.lessionprm.search;
+
+import com.lessionprm.dto.response.CourseSummaryResponse;
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// First page of a keyword search over a 100k-course catalog in H2: CourseSearchIndex alone, the index plus the
+// summary lookup CourseServiceImpl does for its ids, and the LIKE query (with its count) the index replaced.
+// Not part of the test suite; run it after test-compile with
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       com.lessionprm.search.CourseSearchIndexBenchmark
+// H2 keeps the catalog in memory, so the JPQL numbers are a floor for SQL Server, which also pays the network.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CourseSearchIndexBenchmark {
+
+    private static final int COURSES = 100_000;
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20);
+
+    private static final String[] TOPICS = {
+            "Java", "Spring", "Python", "React", "Angular", "Kotlin", "Docker", "Kubernetes", "SQL", "MongoDB",
+            "Lập trình", "Thiết kế", "Marketing", "Kế toán", "Tiếng Anh", "Nhiếp ảnh", "Đồ họa", "Dữ liệu",
+            "Machine Learning", "Excel", "Photoshop", "Flutter", "Swift", "Golang", "Rust", "TypeScript"
+    };
+    private static final String[] LEVELS = {"cơ bản", "nâng cao", "thực chiến", "cho người mới", "chuyên sâu"};
+    private static final String[] WORDS = {
+            "xây dựng", "ứng dụng", "dự án", "thực hành", "kiến thức", "kỹ năng", "hệ thống", "web", "API",
+            "mobile", "phân tích", "triển khai", "tối ưu", "bảo mật", "kiểm thử", "giao diện", "cơ sở dữ liệu"
+    };
+    private static final String[] INSTRUCTORS = {
+            "Nguyễn Văn An", "Trần Thị Hoa", "Lê Đình Nam", "Phạm Minh Đức", "Hoàng Thu Trang", "Vũ Quốc Bảo"
+    };
+
+    @Param({"java", "lap trinh"})
+    private String keyword;
+
+    private ConfigurableApplicationContext context;
+
+    private CourseRepository courseRepository;
+
+    private CourseSearchIndex courseSearchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Catalog.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:search-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        courseRepository = context.getBean(CourseRepository.class);
+
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        Random random = new Random(42);
+        for (int from = 0; from < COURSES; from += 1000) {
+            List<Course> batch = new ArrayList<>(1000);
+            for (int i = 0; i < 1000; i++) {
+                batch.add(course(random));
+            }
+            transactionTemplate.executeWithoutResult(status -> courseRepository.saveAll(batch));
+        }
+
+        courseSearchIndex = new CourseSearchIndex();
+        ReflectionTestUtils.setField(courseSearchIndex, "courseRepository", courseRepository);
+        courseSearchIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Long> index() {
+        return courseSearchIndex.search(keyword, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public List<CourseSummaryResponse> indexWithSummaries() {
+        return courseRepository.findSummariesByIdIn(courseSearchIndex.search(keyword, FIRST_PAGE).getContent());
+    }
+
+    @Benchmark
+    public Page<CourseSummaryResponse> jpql() {
+        return courseRepository.searchSummaries(keyword, FIRST_PAGE);
+    }
+
+    private static Course course(Random random) {
+        String topic = pick(random, TOPICS);
+        StringBuilder description = new StringBuilder("Khóa học ").append(topic).append(' ');
+        for (int i = 0; i < 40; i++) {
+            description.append(pick(random, WORDS)).append(i % 8 == 7 ? ". " : " ");
+        }
+
+        Course course = new Course(topic + " " + pick(random, LEVELS) + " " + random.nextInt(1000),
+                description.toString(), BigDecimal.valueOf(99000 + random.nextInt(50) * 10000L),
+                pick(random, INSTRUCTORS), topic);
+        course.setMaxStudents(100);
+        return course;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CourseSearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @Import(MainStackJpaConfig.class)
+    static class Catalog {
+    }
+}
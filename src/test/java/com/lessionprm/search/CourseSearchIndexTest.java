@@ -0,0 +1,94 @@
+package com.lessionprm.search;
+
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CourseSearchIndexTest {
+
+    private CourseSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CourseSearchIndex();
+        index.index(course(1L, "Lập trình Java cơ bản", "Nhập môn lập trình hướng đối tượng", "Nguyễn Văn Đức"));
+        index.index(course(2L, "Spring Boot nâng cao", "Xây dựng REST API với Java", "Trần Thị Hoa"));
+        index.index(course(3L, "Thiết kế đồ họa", "Photoshop và Illustrator", "Lê Đình Nam"));
+    }
+
+    @Test
+    void tokenizeFoldsVietnameseDiacritics() {
+        assertEquals(List.of("lap", "trinh", "da", "nang"), CourseSearchIndex.tokenize("Lập trình, Đà Nẵng!"));
+    }
+
+    @Test
+    void searchMatchesWithoutDiacritics() {
+        assertEquals(List.of(1L), index.search("lap trinh", PageRequest.of(0, 10)).getContent());
+        assertEquals(List.of(3L), index.search("dinh", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void searchMatchesPrefixes() {
+        assertEquals(List.of(2L), index.search("spr boo", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(1L, 2L), index.search("java", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void searchPagesThroughRankedResults() {
+        Page<Long> page = index.search("java", PageRequest.of(1, 1));
+
+        assertEquals(List.of(2L), page.getContent());
+        assertEquals(2, page.getTotalElements());
+    }
+
+    @Test
+    void deactivatedAndRemovedCoursesDropOutOfResults() {
+        Course deactivated = course(2L, "Spring Boot nâng cao", "Xây dựng REST API với Java", "Trần Thị Hoa");
+        deactivated.setIsActive(false);
+        index.index(deactivated);
+        index.remove(1L);
+
+        assertTrue(index.search("java", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void changesCommittedDuringARebuildAreNotLost() {
+        CourseRepository courseRepository = mock(CourseRepository.class);
+        ReflectionTestUtils.setField(index, "courseRepository", courseRepository);
+        when(courseRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            // Committed after the read below saw the courses table
+            index.index(course(4L, "Kotlin cho Android", "Ứng dụng di động", "Phạm Minh"));
+            index.remove(1L);
+            return List.of(course(1L, "Lập trình Java cơ bản", "Nhập môn lập trình hướng đối tượng", "Nguyễn Văn Đức"));
+        });
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertTrue(index.search("java", PageRequest.of(0, 10)).isEmpty());
+        assertEquals(List.of(4L), index.search("kotlin", PageRequest.of(0, 10)).getContent());
+    }
+
+    private static Course course(Long id, String title, String description, String instructor) {
+        Course course = new Course(title, description, BigDecimal.TEN, instructor, "IT");
+        course.setId(id);
+        course.setIsActive(true);
+        return course;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Course;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.search.CourseSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CourseServiceImplTest {
+
+    private CourseRepository courseRepository;
+    private CourseSearchIndex courseSearchIndex;
+    private CourseServiceImpl courseService;
+
+    @BeforeEach
+    void setUp() {
+        courseRepository = mock(CourseRepository.class);
+        courseSearchIndex = mock(CourseSearchIndex.class);
+        when(courseSearchIndex.isReady()).thenReturn(true);
+
+        courseService = new CourseServiceImpl();
+        ReflectionTestUtils.setField(courseService, "courseRepository", courseRepository);
+        ReflectionTestUtils.setField(courseService, "courseSearchIndex", courseSearchIndex);
+    }
+
+    @Test
+    void manyHitsAreLoadedWithinTheParameterLimit() {
+        List<Long> hits = new ArrayList<>();
+        for (long id = 2500; id >= 1; id--) {
+            hits.add(id);
+        }
+        when(courseSearchIndex.search("java", Pageable.unpaged())).thenReturn(new PageImpl<>(hits));
+        when(courseRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Course> courses = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                assertTrue(courses.size() < 2100, "IN list over SQL Server's parameter limit");
+                Course course = new Course();
+                course.setId(id);
+                courses.add(course);
+            }
+            // The database returns rows in its own order
+            Collections.reverse(courses);
+            return courses;
+        });
+
+        List<Course> courses = courseService.searchCourses("java");
+
+        assertEquals(hits, courses.stream().map(Course::getId).toList());
+        verify(courseRepository, times(3)).findAllById(anyIterable());
+    }
+
+    @Test
+    void explicitSortIsLeftToTheDatabase() {
+        Pageable byPrice = PageRequest.of(0, 20, Sort.by("price"));
+        when(courseRepository.searchSummaries("java", byPrice)).thenReturn(new PageImpl<>(List.of()));
+
+        courseService.searchCourses("java", byPrice);
+
+        verify(courseRepository).searchSummaries("java", byPrice);
+        verify(courseSearchIndex, never()).search(any(), any());
+    }
+}
@@ -0,0 +1,138 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.service.interfaces.CourseService;
+import com.lessionprm.service.interfaces.ExpenseService;
+import com.lessionprm.service.interfaces.InvoiceService;
+import com.lessionprm.service.interfaces.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DashboardServiceImplTest {
+
+    private static final long QUERY_MILLIS = 200;
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    private final InvoiceService invoiceService = mock(InvoiceService.class);
+    private final CourseService courseService = mock(CourseService.class);
+    private final UserService userService = mock(UserService.class);
+    private final ExpenseService expenseService = mock(ExpenseService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private DashboardServiceImpl dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        when(invoiceService.getTotalRevenueByDateRange(any(), any())).thenAnswer(slow(BigDecimal.valueOf(1500)));
+        when(invoiceService.countPaidInvoicesByDateRange(any(), any())).thenAnswer(slow(15L));
+        when(invoiceService.countByStatus(Invoice.Status.PENDING)).thenAnswer(slow(3L));
+        when(invoiceService.countByStatus(Invoice.Status.FAILED)).thenAnswer(slow(1L));
+        when(courseService.countActiveCourses()).thenAnswer(slow(12L));
+        when(courseService.countAvailableCourses()).thenAnswer(slow(9L));
+        when(userService.countUsersByRole(User.Role.USER)).thenAnswer(slow(120L));
+        when(userService.countUsersByRole(User.Role.ADMIN)).thenAnswer(slow(2L));
+        when(userService.countNewUsersBetween(any(), any())).thenAnswer(slow(7L));
+        when(expenseService.getTotalApprovedExpensesByDateRange(any(), any())).thenAnswer(slow(BigDecimal.valueOf(400)));
+        when(expenseService.countByApprovalStatus(anyBoolean())).thenAnswer(slow(4L));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        dashboardService = new DashboardServiceImpl();
+        ReflectionTestUtils.setField(dashboardService, "invoiceService", invoiceService);
+        ReflectionTestUtils.setField(dashboardService, "courseService", courseService);
+        ReflectionTestUtils.setField(dashboardService, "userService", userService);
+        ReflectionTestUtils.setField(dashboardService, "expenseService", expenseService);
+        ReflectionTestUtils.setField(dashboardService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(dashboardService, "threads", 11);
+        ReflectionTestUtils.setField(dashboardService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dashboardService, "queryTimeoutMillis", TIMEOUT_MILLIS);
+        dashboardService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void takesAsLongAsTheSlowestQuery() {
+        long started = System.nanoTime();
+        Map<String, Object> dashboard = dashboardService.getDashboard(LocalDateTime.now().minusMonths(1), LocalDateTime.now());
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // Eleven queries of 200 ms each would take over two seconds back to back
+        assertTrue(elapsedMillis < 5 * QUERY_MILLIS, "Dashboard took " + elapsedMillis + " ms");
+        assertEquals(BigDecimal.valueOf(1500), ((Map<String, Object>) dashboard.get("revenue")).get("total"));
+        assertEquals(9L, ((Map<String, Object>) dashboard.get("courses")).get("available"));
+        assertEquals(120L, ((Map<String, Object>) dashboard.get("users")).get("total"));
+        assertEquals(4L, ((Map<String, Object>) dashboard.get("expenses")).get("pending"));
+        assertFalse(dashboard.containsKey("unavailable"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsSlowAndFailingQueriesAsUnavailable() {
+        when(userService.countNewUsersBetween(any(), any())).thenAnswer(slow(7L, 3 * TIMEOUT_MILLIS));
+        when(expenseService.getTotalApprovedExpensesByDateRange(any(), any()))
+                .thenThrow(new IllegalStateException("expenses table locked"));
+
+        long started = System.nanoTime();
+        Map<String, Object> dashboard = dashboardService.getDashboard(LocalDateTime.now().minusMonths(1), LocalDateTime.now());
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMillis < 2 * TIMEOUT_MILLIS, "Dashboard waited " + elapsedMillis + " ms for a late query");
+        assertEquals(List.of("users.newUsers", "expenses.total"), dashboard.get("unavailable"));
+        assertNull(((Map<String, Object>) dashboard.get("users")).get("newUsers"));
+        assertNull(((Map<String, Object>) dashboard.get("expenses")).get("total"));
+        assertEquals(2L, ((Map<String, Object>) dashboard.get("users")).get("admins"));
+    }
+
+    @Test
+    void queriesRunUnderTheDashboardTimeout() {
+        dashboardService.getDashboard(LocalDateTime.now().minusMonths(1), LocalDateTime.now());
+
+        // JPA hands the transaction timeout to the driver, so the database cancels a late statement itself
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(definitions.capture());
+        for (TransactionDefinition definition : definitions.getAllValues()) {
+            assertEquals(1, definition.getTimeout());
+            assertTrue(definition.isReadOnly());
+        }
+        assertEquals(11, definitions.getAllValues().size());
+    }
+
+    private static <T> Answer<T> slow(T value) {
+        return slow(value, QUERY_MILLIS);
+    }
+
+    private static <T> Answer<T> slow(T value, long millis) {
+        return invocation -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Revenue;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.RevenueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RevenueServiceImplTest {
+
+    private final RevenueRepository revenueRepository = mock(RevenueRepository.class);
+    private final DailyMetricRepository dailyMetricRepository = mock(DailyMetricRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private RevenueServiceImpl revenueService;
+
+    @BeforeEach
+    void setUp() {
+        revenueService = new RevenueServiceImpl();
+        ReflectionTestUtils.setField(revenueService, "revenueRepository", revenueRepository);
+        ReflectionTestUtils.setField(revenueService, "dailyMetricRepository", dailyMetricRepository);
+        ReflectionTestUtils.setField(revenueService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(revenueService, "parallelism", 4);
+        revenueService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        revenueService.stop();
+    }
+
+    @Test
+    void refreshRewritesOnlyMonthsWhoseRollupChanged() {
+        when(dailyMetricRepository.getMonthlyTotals()).thenReturn(List.of(
+                month(2026, 8, 900, 300, 9L),
+                month(2026, 9, 1200, 200, 14L),
+                month(2026, 10, 500, 100, 3L)));
+        when(revenueRepository.findSourceVersions()).thenReturn(List.of(
+                new Object[]{2026, 8, 9L},
+                new Object[]{2026, 9, 12L}));
+        when(revenueRepository.updateMonth(eq(9), eq(2026), any(), any(), any(), anyInt(), anyInt(), anyLong(), any()))
+                .thenReturn(1);
+
+        assertEquals(2, revenueService.refreshChangedRevenues());
+
+        verify(revenueRepository, never()).updateMonth(eq(8), eq(2026), any(), any(), any(), anyInt(), anyInt(), anyLong(), any());
+        verify(revenueRepository).updateMonth(eq(9), eq(2026), eq(BigDecimal.valueOf(1200)), eq(BigDecimal.valueOf(200)),
+                eq(BigDecimal.valueOf(1000)), eq(12), eq(4), eq(14L), any());
+        ArgumentCaptor<Revenue> inserted = ArgumentCaptor.forClass(Revenue.class);
+        verify(revenueRepository).saveAndFlush(inserted.capture());
+        assertEquals(10, inserted.getValue().getMonth());
+        assertEquals(BigDecimal.valueOf(400), inserted.getValue().getProfit());
+        assertEquals(3L, inserted.getValue().getSourceVersion());
+    }
+
+    @Test
+    void recalculationRewritesEveryMonthOfTenYears() {
+        List<Object[]> months = new ArrayList<>();
+        List<Object[]> versions = new ArrayList<>();
+        for (int year = 2016; year < 2026; year++) {
+            for (int month = 1; month <= 12; month++) {
+                months.add(month(year, month, 1000, 400, 5L));
+                versions.add(new Object[]{year, month, 5L});
+            }
+        }
+        when(dailyMetricRepository.getMonthlyTotals()).thenReturn(months);
+        when(revenueRepository.findSourceVersions()).thenReturn(versions);
+        when(revenueRepository.updateMonth(anyInt(), anyInt(), any(), any(), any(), anyInt(), anyInt(), anyLong(), any()))
+                .thenReturn(1);
+
+        assertEquals(0, revenueService.refreshChangedRevenues());
+        revenueService.recalculateAllRevenues();
+
+        verify(revenueRepository, times(120))
+                .updateMonth(anyInt(), anyInt(), any(), any(), any(), anyInt(), anyInt(), anyLong(), any());
+        verify(revenueRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void monthWithoutRollupRowsIsStoredAsEmpty() {
+        when(dailyMetricRepository.getMonthlyTotalsBetween(any(), any())).thenReturn(List.of());
+
+        revenueService.generateMonthlyRevenue(2, 2026);
+
+        ArgumentCaptor<Revenue> inserted = ArgumentCaptor.forClass(Revenue.class);
+        verify(revenueRepository).saveAndFlush(inserted.capture());
+        assertEquals(BigDecimal.ZERO, inserted.getValue().getTotalRevenue());
+        assertEquals(0L, inserted.getValue().getSourceVersion());
+    }
+
+    // Column order of DailyMetricRepository.MONTHLY_TOTALS_SELECT
+    private static Object[] month(int year, int month, long revenue, long expense, long sourceVersion) {
+        return new Object[]{year, month, BigDecimal.valueOf(revenue), 12L, 4L, BigDecimal.valueOf(expense), sourceVersion};
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.Revenue;
+import com.lessionprm.metrics.DailyMetricsRollup;
+import com.lessionprm.repository.DailyMetricRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import com.lessionprm.repository.RevenueRepository;
+import com.lessionprm.service.interfaces.RevenueService;
+import com.lessionprm.shared.dto.InvoiceStatusChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the revenues SQL against the database. MONTH and YEAR are column names here, and SQL Server mode
+// accepts the column types V7 declares. Every write commits on its own, so the test is not transactional.
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:revenues;MODE=MSSQLServer;NON_KEYWORDS=MONTH,YEAR;LOCK_TIMEOUT=10000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@Import({RevenueServiceImpl.class, DailyMetricsRollup.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevenueStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 9, 14);
+
+    @Autowired
+    private RevenueService revenueService;
+
+    @Autowired
+    private RevenueRepository revenueRepository;
+
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        revenueRepository.deleteAll();
+        dailyMetricRepository.deleteAll();
+    }
+
+    @Test
+    void updateNeverGoesBackToOlderSourceData() {
+        Revenue revenue = new Revenue(9, 2026);
+        revenue.setTotalRevenue(BigDecimal.valueOf(500));
+        revenue.setSourceVersion(10L);
+        revenueRepository.saveAndFlush(revenue);
+
+        assertEquals(0, updateMonth(BigDecimal.valueOf(100), 9L));
+        assertEquals(new BigDecimal("500.00"), stored().getTotalRevenue());
+        assertEquals(1, updateMonth(BigDecimal.valueOf(200), 10L));
+        assertEquals(1, updateMonth(BigDecimal.valueOf(300), 11L));
+
+        assertEquals(new BigDecimal("300.00"), stored().getTotalRevenue());
+        assertEquals(11L, stored().getSourceVersion());
+    }
+
+    @Test
+    void concurrentFirstWritesOfAMonthLeaveOneRow() throws Exception {
+        paid("120.00");
+        paid("30.00");
+
+        int callers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                revenueService.generateMonthlyRevenue(9, 2026);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, revenueRepository.count());
+        assertEquals(new BigDecimal("150.00"), stored().getTotalRevenue());
+        assertEquals(2, stored().getCourseSalesCount());
+    }
+
+    @Test
+    void backendPaymentMarksTheMonthChanged() {
+        paid("120.00");
+        assertEquals(1, revenueService.refreshChangedRevenues());
+        assertEquals(0, revenueService.refreshChangedRevenues());
+
+        paid("80.00");
+
+        assertEquals(1, revenueService.refreshChangedRevenues());
+        assertEquals(new BigDecimal("200.00"), stored().getTotalRevenue());
+    }
+
+    // The IF / ELSE wrapper is T-SQL, so the statements of each branch are run on their own
+    @Test
+    void migrationCreatesTheTableTheEntityMapsTo() throws Exception {
+        String script = new ClassPathResource("db/migration/V7__Monthly_revenues.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        jdbcTemplate.execute("DROP TABLE revenues");
+        for (String statement : statements(script, "CREATE TABLE revenues \\(.*?\\n    \\);", "CREATE INDEX [^;]*;")) {
+            jdbcTemplate.execute(statement);
+        }
+
+        paid("120.00");
+        revenueService.generateMonthlyRevenue(9, 2026);
+
+        Revenue revenue = stored();
+        assertEquals(new BigDecimal("120.00"), revenue.getProfit());
+        assertTrue(revenue.getSourceVersion() >= 0);
+        assertTrue(revenue.getCreatedAt() != null);
+    }
+
+    @Test
+    void migrationMarksExistingMonthsStale() throws Exception {
+        String script = new ClassPathResource("db/migration/V7__Monthly_revenues.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        jdbcTemplate.execute("ALTER TABLE revenues DROP COLUMN source_version");
+        jdbcTemplate.update("INSERT INTO revenues (month, year, total_revenue, total_expense, profit, created_at) " +
+                "VALUES (9, 2026, 999, 0, 999, CURRENT_TIMESTAMP)");
+        for (String statement : statements(script, "ALTER TABLE revenues ADD [^;]*;")) {
+            jdbcTemplate.execute(statement);
+        }
+
+        assertEquals(-1L, stored().getSourceVersion());
+        paid("120.00");
+        assertEquals(1, revenueService.refreshChangedRevenues());
+        assertEquals(new BigDecimal("120.00"), stored().getTotalRevenue());
+    }
+
+    private int updateMonth(BigDecimal totalRevenue, long sourceVersion) {
+        return new TransactionTemplate(transactionManager).execute(status -> revenueRepository.updateMonth(9, 2026,
+                totalRevenue, BigDecimal.ZERO, totalRevenue, 0, 0, sourceVersion, LocalDateTime.now()));
+    }
+
+    // A backend payment reaches the rollup through the event the backend publishes
+    private void paid(String amount) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                eventPublisher.publishEvent(new InvoiceStatusChangedEvent(1L, DAY.atTime(10, 0),
+                        new BigDecimal(amount), Invoice.Status.PENDING, Invoice.Status.PAID)));
+    }
+
+    private Revenue stored() {
+        return revenueRepository.findByMonthAndYear(9, 2026).orElseThrow();
+    }
+
+    private static List<String> statements(String script, String... patterns) {
+        List<String> statements = new ArrayList<>();
+        for (String pattern : patterns) {
+            Matcher matcher = Pattern.compile(pattern, Pattern.DOTALL).matcher(script);
+            while (matcher.find()) {
+                String statement = matcher.group();
+                statements.add(statement.substring(0, statement.length() - 1));
+            }
+        }
+        assertTrue(!statements.isEmpty(), "No statements matched in the migration");
+        return statements;
+    }
+}
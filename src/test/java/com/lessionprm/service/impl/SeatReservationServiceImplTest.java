@@ -0,0 +1,159 @@
+package com.lessionprm.service.impl;
+
+import com.lessionprm.catalog.CatalogVersionRegistry;
+import com.lessionprm.entity.Course;
+import com.lessionprm.entity.Invoice;
+import com.lessionprm.entity.User;
+import com.lessionprm.repository.CourseRepository;
+import com.lessionprm.repository.InvoiceRepository;
+import com.lessionprm.repository.MainStackJpaConfig;
+import com.lessionprm.repository.UserRepository;
+import com.lessionprm.reservation.SeatLedger;
+import com.lessionprm.service.interfaces.SeatReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against the real conditional UPDATE on the courses row. Each call commits on its own, as it would
+// from a request, so the test itself is not transactional.
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:seats;LOCK_TIMEOUT=10000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MainStackJpaConfig.class)
+@Import({SeatReservationServiceImpl.class, SeatLedger.class, CatalogVersionRegistry.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatReservationServiceImplTest {
+
+    private static final int CAPACITY = 50;
+    private static final int BUYERS = 400;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Long courseId;
+
+    @BeforeEach
+    void setUp() {
+        Course course = new Course("Java", "Description", BigDecimal.TEN, "Instructor", "IT");
+        course.setMaxStudents(CAPACITY);
+        courseId = courseRepository.save(course).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoiceRepository.deleteAll();
+        userRepository.deleteAll();
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    void parallelBuyersNeverOverbook() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < BUYERS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return seatReservationService.reserveSeat(courseId);
+            }));
+        }
+        start.countDown();
+
+        int reserved = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                reserved++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(CAPACITY, reserved);
+        assertEquals(CAPACITY, enrolledStudents());
+    }
+
+    @Test
+    void releasedSeatCanBeReservedAgain() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(seatReservationService.reserveSeat(courseId));
+        }
+        assertFalse(seatReservationService.reserveSeat(courseId));
+
+        seatReservationService.releaseSeat(courseId);
+
+        assertTrue(seatReservationService.reserveSeat(courseId));
+        assertFalse(seatReservationService.reserveSeat(courseId));
+        assertEquals(CAPACITY, enrolledStudents());
+    }
+
+    @Test
+    void confirmedPaymentClaimsASeatPastCapacity() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(seatReservationService.reserveSeat(courseId));
+        }
+
+        seatReservationService.claimSeat(courseId);
+
+        assertEquals(CAPACITY + 1, enrolledStudents());
+        assertFalse(seatReservationService.reserveSeat(courseId));
+    }
+
+    @Test
+    void backfillCountsTheSeatsHeldByExistingInvoices() throws Exception {
+        Course course = courseRepository.findById(courseId).orElseThrow();
+        User user = userRepository.save(new User("student", "student@test.com", "secret", User.Role.USER));
+        for (Invoice.Status status : Invoice.Status.values()) {
+            Invoice invoice = new Invoice(user, course, BigDecimal.TEN, Invoice.PaymentMethod.MOMO);
+            invoice.setStatus(status);
+            invoiceRepository.save(invoice);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new ClassPathResource("db/migration/V8__Backfill_enrolled_students.sql"));
+        }
+
+        // One PENDING and one PAID invoice; FAILED, CANCELLED and REFUNDED hold no seat
+        assertEquals(2, enrolledStudents());
+    }
+
+    private int enrolledStudents() {
+        return courseRepository.findById(courseId).orElseThrow().getEnrolledStudents();
+    }
+}
@@ -0,0 +1,87 @@
+package com.lessionprm.shared.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(10, 4, 50, 1000, 2, now::get);
+
+    @Test
+    void staysClosedUntilMinimumCallsAreSeen() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onFailure();
+        }
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.tryAcquirePermission();
+        breaker.onFailure();
+        assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertFalse(breaker.isCallPermitted());
+        assertEquals(1000, breaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void oldOutcomesSlideOutOfTheWindow() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess();
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        // 4 failures in the last 10 calls
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 5 of the last 10, although only 8 of all 18
+        breaker.onFailure();
+        assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbesCloseOrReopenTheCircuit() {
+        tripOpen();
+        now.addAndGet(1000);
+
+        assertTrue(breaker.isCallPermitted());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(GatewayCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(1000);
+        breaker.tryAcquirePermission();
+        breaker.tryAcquirePermission();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The window starts empty again after closing
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
\ No newline at end of file
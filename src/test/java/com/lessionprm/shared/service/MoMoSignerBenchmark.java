@@ -0,0 +1,94 @@
+package com.lessionprm.shared.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+// Signing and verifying a MoMo IPN-sized message with MoMoSigner against the per-call Mac.getInstance and
+// HexFormat approach it replaced. Not part of the test suite; run it after test-compile with
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//       com.lessionprm.shared.service.MoMoSignerBenchmark
+// and add -prof gc through the JMH command line (org.openjdk.jmh.Main) to see the allocation per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MoMoSignerBenchmark {
+
+    private static final String SECRET = "at67qH6mk8w5Y1nAyMoYKMWACiEi2bsa";
+    private static final String RAW = "accessKey=klm05TvNBzhg7h7j&amount=150000&extraData=&message=Successful." +
+            "&orderId=ORDER0A8D1FE281400&orderInfo=Khóa học Java&orderType=momo_wallet&partnerCode=MOMO" +
+            "&payType=qr&requestId=REQ0A8D1FE281400&responseTime=1700000000000&resultCode=0&transId=4088878653";
+
+    private MoMoSigner signer;
+
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        signer = new MoMoSigner();
+        signature = sign(signer);
+    }
+
+    @Benchmark
+    public String signerSign() {
+        return sign(signer);
+    }
+
+    @Benchmark
+    public boolean signerVerify() {
+        return builder(signer).verify(SECRET, signature);
+    }
+
+    @Benchmark
+    public String macPerCall() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(RAW.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sign(MoMoSigner signer) {
+        return builder(signer).sign(SECRET);
+    }
+
+    private static MoMoSigner.Builder builder(MoMoSigner signer) {
+        return signer.builder()
+                .field("accessKey", "klm05TvNBzhg7h7j")
+                .field("amount", 150000L)
+                .field("extraData", "")
+                .field("message", "Successful.")
+                .field("orderId", "ORDER0A8D1FE281400")
+                .field("orderInfo", "Khóa học Java")
+                .field("orderType", "momo_wallet")
+                .field("partnerCode", "MOMO")
+                .field("payType", "qr")
+                .field("requestId", "REQ0A8D1FE281400")
+                .field("responseTime", "1700000000000")
+                .field("resultCode", "0")
+                .field("transId", "4088878653");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MoMoSignerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.lessionprm.shared.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoMoSignerTest {
+
+    private static final String SECRET = "at67qH6mk8w5Y1nAyMoYKMWACiEi2bsa";
+
+    private final MoMoSigner signer = new MoMoSigner();
+
+    @Test
+    void signatureMatchesPlainHmac() throws Exception {
+        String signature = signer.builder()
+                .field("accessKey", "klm05TvNBzhg7h7j")
+                .field("amount", 150000L)
+                .field("orderId", "ORDER1")
+                .field("orderInfo", "Khóa học Java")
+                .sign(SECRET);
+
+        assertEquals(reference("accessKey=klm05TvNBzhg7h7j&amount=150000&orderId=ORDER1&orderInfo=Khóa học Java"), signature);
+    }
+
+    @Test
+    void verifyRejectsTamperedOrTruncatedSignatures() throws Exception {
+        String expected = reference("orderId=ORDER1&resultCode=0");
+        String tampered = expected.substring(0, 63) + (expected.charAt(63) == '0' ? '1' : '0');
+
+        assertTrue(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify(SECRET, expected));
+        assertFalse(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify(SECRET, tampered));
+        assertFalse(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify(SECRET, expected.substring(0, 32)));
+        assertFalse(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify("other-secret", expected));
+        assertFalse(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify(SECRET, null));
+        assertFalse(signer.builder().field("orderId", "ORDER1").field("resultCode", "0").verify(SECRET, expected.toUpperCase()));
+    }
+
+    @Test
+    void threadsSigningConcurrentlyGetTheSameResult() throws Exception {
+        String expected = reference("orderId=ORDER1&requestId=REQ1");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            results.add(executor.submit(() -> signer.builder()
+                    .field("orderId", "ORDER1")
+                    .field("requestId", "REQ1")
+                    .sign(SECRET)));
+        }
+
+        for (Future<String> result : results) {
+            assertEquals(expected, result.get());
+        }
+        executor.shutdown();
+    }
+
+    private String reference(String rawData) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(rawData.getBytes(StandardCharsets.UTF_8)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.lessionprm.shared.service;
+
+import com.lessionprm.shared.dto.PaymentEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Emitters are wired to stand-in connections the way Spring MVC wires them to the servlet response
+class PaymentEventBroadcasterTest {
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    private PaymentEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+
+        broadcaster = new PaymentEventBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 16);
+        ReflectionTestUtils.setField(broadcaster, "maxStreamsPerUser", 5);
+        ReflectionTestUtils.setField(broadcaster, "timeoutMillis", 60000L);
+        ReflectionTestUtils.setField(broadcaster, "dispatchThreads", 1);
+        ReflectionTestUtils.setField(broadcaster, "writeTimeoutMillis", 100L);
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        broadcaster.stop();
+    }
+
+    @Test
+    void stalledClientDoesNotHoldUpOthers() throws Exception {
+        AtomicBoolean stall = new AtomicBoolean();
+        CountDownLatch stalled = new CountDownLatch(1);
+        connect(broadcaster.subscribe(1L), data -> {
+            if (stall.get()) {
+                stalled.countDown();
+                unblock.await();
+            }
+        });
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        connect(broadcaster.subscribe(2L), data -> {
+            if (data instanceof PaymentEvent) {
+                received.add(data);
+            }
+        });
+
+        // The one dispatcher thread gets stuck writing the stalled client's heartbeat
+        stall.set(true);
+        broadcaster.heartbeat();
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        broadcaster.publish(2L, new PaymentEvent(PaymentEvent.Type.PAYMENT, "ORDER_1", 7L, "PAID", null));
+
+        assertNotNull(received.poll(5, TimeUnit.SECONDS), "Healthy client waited behind the stalled one");
+        assertEquals(2, dispatcher().getCorePoolSize());
+
+        // Once the stuck write returns, its replacement thread is given back
+        unblock.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher().getCorePoolSize() != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dispatcher().getCorePoolSize());
+
+        // The stalled client was dropped; the healthy one is still subscribed
+        assertEquals(1, ((AtomicInteger) ReflectionTestUtils.getField(broadcaster, "subscriberCount")).get());
+    }
+
+    private ThreadPoolExecutor dispatcher() {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(broadcaster, "dispatcher");
+    }
+
+    // Stands in for the servlet connection Spring MVC attaches once the controller returns the emitter
+    private static void connect(SseEmitter emitter, Connection connection) throws Exception {
+        Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+        Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[]{handlerType},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("send") && args[0] instanceof Set<?> items) {
+                        for (Object item : items) {
+                            connection.write(((ResponseBodyEmitter.DataWithMediaType) item).getData());
+                        }
+                    } else if (method.getName().equals("send")) {
+                        connection.write(args[0]);
+                    }
+                    return null;
+                });
+        ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+    }
+
+    private interface Connection {
+        void write(Object data) throws Exception;
+    }
+}
@@ -0,0 +1,103 @@
+package com.lessionprm.shared.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    @Test
+    void concurrentCallersNeverShareAnId() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                long[] ids = new long[IDS_PER_THREAD];
+                start.await();
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+
+        start.countDown();
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        int offset = 0;
+        for (Future<long[]> result : results) {
+            long[] ids = result.get();
+            for (int i = 1; i < ids.length; i++) {
+                assertTrue(ids[i] > ids[i - 1], "Ids must increase within a thread");
+            }
+            System.arraycopy(ids, 0, all, offset, ids.length);
+            offset += ids.length;
+        }
+        executor.shutdown();
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "Duplicate id generated");
+        }
+    }
+
+    @Test
+    void clockStepsBackwardsWithoutRepeatingIds() {
+        AtomicLong now = new AtomicLong(TimeOrderedIdGenerator.EPOCH + 10_000);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1, now::get);
+
+        long before = generator.nextId();
+        now.addAndGet(-5_000);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+    }
+
+    @Test
+    void sequenceOverflowCarriesIntoTheNextMillisecond() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3, () -> TimeOrderedIdGenerator.EPOCH + 1);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            assertEquals(3, next >>> TimeOrderedIdGenerator.SEQUENCE_BITS & TimeOrderedIdGenerator.MAX_NODE_ID);
+            previous = next;
+        }
+    }
+
+    @Test
+    void encodedIdsSortLikeTheIds() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0);
+        String previous = generator.nextId("ORDER");
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.nextId("ORDER");
+            assertEquals(previous.length(), next.length());
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+        assertEquals("0000000000000", IdGenerator.encode(0));
+        assertEquals("FZZZZZZZZZZZZ", IdGenerator.encode(-1));
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(1024, System::currentTimeMillis));
+    }
+}
\ No newline at end of file